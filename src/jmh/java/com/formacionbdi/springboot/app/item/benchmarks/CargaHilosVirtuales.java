@@ -0,0 +1,190 @@
+package com.formacionbdi.springboot.app.item.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.context.ConfigurableApplicationContext;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * Prueba de carga del modo "configuracion.hilos-virtuales.habilitado" contra un "StubServicioProductos" lento.
+ * No es un benchmark de JMH: por cada nivel de concurrencia se mantienen N clientes enviando "/ver/{id}/cantidad/1"
+ * en bucle cerrado (cada cliente envía la siguiente petición al recibir la respuesta) durante un tiempo fijo.
+ *
+ * Para comparar con la misma memoria se ejecuta una vez por modo, cada una en su JVM y con el mismo "-Xmx":
+ * mvn -Pjmh,java21 test-compile exec:exec -Djmh.jvm=-Xmx512m -Djmh.main=com.formacionbdi.springboot.app.item.benchmarks.CargaHilosVirtuales -Djmh.args=plataforma
+ * mvn -Pjmh,java21 test-compile exec:exec -Djmh.jvm=-Xmx512m -Djmh.main=com.formacionbdi.springboot.app.item.benchmarks.CargaHilosVirtuales -Djmh.args=virtual
+ *
+ * Argumentos: modo(plataforma | virtual) [clientes por nivel, separados por coma] [segundos por nivel] [retardo del stub en ms] [ruta: ver | ver2 | ver3]
+ * Por defecto: 100,400,1600,6400 clientes, 20 segundos, 200 ms y "ver" (circuit breaker programático sobre "itemsIoExecutor").
+ *
+ * Ambos modos usan la configuración por defecto de hilos ("server.tomcat.threads.max" 200 y "ejecutor-io"),
+ * sin cache de productos ni "limitador", y con conexiones suficientes en Tomcat y en el pool HTTP,
+ * así el único límite que cambia entre una ejecución y otra es el modelo de hilos.
+ *
+ * Por nivel se reporta:
+ * - peticiones/s y latencia p50/p99.
+ * - degradadas: respuestas del método alternativo (traen "antiguedad"), por ejemplo al vencer el TimeLimiter o al rechazar el pool.
+ * - errores: respuestas distintas de 200 o sin respuesta.
+ * - hilos: máximo de hilos de plataforma vivos, los hilos virtuales no se cuentan.
+ * - heap: máximo de heap usado, muestreado cada 100 ms.
+ * El cliente HTTP y el stub corren en la misma JVM y no dependen del modo, su consumo es el mismo en ambas ejecuciones.
+ */
+public final class CargaHilosVirtuales {
+
+	private static final int PRODUCTOS = 10000;
+
+	private CargaHilosVirtuales() {
+
+	}
+
+	public static void main(String[] args) throws Exception {
+		String modo = args.length > 0 ? args[0] : "plataforma";
+		int[] niveles = args.length > 1
+				? Arrays.stream(args[1].split(",")).mapToInt(Integer::parseInt).toArray()
+				: new int[] { 100, 400, 1600, 6400 };
+		Duration duracion = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 20);
+		long retardo = args.length > 3 ? Long.parseLong(args[3]) : 200;
+		String ruta = args.length > 4 ? args[4] : "ver";
+
+		Map<String, String> propiedades = new HashMap<>();
+		propiedades.put("configuracion.hilos-virtuales.habilitado", String.valueOf("virtual".equals(modo)));
+		propiedades.put("configuracion.cache.maximo-productos", "0");
+		propiedades.put("configuracion.limitador.habilitado", "false");
+		propiedades.put("configuracion.calentamiento.habilitado", "false");
+		propiedades.put("configuracion.http-cliente.maximo-conexiones", "20000");
+		propiedades.put("configuracion.http-cliente.maximo-conexiones-por-ruta", "20000");
+		propiedades.put("server.tomcat.max-connections", "20000");
+		propiedades.put("server.tomcat.accept-count", "1000");
+
+		ExecutorService ejecutorCliente = Executors.newFixedThreadPool(4);
+		HttpClient cliente = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.executor(ejecutorCliente)
+				.build();
+
+		try (StubServicioProductos stub = new StubServicioProductos(PRODUCTOS, retardo)) {
+			ConfigurableApplicationContext contexto = ContextoItems.iniciarServidor(stub, propiedades);
+			try {
+				String base = "http://localhost:" + ContextoItems.puerto(contexto) + "/" + ruta + "/";
+				System.out.printf("%-10s %8s %12s %9s %9s %10s %8s %6s %9s%n",
+						"modo", "clientes", "peticiones/s", "p50 ms", "p99 ms", "degradadas", "errores", "hilos", "heap MB");
+				for (int clientes : niveles) {
+					Nivel nivel = new Nivel(cliente, base, clientes, duracion);
+					nivel.ejecutar();
+					System.out.printf("%-10s %8d %12.1f %9.1f %9.1f %10d %8d %6d %9d%n",
+							modo, clientes, nivel.correctas.sum() / (double) duracion.getSeconds(),
+							nivel.percentil(0.5), nivel.percentil(0.99),
+							nivel.degradadas.sum(), nivel.errores.sum(), nivel.hilosMaximo, nivel.heapMaximo.get() / (1024 * 1024));
+				}
+			} finally {
+				contexto.close();
+			}
+		} finally {
+			ejecutorCliente.shutdownNow();
+		}
+	}
+
+	private static final class Nivel {
+		private final HttpClient cliente;
+		private final String base;
+		private final int clientes;
+		private final Duration duracion;
+
+		private final Timer latencia;
+		private final LongAdder correctas = new LongAdder();
+		private final LongAdder degradadas = new LongAdder();
+		private final LongAdder errores = new LongAdder();
+		private final AtomicLong heapMaximo = new AtomicLong();
+		private final CountDownLatch terminados;
+		private long fin;
+		private int hilosMaximo;
+
+		private Nivel(HttpClient cliente, String base, int clientes, Duration duracion) {
+			this.cliente = cliente;
+			this.base = base;
+			this.clientes = clientes;
+			this.duracion = duracion;
+			this.terminados = new CountDownLatch(clientes);
+			this.latencia = Timer.builder("carga.latencia")
+					.publishPercentiles(0.5, 0.99)
+					.distributionStatisticExpiry(duracion.multipliedBy(2))
+					.register(new SimpleMeterRegistry());
+		}
+
+		private void ejecutar() throws InterruptedException {
+			MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+			ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+			System.gc();
+			hilos.resetPeakThreadCount();
+
+			ScheduledExecutorService muestreo = Executors.newSingleThreadScheduledExecutor();
+			muestreo.scheduleAtFixedRate(() -> this.heapMaximo.accumulateAndGet(memoria.getHeapMemoryUsage().getUsed(), Math::max),
+					0, 100, TimeUnit.MILLISECONDS);
+			try {
+				this.fin = System.nanoTime() + this.duracion.toNanos();
+				for (int i = 0; i < this.clientes; i++) {
+					this.enviar();
+				}
+				this.terminados.await();
+			} finally {
+				muestreo.shutdownNow();
+			}
+			this.hilosMaximo = hilos.getPeakThreadCount();
+		}
+
+		// Cada respuesta envía la siguiente petición del mismo cliente hasta que se termina el tiempo del nivel
+		private void enviar() {
+			if (System.nanoTime() >= this.fin) {
+				this.terminados.countDown();
+				return;
+			}
+			long id = ThreadLocalRandom.current().nextLong(1, PRODUCTOS + 1);
+			HttpRequest peticion = HttpRequest.newBuilder(URI.create(this.base + id + "/cantidad/1"))
+					.timeout(Duration.ofSeconds(30))
+					.build();
+			long inicio = System.nanoTime();
+			this.cliente.sendAsync(peticion, HttpResponse.BodyHandlers.ofString()).whenComplete((respuesta, error) -> {
+				this.latencia.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+				if (error != null || respuesta.statusCode() != 200) {
+					this.errores.increment();
+				} else if (respuesta.body().contains("\"antiguedad\"")) {
+					this.degradadas.increment();
+				} else {
+					this.correctas.increment();
+				}
+				this.enviar();
+			});
+		}
+
+		private double percentil(double percentil) {
+			for (ValueAtPercentile valor : this.latencia.takeSnapshot().percentileValues()) {
+				if (valor.percentile() == percentil) {
+					return valor.value(TimeUnit.MILLISECONDS);
+				}
+			}
+			return Double.NaN;
+		}
+	}
+
+}
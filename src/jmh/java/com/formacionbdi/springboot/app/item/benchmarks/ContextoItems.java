@@ -0,0 +1,59 @@
+package com.formacionbdi.springboot.app.item.benchmarks;
+
+import java.util.Map;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.formacionbdi.springboot.app.item.SpringbootServicioItemApplication;
+
+/*
+ * Levanta el contexto de Spring del microservicio items apuntando a un "StubServicioProductos".
+ * Sin Eureka ni servidor de configuraciones: la instancia del "servicio-productos" se registra
+ * con el "SimpleDiscoveryClient" de Spring Cloud, así se siguen usando el balanceador, Feign y el RestTemplate reales.
+ */
+public final class ContextoItems {
+
+	private ContextoItems() {
+
+	}
+
+	/*
+	 * Las propiedades se indican como propiedades de sistema, ya que tienen prioridad sobre el "application.yml".
+	 * "propiedadesExtra" permite cambiar la configuración en cada benchmark, por ejemplo deshabilitar la cache.
+	 */
+	public static ConfigurableApplicationContext iniciar(StubServicioProductos stub, Map<String, String> propiedadesExtra) {
+		return iniciar(stub, propiedadesExtra, WebApplicationType.NONE);
+	}
+
+	/*
+	 * Igual que "iniciar()" pero con Tomcat escuchando en un puerto libre, para las pruebas de carga por HTTP.
+	 * El puerto se obtiene con "puerto()".
+	 */
+	public static ConfigurableApplicationContext iniciarServidor(StubServicioProductos stub, Map<String, String> propiedadesExtra) {
+		System.setProperty("server.port", "0");
+		return iniciar(stub, propiedadesExtra, WebApplicationType.SERVLET);
+	}
+
+	public static int puerto(ConfigurableApplicationContext contexto) {
+		return ((WebServerApplicationContext) contexto).getWebServer().getPort();
+	}
+
+	private static ConfigurableApplicationContext iniciar(StubServicioProductos stub, Map<String, String> propiedadesExtra,
+			WebApplicationType tipo) {
+		System.setProperty("spring.cloud.config.enabled", "false");
+		System.setProperty("spring.cloud.bootstrap.enabled", "false");
+		System.setProperty("eureka.client.enabled", "false");
+		System.setProperty("spring.cloud.discovery.client.simple.instances.servicio-productos[0].uri", stub.getUrl());
+		System.setProperty("configuracion.texto", "benchmark");
+		System.setProperty("logging.level.root", "WARN");
+		propiedadesExtra.forEach(System::setProperty);
+
+		return new SpringApplicationBuilder(SpringbootServicioItemApplication.class)
+				.web(tipo)
+				.run();
+	}
+
+}
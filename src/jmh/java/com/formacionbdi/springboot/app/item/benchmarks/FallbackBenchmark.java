@@ -0,0 +1,138 @@
+package com.formacionbdi.springboot.app.item.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.models.Item;
+import com.formacionbdi.springboot.app.item.models.service.ProductoNoDisponibleException;
+import com.formacionbdi.springboot.app.item.models.service.ProductosUltimoConocido;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * Bytes asignados por cada respuesta de los métodos alternativos, antes y después de reutilizar instancias.
+ * Se ejecuta con "-prof gc" y se compara "gc.alloc.rate.norm" (bytes por operación):
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="FallbackBenchmark -prof gc"
+ *
+ * - *Anterior: reproduce la implementación previa (producto decodificado en cada llamada, "Item" con Integer/Double,
+ *   "supplyAsync()" en el commonPool y "ResponseStatusException" con stack trace).
+ * - *Actual: la implementación de "ItemController".
+ * Ambos incluyen la serialización JSON de la respuesta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FallbackBenchmark {
+
+	private static final Long ID = 1L;
+	private static final Integer CANTIDAD = 3;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final ProductosUltimoConocido ultimoConocido = new ProductosUltimoConocido();
+
+	// Causa del fallback cuando el circuito está abierto
+	private Throwable causa;
+
+	@Setup
+	public void preparar() {
+		ReflectionTestUtils.setField(this.ultimoConocido, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(this.ultimoConocido, "maximoProductos", 1000);
+		ReflectionTestUtils.setField(this.ultimoConocido, "maximoDecodificados", 1000);
+		ReflectionTestUtils.setField(this.ultimoConocido, "archivo", "");
+		this.ultimoConocido.inicializar();
+		this.ultimoConocido.guardar(StubServicioProductos.crearProducto(ID));
+
+		this.causa = CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("items"));
+	}
+
+	@Benchmark
+	public Object fallbackAnterior() throws IOException {
+		ProductosUltimoConocido.Registro registro = this.ultimoConocido.buscar(ID);
+		// Antes cada llamada decodificaba un "Producto" nuevo desde los bytes guardados
+		Producto producto = new Producto();
+		producto.setId(ID);
+		producto.setNombre(registro.getProducto().getNombre());
+		producto.setPrecio(registro.getProducto().getPrecio());
+		producto.setCreateAt(new Date(registro.getProducto().getCreateAt().getTime()));
+		producto.setPort(registro.getProducto().getPort());
+
+		ItemAnterior item = new ItemAnterior(producto, CANTIDAD);
+		item.antiguedad = registro.getAntiguedad();
+		CompletableFuture<ItemAnterior> respuesta = CompletableFuture.supplyAsync(() -> item);
+		this.objectMapper.writeValue(OutputStream.nullOutputStream(), respuesta.join());
+		return respuesta;
+	}
+
+	@Benchmark
+	public Object fallbackActual() throws IOException {
+		ProductosUltimoConocido.Registro registro = this.ultimoConocido.buscar(ID);
+		Item item = new Item(registro.getProducto(), CANTIDAD);
+		item.setAntiguedad(registro.getAntiguedad());
+		CompletableFuture<Item> respuesta = CompletableFuture.completedFuture(item);
+		this.objectMapper.writeValue(OutputStream.nullOutputStream(), respuesta.join());
+		return respuesta;
+	}
+
+	@Benchmark
+	public RuntimeException noDisponibleAnterior() {
+		return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Producto " + ID + " no disponible", this.causa);
+	}
+
+	@Benchmark
+	public RuntimeException noDisponibleActual() {
+		return ProductoNoDisponibleException.INSTANCIA;
+	}
+
+	// "Item" antes del cambio: cantidad y antigüedad boxed y el total calculado en cada serialización
+	public static class ItemAnterior {
+		private final Producto producto;
+		private final Integer cantidad;
+		private Long antiguedad;
+
+		private ItemAnterior(Producto producto, Integer cantidad) {
+			this.producto = producto;
+			this.cantidad = cantidad;
+		}
+
+		public Producto getProducto() {
+			return producto;
+		}
+
+		public Integer getCantidad() {
+			return cantidad;
+		}
+
+		public Long getAntiguedad() {
+			return antiguedad;
+		}
+
+		public Double getTotal() {
+			return producto.getPrecio() * cantidad.doubleValue();
+		}
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.formacionbdi.springboot.app.item.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.formacionbdi.springboot.app.item.models.Item;
+import com.formacionbdi.springboot.app.item.models.service.ItemService;
+
+/*
+ * Costo de "findAll()" (descarga, conversión a "Producto" y mapeo a "Item") según el tamaño del catálogo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FindAllBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	private int productos;
+
+	private StubServicioProductos stub;
+	private ConfigurableApplicationContext contexto;
+
+	private ItemService serviceFeign;
+	private ItemService serviceRestTemplate;
+
+	@Setup
+	public void iniciar() throws IOException {
+		this.stub = new StubServicioProductos(this.productos, 0);
+		this.contexto = ContextoItems.iniciar(this.stub, Map.of());
+		this.serviceFeign = this.contexto.getBean("serviceFeign", ItemService.class);
+		this.serviceRestTemplate = this.contexto.getBean("serviceRestTemplate", ItemService.class);
+	}
+
+	@TearDown
+	public void detener() {
+		this.contexto.close();
+		this.stub.close();
+	}
+
+	@Benchmark
+	public List<Item> findAllFeign() {
+		return this.serviceFeign.findAll();
+	}
+
+	@Benchmark
+	public List<Item> findAllRestTemplate() {
+		return this.serviceRestTemplate.findAll();
+	}
+
+}
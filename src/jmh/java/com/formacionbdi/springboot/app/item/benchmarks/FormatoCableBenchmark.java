@@ -0,0 +1,112 @@
+package com.formacionbdi.springboot.app.item.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.models.Item;
+
+/*
+ * Compara JSON, Smile y CBOR, con y sin gzip, para un listado de 10.000 productos.
+ *
+ * - serializarItems: respuesta de "/listar" del "ItemController" (lista de "Item").
+ * - leerProductos: respuesta del "/listar" del "servicio-productos" convertida a "Producto[]", como hacen Feign y el RestTemplate.
+ *
+ * Los bytes en el cable de cada combinación se imprimen al preparar el benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatoCableBenchmark {
+
+	@Param({ "json", "smile", "cbor" })
+	private String formato;
+
+	@Param({ "false", "true" })
+	private boolean gzip;
+
+	private static final int PRODUCTOS = 10000;
+
+	private ObjectMapper objectMapper;
+	private List<Item> items;
+
+	// Respuesta del servicio-productos ya codificada (y comprimida) en el formato evaluado
+	private byte[] respuestaUpstream;
+
+	@Setup
+	public void preparar() throws IOException {
+		switch (this.formato) {
+		case "smile":
+			this.objectMapper = new ObjectMapper(new SmileFactory());
+			break;
+		case "cbor":
+			this.objectMapper = new ObjectMapper(new CBORFactory());
+			break;
+		default:
+			this.objectMapper = new ObjectMapper();
+		}
+
+		List<Producto> productos = new ArrayList<>(PRODUCTOS);
+		this.items = new ArrayList<>(PRODUCTOS);
+		for (long id = 1; id <= PRODUCTOS; id++) {
+			Producto producto = StubServicioProductos.crearProducto(id);
+			productos.add(producto);
+			this.items.add(new Item(producto, 1));
+		}
+		this.respuestaUpstream = this.codificar(productos);
+
+		System.out.printf("%nformato=%s gzip=%s bytes productos=%d bytes items=%d%n",
+				this.formato, this.gzip, this.respuestaUpstream.length, this.serializarItems().length);
+	}
+
+	@Benchmark
+	public byte[] serializarItems() throws IOException {
+		return this.codificar(this.items);
+	}
+
+	@Benchmark
+	public Producto[] leerProductos() throws IOException {
+		InputStream entrada = new ByteArrayInputStream(this.respuestaUpstream);
+		if (this.gzip) {
+			entrada = new GZIPInputStream(entrada);
+		}
+		return this.objectMapper.readValue(entrada, Producto[].class);
+	}
+
+	private byte[] codificar(Object valor) throws IOException {
+		if (!this.gzip) {
+			return this.objectMapper.writeValueAsBytes(valor);
+		}
+		ByteArrayOutputStream salida = new ByteArrayOutputStream();
+		try (GZIPOutputStream comprimido = new GZIPOutputStream(salida)) {
+			this.objectMapper.writeValue(comprimido, valor);
+		}
+		return salida.toByteArray();
+	}
+
+}
@@ -0,0 +1,57 @@
+package com.formacionbdi.springboot.app.item.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.formacionbdi.springboot.app.item.models.Item;
+
+/*
+ * Costo de serializar "Item" con Jackson, con el serializador "Item.Serializador" y el total ya calculado.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemSerializacionBenchmark {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private Item item;
+	private List<Item> listado;
+
+	@Setup
+	public void preparar() {
+		this.item = new Item(StubServicioProductos.crearProducto(1), 3);
+		this.listado = new ArrayList<>(1000);
+		for (long id = 1; id <= 1000; id++) {
+			this.listado.add(new Item(StubServicioProductos.crearProducto(id), 1));
+		}
+	}
+
+	@Benchmark
+	public byte[] serializarItem() throws JsonProcessingException {
+		return this.objectMapper.writeValueAsBytes(this.item);
+	}
+
+	@Benchmark
+	public byte[] serializarListado1000() throws JsonProcessingException {
+		return this.objectMapper.writeValueAsBytes(this.listado);
+	}
+
+}
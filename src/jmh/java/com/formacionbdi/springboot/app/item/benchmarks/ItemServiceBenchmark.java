@@ -0,0 +1,96 @@
+package com.formacionbdi.springboot.app.item.benchmarks;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.formacionbdi.springboot.app.item.controllers.ItemController;
+import com.formacionbdi.springboot.app.item.models.Item;
+import com.formacionbdi.springboot.app.item.models.service.ItemService;
+
+/*
+ * Compara las rutas de "findById" contra un "StubServicioProductos" en el mismo proceso:
+ * - Feign ("serviceFeign") contra RestTemplate ("serviceRestTemplate").
+ * - "detalle()" con el circuit breaker programático contra "detalle2()" con la anotación @CircuitBreaker.
+ *
+ * La cache de productos se deshabilita para medir siempre la llamada HTTP.
+ * Con "-prof gc" se obtiene además la tasa de asignación de memoria.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ItemServiceBenchmark {
+
+	private static final int PRODUCTOS = 1000;
+
+	private StubServicioProductos stub;
+	private ConfigurableApplicationContext contexto;
+
+	private ItemService serviceFeign;
+	private ItemService serviceRestTemplate;
+	private ItemController controller;
+
+	// Petición y respuesta compartidas por todas las invocaciones de "detalle()", sin "If-None-Match"
+	private final MockHttpServletResponse respuesta = new MockHttpServletResponse();
+	private final ServletWebRequest webRequest = new ServletWebRequest(new MockHttpServletRequest(), this.respuesta);
+
+	@Setup
+	public void iniciar() throws IOException {
+		this.stub = new StubServicioProductos(PRODUCTOS, 0);
+		this.contexto = ContextoItems.iniciar(this.stub, Map.of("configuracion.cache.maximo-productos", "0"));
+		this.serviceFeign = this.contexto.getBean("serviceFeign", ItemService.class);
+		this.serviceRestTemplate = this.contexto.getBean("serviceRestTemplate", ItemService.class);
+		this.controller = this.contexto.getBean(ItemController.class);
+	}
+
+	@TearDown
+	public void detener() {
+		this.contexto.close();
+		this.stub.close();
+	}
+
+	@Benchmark
+	public Item findByIdFeign() {
+		return this.serviceFeign.findById(idAleatorio(), 2);
+	}
+
+	@Benchmark
+	public Item findByIdRestTemplate() {
+		return this.serviceRestTemplate.findById(idAleatorio(), 2);
+	}
+
+	@Benchmark
+	public Item detalleCircuitBreaker() {
+		return this.controller.detalle(idAleatorio(), 2, this.respuesta, this.webRequest);
+	}
+
+	@Benchmark
+	public Item detalle2() {
+		return this.controller.detalle2(idAleatorio(), 2);
+	}
+
+	private static long idAleatorio() {
+		return ThreadLocalRandom.current().nextLong(1, PRODUCTOS + 1);
+	}
+
+}
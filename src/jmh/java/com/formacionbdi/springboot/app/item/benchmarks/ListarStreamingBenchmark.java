@@ -0,0 +1,160 @@
+package com.formacionbdi.springboot.app.item.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.models.Item;
+import com.formacionbdi.springboot.app.item.models.service.ItemStreamingService;
+
+/*
+ * Compara el "/listar" actual (lista completa en memoria) con el modo "stream=true".
+ *
+ * - listarMaterializado / listarStream: tiempo total y, con "-prof gc", bytes asignados por operación (gc.alloc.rate.norm).
+ *   El modo materializado además mantiene vivas las dos listas hasta terminar de serializar, por lo que su pico de heap crece con el catálogo.
+ * - primerByte*: tiempo hasta que se escribe el primer byte de la respuesta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListarStreamingBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	private int productos;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final ItemStreamingService streamingService = new ItemStreamingService();
+
+	// Respuesta JSON del "servicio-productos" ya serializada
+	private byte[] respuestaUpstream;
+
+	@Setup
+	public void preparar() throws IOException {
+		ReflectionTestUtils.setField(this.streamingService, "objectMapper", this.objectMapper);
+
+		List<Producto> catalogo = new ArrayList<>(this.productos);
+		for (long id = 1; id <= this.productos; id++) {
+			Producto producto = new Producto();
+			producto.setId(id);
+			producto.setNombre("Producto " + id);
+			producto.setPrecio(100D + id);
+			producto.setCreateAt(new Date());
+			producto.setPort(8001);
+			catalogo.add(producto);
+		}
+		this.respuestaUpstream = this.objectMapper.writeValueAsBytes(catalogo);
+	}
+
+	@Benchmark
+	public void listarMaterializado(Blackhole blackhole) throws IOException {
+		this.materializar(new SalidaDescartada(blackhole));
+	}
+
+	@Benchmark
+	public void listarStream(Blackhole blackhole) throws IOException {
+		this.streamingService.escribirItems(new ByteArrayInputStream(this.respuestaUpstream), new SalidaDescartada(blackhole));
+	}
+
+	@Benchmark
+	public void primerByteMaterializado() throws IOException {
+		try {
+			this.materializar(new SalidaPrimerByte());
+		} catch (RuntimeException | IOException e) {
+			cortadoEnPrimerByte(e);
+		}
+	}
+
+	@Benchmark
+	public void primerByteStream() throws IOException {
+		try {
+			this.streamingService.escribirItems(new ByteArrayInputStream(this.respuestaUpstream), new SalidaPrimerByte());
+		} catch (RuntimeException | IOException e) {
+			cortadoEnPrimerByte(e);
+		}
+	}
+
+	// Mismo camino que "ItemServiceImpl.findAll()" seguido de la serialización que realiza Spring MVC
+	private void materializar(OutputStream salida) throws IOException {
+		Producto[] productos = this.objectMapper.readValue(this.respuestaUpstream, Producto[].class);
+		List<Item> items = List.of(productos)
+				.stream()
+				.map(producto -> new Item(producto, 1))
+				.collect(Collectors.toList());
+		this.objectMapper.writeValue(salida, items);
+	}
+
+	// Jackson puede envolver la excepción de la salida, la buscamos entre las causas
+	private static void cortadoEnPrimerByte(Exception e) throws IOException {
+		for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+			if (causa == PrimerByteEscrito.INSTANCIA) {
+				return;
+			}
+		}
+		throw new IOException(e);
+	}
+
+	private static final class SalidaDescartada extends OutputStream {
+		private final Blackhole blackhole;
+
+		private SalidaDescartada(Blackhole blackhole) {
+			this.blackhole = blackhole;
+		}
+
+		@Override
+		public void write(int b) {
+			this.blackhole.consume(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			this.blackhole.consume(b);
+		}
+	}
+
+	private static final class SalidaPrimerByte extends OutputStream {
+		@Override
+		public void write(int b) {
+			throw PrimerByteEscrito.INSTANCIA;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			throw PrimerByteEscrito.INSTANCIA;
+		}
+	}
+
+	// Excepción sin stack trace usada para cortar la escritura en el primer byte
+	private static final class PrimerByteEscrito extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		private static final PrimerByteEscrito INSTANCIA = new PrimerByteEscrito();
+
+		private PrimerByteEscrito() {
+			super(null, null, false, false);
+		}
+	}
+
+}
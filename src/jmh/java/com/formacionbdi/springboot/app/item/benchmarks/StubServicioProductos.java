@@ -0,0 +1,105 @@
+package com.formacionbdi.springboot.app.item.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/*
+ * Servidor HTTP en memoria que imita al "servicio-productos" para los benchmarks y pruebas de carga.
+ * Responde "/listar" y "/ver/{id}" con respuestas JSON ya serializadas.
+ * "retardoMillis" simula un servicio lento, como el sleep de 5 segundos del "ProductoController".
+ * La respuesta se programa con un "ScheduledExecutorService" en lugar de dormir el hilo, así el stub
+ * no necesita un hilo por petición pendiente y no compite por memoria con el microservicio en las pruebas de carga.
+ */
+public class StubServicioProductos implements AutoCloseable {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final HttpServer servidor;
+	private final byte[] listado;
+	private final byte[][] productos;
+	private final long retardoMillis;
+	private final ScheduledExecutorService programador = Executors.newScheduledThreadPool(2);
+
+	public StubServicioProductos(int cantidadProductos, long retardoMillis) throws IOException {
+		this.retardoMillis = retardoMillis;
+
+		List<Producto> catalogo = new ArrayList<>(cantidadProductos);
+		this.productos = new byte[cantidadProductos + 1][];
+		for (int id = 1; id <= cantidadProductos; id++) {
+			Producto producto = crearProducto(id);
+			catalogo.add(producto);
+			this.productos[id] = this.objectMapper.writeValueAsBytes(producto);
+		}
+		this.listado = this.objectMapper.writeValueAsBytes(catalogo);
+
+		this.servidor = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+		this.servidor.createContext("/listar", intercambio -> this.responder(intercambio, this.listado));
+		this.servidor.createContext("/ver/", intercambio -> {
+			String ruta = intercambio.getRequestURI().getPath();
+			int id = Integer.parseInt(ruta.substring(ruta.lastIndexOf('/') + 1));
+			this.responder(intercambio, id > 0 && id < this.productos.length ? this.productos[id] : null);
+		});
+		this.servidor.setExecutor(Executors.newCachedThreadPool());
+		this.servidor.start();
+	}
+
+	public static Producto crearProducto(long id) {
+		Producto producto = new Producto();
+		producto.setId(id);
+		producto.setNombre("Producto " + id);
+		producto.setPrecio(100D + id);
+		producto.setCreateAt(new Date());
+		producto.setPort(8001);
+		return producto;
+	}
+
+	public String getUrl() {
+		return "http://localhost:" + this.servidor.getAddress().getPort();
+	}
+
+	private void responder(HttpExchange intercambio, byte[] cuerpo) throws IOException {
+		if (this.retardoMillis <= 0) {
+			escribir(intercambio, cuerpo);
+			return;
+		}
+		// El intercambio queda abierto al terminar el handler, se completa desde el programador
+		this.programador.schedule(() -> {
+			try {
+				escribir(intercambio, cuerpo);
+			} catch (IOException e) {
+				intercambio.close();
+			}
+		}, this.retardoMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private static void escribir(HttpExchange intercambio, byte[] cuerpo) throws IOException {
+		if (cuerpo == null) {
+			intercambio.sendResponseHeaders(404, -1);
+			intercambio.close();
+			return;
+		}
+		intercambio.getResponseHeaders().add("Content-Type", "application/json");
+		intercambio.sendResponseHeaders(200, cuerpo.length);
+		try (OutputStream salida = intercambio.getResponseBody()) {
+			salida.write(cuerpo);
+		}
+	}
+
+	@Override
+	public void close() {
+		this.servidor.stop(0);
+		this.programador.shutdownNow();
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.formacionbdi.springboot.app.item;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+import com.formacionbdi.springboot.app.item.clientes.BalanceadorLatencia;
+import com.formacionbdi.springboot.app.item.clientes.EstadisticasInstancias;
+import com.formacionbdi.springboot.app.item.clientes.InstanciasSinInterruptorAbierto;
+import com.formacionbdi.springboot.app.item.clientes.InterruptoresProductos;
+
+/*
+ * Configuración del balanceador de carga (Spring Cloud LoadBalancer) para el "servicio-productos".
+ * Los beans reemplazan a los de "LoadBalancerClientConfiguration", que se crean solo si no existen.
+ * Se registra con @LoadBalancerClient en "RestTemplateConfig" y aplica al RestTemplate, al WebClient y a los clientes Feign.
+ *
+ * Esta clase no lleva @Configuration a propósito: Spring Cloud la carga en un contexto propio del "servicio-productos".
+ * Si la encontrara el escaneo de componentes, sus beans se aplicarían a todos los servicios.
+ */
+public class BalanceadorProductosConfig {
+
+	/*
+	 * Con "configuracion.balanceador.algoritmo: latencia" (por defecto) se usa "BalanceadorLatencia",
+	 * con "round-robin" el balanceador por defecto de Spring Cloud LoadBalancer.
+	 */
+	@Bean
+	public ReactorLoadBalancer<ServiceInstance> balanceadorProductos(Environment environment,
+			LoadBalancerClientFactory fabrica, EstadisticasInstancias estadisticas) {
+		String servicio = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+		ObjectProvider<ServiceInstanceListSupplier> instancias = fabrica.getLazyProvider(servicio, ServiceInstanceListSupplier.class);
+		if ("round-robin".equals(environment.getProperty("configuracion.balanceador.algoritmo", "latencia"))) {
+			return new RoundRobinLoadBalancer(instancias, servicio);
+		}
+		return new BalanceadorLatencia(instancias, estadisticas);
+	}
+
+	/*
+	 * Instancias obtenidas de Eureka (DiscoveryClient) y guardadas en cache,
+	 * filtrando las que tienen abierto su circuit breaker en "InterruptoresProductos".
+	 */
+	@Bean
+	public ServiceInstanceListSupplier instanciasProductos(ConfigurableApplicationContext context, InterruptoresProductos interruptores) {
+		ServiceInstanceListSupplier instancias = ServiceInstanceListSupplier.builder()
+				.withDiscoveryClient()
+				.withCaching()
+				.build(context);
+		return new InstanciasSinInterruptorAbierto(instancias, interruptores);
+	}
+
+}
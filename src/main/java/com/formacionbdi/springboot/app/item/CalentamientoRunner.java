@@ -0,0 +1,216 @@
+package com.formacionbdi.springboot.app.item;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreakerFactory;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.models.Item;
+import com.formacionbdi.springboot.app.item.models.SolicitudItem;
+import com.formacionbdi.springboot.app.item.models.service.ItemService;
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+
+/*
+ * Calentamiento de la aplicación antes de recibir tráfico.
+ *
+ * Spring Boot marca la aplicación como lista ("/actuator/health/readiness" = UP) recién después de ejecutar
+ * todos los "ApplicationRunner", pero Eureka no usa ese estado: la instancia se registra al iniciar el contexto,
+ * antes de los "ApplicationRunner", con el estado "eureka.instance.initial-status".
+ * Por eso ese estado es STARTING (ver application.yml) y este runner lo cambia a UP al terminar, aunque el calentamiento
+ * esté deshabilitado o falle. Mientras tanto los clientes que balancean con Eureka no envían peticiones a esta instancia.
+ *
+ * Inicializa lo que de otra forma pagaría la primera petición:
+ * - resilience4j: circuit breaker y time limiter "items".
+ * - jackson: serializadores de "Item" y "Producto".
+ * - balanceador: contexto del Spring Cloud LoadBalancer para "servicio-productos" y su lista de instancias de Eureka.
+ * - productos: carga en la cache los ids del archivo "archivo-productos" (uno por línea, los más consultados primero),
+ *   lo cual además abre las conexiones del pool HTTP.
+ *
+ * Ningún paso detiene el arranque si falla, y los pasos pendientes se omiten al superar "tiempo-maximo".
+ * Al terminar se registra en el log el tiempo de cada paso y los beans más lentos del arranque.
+ */
+@Component
+public class CalentamientoRunner implements ApplicationRunner {
+
+	private static final int PRODUCTOS_POR_LOTE = 100;
+
+	private final Logger logger = LoggerFactory.getLogger(CalentamientoRunner.class);
+
+	// ATRIBUTOS
+	@Autowired
+	@Qualifier("serviceCache")
+	private ItemService itemService;
+
+	@Autowired
+	private LoadBalancerClient loadBalancerClient;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private CircuitBreakerFactory circuitBreakerFactory;
+
+	@Autowired
+	private CircuitBreakerRegistry circuitBreakerRegistry;
+
+	@Autowired
+	private TimeLimiterRegistry timeLimiterRegistry;
+
+	@Autowired
+	private ConfigurableApplicationContext contexto;
+
+	// No existe si el cliente de Eureka está deshabilitado ("eureka.client.enabled")
+	@Autowired
+	private ObjectProvider<ApplicationInfoManager> applicationInfoManager;
+
+	@Value("${configuracion.calentamiento.habilitado:true}")
+	private boolean habilitado;
+
+	@Value("${configuracion.calentamiento.archivo-productos:}")
+	private String archivoProductos;
+
+	@Value("${configuracion.calentamiento.maximo-productos:1000}")
+	private int maximoProductos;
+
+	@Value("${configuracion.calentamiento.tiempo-maximo:30s}")
+	private Duration tiempoMaximo;
+
+	// Cantidad de beans más lentos del arranque que se registran en el log
+	@Value("${configuracion.calentamiento.beans-lentos:10}")
+	private int beansLentos;
+
+	// MÉTODOS
+	@Override
+	public void run(ApplicationArguments args) {
+		try {
+			this.calentar();
+		} finally {
+			this.applicationInfoManager.ifAvailable(manager -> manager.setInstanceStatus(InstanceStatus.UP));
+		}
+	}
+
+	private void calentar() {
+		if (!this.habilitado) {
+			return;
+		}
+		long limite = System.nanoTime() + this.tiempoMaximo.toNanos();
+		Map<String, Long> duraciones = new LinkedHashMap<>();
+
+		this.paso("resilience4j", limite, duraciones, () -> {
+			this.circuitBreakerRegistry.circuitBreaker("items");
+			this.timeLimiterRegistry.timeLimiter("items");
+			this.circuitBreakerFactory.create("items");
+		});
+		this.paso("jackson", limite, duraciones, () -> {
+			Producto producto = new Producto();
+			producto.setId(0L);
+			producto.setNombre("calentamiento");
+			producto.setPrecio(0D);
+			byte[] json = this.objectMapper.writeValueAsBytes(new Item(producto, 1));
+			this.objectMapper.readValue(json, Item.class);
+		});
+		this.paso("balanceador", limite, duraciones, () -> this.loadBalancerClient.choose("servicio-productos"));
+		this.paso("productos", limite, duraciones, () -> this.precargar(limite));
+
+		this.registrarTiempos(duraciones);
+	}
+
+	private void precargar(long limite) throws IOException {
+		if (this.archivoProductos.isEmpty()) {
+			return;
+		}
+		List<SolicitudItem> solicitudes = Files.readAllLines(Paths.get(this.archivoProductos)).stream()
+				.map(String::trim)
+				.filter(linea -> !linea.isEmpty() && !linea.startsWith("#"))
+				.limit(this.maximoProductos)
+				.map(id -> new SolicitudItem(Long.valueOf(id), 1))
+				.collect(Collectors.toList());
+
+		for (int desde = 0; desde < solicitudes.size() && System.nanoTime() < limite; desde += PRODUCTOS_POR_LOTE) {
+			this.itemService.findAllById(solicitudes.subList(desde, Math.min(desde + PRODUCTOS_POR_LOTE, solicitudes.size())));
+		}
+	}
+
+	// Ejecuta un paso y lo registra también en el "ApplicationStartup", visible en "/actuator/startup"
+	private void paso(String nombre, long limite, Map<String, Long> duraciones, Paso paso) {
+		if (System.nanoTime() >= limite) {
+			logger.warn("Calentamiento: se omite el paso " + nombre + " por superar el tiempo máximo");
+			return;
+		}
+		StartupStep registro = this.contexto.getApplicationStartup().start("items.calentamiento." + nombre);
+		long inicio = System.nanoTime();
+		try {
+			paso.ejecutar();
+		} catch (Exception e) {
+			registro.tag("error", String.valueOf(e.getMessage()));
+			logger.warn("Calentamiento: falló el paso " + nombre + ": " + e.getMessage());
+		} finally {
+			registro.end();
+			duraciones.put(nombre, (System.nanoTime() - inicio) / 1_000_000);
+		}
+	}
+
+	private void registrarTiempos(Map<String, Long> duraciones) {
+		StringBuilder resumen = new StringBuilder("Calentamiento terminado (ms):");
+		duraciones.forEach((nombre, ms) -> resumen.append(' ').append(nombre).append('=').append(ms));
+		logger.info(resumen.toString());
+
+		if (!(this.contexto.getApplicationStartup() instanceof BufferingApplicationStartup)) {
+			return;
+		}
+		StartupTimeline timeline = ((BufferingApplicationStartup) this.contexto.getApplicationStartup()).getBufferedTimeline();
+		List<StartupTimeline.TimelineEvent> beans = new ArrayList<>();
+		for (StartupTimeline.TimelineEvent evento : timeline.getEvents()) {
+			if ("spring.beans.instantiate".equals(evento.getStartupStep().getName())) {
+				beans.add(evento);
+			}
+		}
+		beans.sort(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed());
+
+		StringBuilder lentos = new StringBuilder("Beans más lentos del arranque (ms, incluye sus dependencias):");
+		beans.stream().limit(this.beansLentos).forEach(evento -> {
+			String bean = "?";
+			for (StartupStep.Tag tag : evento.getStartupStep().getTags()) {
+				if ("beanName".equals(tag.getKey())) {
+					bean = tag.getValue();
+				}
+			}
+			lentos.append(System.lineSeparator()).append("  ").append(bean).append('=').append(evento.getDuration().toMillis());
+		});
+		logger.info(lentos.toString());
+	}
+
+	@FunctionalInterface
+	private interface Paso {
+		void ejecutar() throws Exception;
+	}
+
+}
@@ -0,0 +1,282 @@
+package com.formacionbdi.springboot.app.item;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+
+/*
+ * Configuración que cambia sin reiniciar la aplicación y sin "@RefreshScope".
+ *
+ * Con "@RefreshScope" cada "/actuator/refresh" destruye y vuelve a crear el bean, y cada llamada pasa por un proxy.
+ * Acá los valores se guardan en una instantánea inmutable ("Ajustes") que se reemplaza completa al recibir
+ * "EnvironmentChangeEvent" (lo publica "/actuator/refresh" y "/actuator/env"). Leerla es solo leer un campo volatile.
+ *
+ * Además de los valores de "configuracion.*", al cambiar se aplican:
+ * - Circuit breaker y time limiter "items": se reemplazan en los registros de Resilience4j, donde los buscan
+ *   la fábrica programática y las anotaciones. Se leen de "resilience4j.*.instances.items" o de su "base-config".
+ *   El circuit breaker nuevo empieza cerrado y sin historial.
+ * - Timeouts del cliente HTTP de "HttpClienteConfig": se aplican en cada petición.
+ *
+ * Si un valor nuevo no es válido se conserva la instantánea anterior completa.
+ * Los cambios aplicados se consultan en "/actuator/resiliencia" ("ResilienciaEndpoint").
+ */
+@Component
+public class ConfiguracionDinamica {
+
+	public static final String ITEMS = "items";
+
+	// Cambios que se conservan para la auditoría
+	private static final int MAXIMO_CAMBIOS = 100;
+
+	private final Logger logger = LoggerFactory.getLogger(ConfiguracionDinamica.class);
+
+	// ATRIBUTOS
+	@Autowired
+	private Environment env;
+
+	@Autowired
+	private CircuitBreakerRegistry circuitBreakerRegistry;
+
+	@Autowired
+	private TimeLimiterRegistry timeLimiterRegistry;
+
+	private volatile Ajustes actual;
+	private final Deque<Cambio> cambios = new ArrayDeque<>();
+
+	@PostConstruct
+	public void inicializar() {
+		this.actual = Ajustes.leer(Binder.get(this.env));
+	}
+
+	// MÉTODOS
+	public Ajustes actual() {
+		return this.actual;
+	}
+
+	public synchronized List<Cambio> getCambios() {
+		return new ArrayList<>(this.cambios);
+	}
+
+	@EventListener
+	public synchronized void entornoCambiado(EnvironmentChangeEvent evento) {
+		Ajustes anterior = this.actual;
+		Ajustes nuevo;
+		CircuitBreakerConfig circuito;
+		TimeLimiterConfig tiempoLimite;
+		try {
+			nuevo = Ajustes.leer(Binder.get(this.env));
+			circuito = nuevo.circuito(this.circuitBreakerRegistry.circuitBreaker(ITEMS).getCircuitBreakerConfig());
+			tiempoLimite = TimeLimiterConfig.from(this.timeLimiterRegistry.timeLimiter(ITEMS).getTimeLimiterConfig())
+					.timeoutDuration(nuevo.timeout)
+					.build();
+		} catch (RuntimeException e) {
+			logger.warn("Configuración no aplicada, se mantiene la anterior: " + e.getMessage());
+			return;
+		}
+
+		List<Cambio> diferencias = Cambio.entre(anterior, nuevo);
+		if (diferencias.isEmpty()) {
+			return;
+		}
+		if (!nuevo.mismoCircuito(anterior)) {
+			this.circuitBreakerRegistry.replace(ITEMS, CircuitBreaker.of(ITEMS, circuito));
+		}
+		if (!nuevo.timeout.equals(anterior.timeout)) {
+			this.timeLimiterRegistry.replace(ITEMS, TimeLimiter.of(ITEMS, tiempoLimite));
+		}
+		this.actual = nuevo;
+
+		for (Cambio cambio : diferencias) {
+			logger.info("Configuración actualizada - " + cambio.propiedad + ": " + cambio.anterior + " -> " + cambio.nuevo);
+			this.cambios.addFirst(cambio);
+			if (this.cambios.size() > MAXIMO_CAMBIOS) {
+				this.cambios.removeLast();
+			}
+		}
+	}
+
+	/*
+	 * Instantánea inmutable de los valores dinámicos. Los valores por defecto del circuit breaker y el time limiter
+	 * son los de Resilience4j, los mismos que usa al crear "items" si la propiedad no existe.
+	 */
+	public static final class Ajustes {
+		private final String texto;
+		private final int tamanoPagina;
+		private final int tamanoMaximoPagina;
+		private final int ventana;
+		private final float umbralFallos;
+		private final Duration esperaAbierto;
+		private final int llamadasSemiAbierto;
+		private final float umbralLentas;
+		private final Duration duracionLenta;
+		private final Duration timeout;
+		private final int timeoutConexion;
+		private final int timeoutLectura;
+		private final int timeoutPool;
+
+		private Ajustes(Binder binder) {
+			this.texto = binder.bind("configuracion.texto", String.class).orElse(null);
+			this.tamanoPagina = binder.bind("configuracion.listado.tamano-pagina", Integer.class).orElse(20);
+			this.tamanoMaximoPagina = binder.bind("configuracion.listado.tamano-maximo", Integer.class).orElse(200);
+			this.ventana = resiliencia(binder, "circuitbreaker", "sliding-window-size", Integer.class, 100);
+			this.umbralFallos = resiliencia(binder, "circuitbreaker", "failure-rate-threshold", Float.class, 50F);
+			this.esperaAbierto = resiliencia(binder, "circuitbreaker", "wait-duration-in-open-state", Duration.class, Duration.ofSeconds(60));
+			this.llamadasSemiAbierto = resiliencia(binder, "circuitbreaker", "permitted-number-of-calls-in-half-open-state", Integer.class, 10);
+			this.umbralLentas = resiliencia(binder, "circuitbreaker", "slow-call-rate-threshold", Float.class, 100F);
+			this.duracionLenta = resiliencia(binder, "circuitbreaker", "slow-call-duration-threshold", Duration.class, Duration.ofSeconds(60));
+			this.timeout = resiliencia(binder, "timelimiter", "timeout-duration", Duration.class, Duration.ofSeconds(1));
+			this.timeoutConexion = binder.bind("configuracion.http-cliente.timeout-conexion", Integer.class).orElse(1000);
+			this.timeoutLectura = binder.bind("configuracion.http-cliente.timeout-lectura", Integer.class).orElse(6000);
+			this.timeoutPool = binder.bind("configuracion.http-cliente.timeout-pool", Integer.class).orElse(500);
+		}
+
+		static Ajustes leer(Binder binder) {
+			return new Ajustes(binder);
+		}
+
+		// Propiedad de la instancia "items", sino de su "base-config", sino de la configuración "default"
+		private static <T> T resiliencia(Binder binder, String modulo, String propiedad, Class<T> tipo, T porDefecto) {
+			String prefijo = "resilience4j." + modulo + ".";
+			String base = binder.bind(prefijo + "instances." + ITEMS + ".base-config", String.class).orElse("default");
+			return binder.bind(prefijo + "instances." + ITEMS + "." + propiedad, tipo)
+					.orElseGet(() -> binder.bind(prefijo + "configs." + base + "." + propiedad, tipo).orElse(porDefecto));
+		}
+
+		// Conserva el resto de la configuración actual, como "ignore-exceptions"
+		private CircuitBreakerConfig circuito(CircuitBreakerConfig actual) {
+			return CircuitBreakerConfig.from(actual)
+					.slidingWindowSize(this.ventana)
+					.failureRateThreshold(this.umbralFallos)
+					.waitDurationInOpenState(this.esperaAbierto)
+					.permittedNumberOfCallsInHalfOpenState(this.llamadasSemiAbierto)
+					.slowCallRateThreshold(this.umbralLentas)
+					.slowCallDurationThreshold(this.duracionLenta)
+					.build();
+		}
+
+		private boolean mismoCircuito(Ajustes otros) {
+			return this.ventana == otros.ventana
+					&& this.umbralFallos == otros.umbralFallos
+					&& this.esperaAbierto.equals(otros.esperaAbierto)
+					&& this.llamadasSemiAbierto == otros.llamadasSemiAbierto
+					&& this.umbralLentas == otros.umbralLentas
+					&& this.duracionLenta.equals(otros.duracionLenta);
+		}
+
+		// Valores con el nombre con que se publican en "/actuator/resiliencia"
+		public Map<String, String> comoMapa() {
+			Map<String, String> mapa = new LinkedHashMap<>();
+			mapa.put("texto", this.texto);
+			mapa.put("listado.tamano-pagina", String.valueOf(this.tamanoPagina));
+			mapa.put("listado.tamano-maximo", String.valueOf(this.tamanoMaximoPagina));
+			mapa.put("items.sliding-window-size", String.valueOf(this.ventana));
+			mapa.put("items.failure-rate-threshold", String.valueOf(this.umbralFallos));
+			mapa.put("items.wait-duration-in-open-state", String.valueOf(this.esperaAbierto));
+			mapa.put("items.permitted-number-of-calls-in-half-open-state", String.valueOf(this.llamadasSemiAbierto));
+			mapa.put("items.slow-call-rate-threshold", String.valueOf(this.umbralLentas));
+			mapa.put("items.slow-call-duration-threshold", String.valueOf(this.duracionLenta));
+			mapa.put("items.timeout-duration", String.valueOf(this.timeout));
+			mapa.put("http-cliente.timeout-conexion", String.valueOf(this.timeoutConexion));
+			mapa.put("http-cliente.timeout-lectura", String.valueOf(this.timeoutLectura));
+			mapa.put("http-cliente.timeout-pool", String.valueOf(this.timeoutPool));
+			return mapa;
+		}
+
+		// GETTERS
+		public String getTexto() {
+			return texto;
+		}
+
+		public int getTamanoPagina() {
+			return tamanoPagina;
+		}
+
+		public int getTamanoMaximoPagina() {
+			return tamanoMaximoPagina;
+		}
+
+		public Duration getTimeout() {
+			return timeout;
+		}
+
+		public int getTimeoutConexion() {
+			return timeoutConexion;
+		}
+
+		public int getTimeoutLectura() {
+			return timeoutLectura;
+		}
+
+		public int getTimeoutPool() {
+			return timeoutPool;
+		}
+	}
+
+	// Registro de auditoría de un valor modificado
+	public static final class Cambio {
+		private final Instant fecha;
+		private final String propiedad;
+		private final String anterior;
+		private final String nuevo;
+
+		private Cambio(Instant fecha, String propiedad, String anterior, String nuevo) {
+			this.fecha = fecha;
+			this.propiedad = propiedad;
+			this.anterior = anterior;
+			this.nuevo = nuevo;
+		}
+
+		private static List<Cambio> entre(Ajustes anterior, Ajustes nuevo) {
+			Instant ahora = Instant.now();
+			Map<String, String> valoresAnteriores = anterior.comoMapa();
+			List<Cambio> diferencias = new ArrayList<>();
+			nuevo.comoMapa().forEach((propiedad, valor) -> {
+				if (!Objects.equals(valor, valoresAnteriores.get(propiedad))) {
+					diferencias.add(new Cambio(ahora, propiedad, valoresAnteriores.get(propiedad), valor));
+				}
+			});
+			return diferencias;
+		}
+
+		public String getFecha() {
+			return fecha.toString();
+		}
+
+		public String getPropiedad() {
+			return propiedad;
+		}
+
+		public String getAnterior() {
+			return anterior;
+		}
+
+		public String getNuevo() {
+			return nuevo;
+		}
+	}
+
+}
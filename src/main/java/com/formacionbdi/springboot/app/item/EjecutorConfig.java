@@ -0,0 +1,98 @@
+package com.formacionbdi.springboot.app.item;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/*
+ * Pool de hilos dedicado a las llamadas bloqueantes hacia el "servicio-productos".
+ * Reemplaza al "ForkJoinPool.commonPool()" que usaba "CompletableFuture.supplyAsync()" sin ejecutor,
+ * el cual tiene tantos hilos como núcleos y lo comparte toda la JVM.
+ *
+ * Las tareas de "itemsIoExecutor" no deben esperar a otras tareas enviadas al mismo pool: con todos los hilos del núcleo
+ * esperando, esas tareas quedan en la cola (los hilos extra solo se crean con la cola llena) y nunca se ejecutan.
+ * Por eso las subtareas que se esperan desde una petición (lotes, peticiones de cobertura) usan "itemsSubtareasExecutor".
+ */
+@Configuration
+public class EjecutorConfig {
+
+	/*
+	 * La cola es acotada, al llenarse se crean hilos hasta "maximo" y luego se aplica la política de rechazo:
+	 * - abortar: lanza "RejectedExecutionException", el circuit breaker responde con el método alternativo.
+	 * - llamador: ejecuta la tarea en el hilo que la envió (el hilo de Tomcat).
+	 *
+	 * Las métricas se publican en actuator como "executor.*" con el tag "name=items-io",
+	 * además de "executor.rechazadas" con las tareas rechazadas.
+	 *
+	 * Con "configuracion.hilos-virtuales.habilitado" el bean lo crea "HilosVirtualesConfig".
+	 */
+	@Bean(name = "itemsIoExecutor", destroyMethod = "shutdown")
+	@ConditionalOnProperty(name = "configuracion.hilos-virtuales.habilitado", havingValue = "false", matchIfMissing = true)
+	public ThreadPoolExecutor itemsIoExecutor(
+			@Value("${configuracion.ejecutor-io.nucleo:16}") int nucleo,
+			@Value("${configuracion.ejecutor-io.maximo:64}") int maximo,
+			@Value("${configuracion.ejecutor-io.cola:200}") int cola,
+			@Value("${configuracion.ejecutor-io.tiempo-inactivo:60s}") Duration tiempoInactivo,
+			@Value("${configuracion.ejecutor-io.rechazo:abortar}") String rechazo,
+			MeterRegistry meterRegistry) {
+
+		RejectedExecutionHandler politica = "llamador".equals(rechazo)
+				? new ThreadPoolExecutor.CallerRunsPolicy()
+				: new ThreadPoolExecutor.AbortPolicy();
+		return crearPool("items-io", nucleo, maximo, cola, tiempoInactivo, politica, meterRegistry);
+	}
+
+	/*
+	 * Pool de las subtareas que una petición (o una tarea de "itemsIoExecutor") espera: el envío de los lotes de "MicroBatcher"
+	 * y las peticiones de "ItemServiceHedged". Estas tareas no esperan a otras, por lo que el pool no se puede trabar.
+	 * Al rechazar una tarea la petición que la espera falla de inmediato, no se ejecuta en el hilo que la envió
+	 * porque puede ser el planificador de los lotes. Métricas con el tag "name=items-subtareas".
+	 */
+	@Bean(name = "itemsSubtareasExecutor", destroyMethod = "shutdown")
+	@ConditionalOnProperty(name = "configuracion.hilos-virtuales.habilitado", havingValue = "false", matchIfMissing = true)
+	public ThreadPoolExecutor itemsSubtareasExecutor(
+			@Value("${configuracion.ejecutor-subtareas.nucleo:8}") int nucleo,
+			@Value("${configuracion.ejecutor-subtareas.maximo:64}") int maximo,
+			@Value("${configuracion.ejecutor-subtareas.cola:200}") int cola,
+			@Value("${configuracion.ejecutor-subtareas.tiempo-inactivo:60s}") Duration tiempoInactivo,
+			MeterRegistry meterRegistry) {
+
+		return crearPool("items-subtareas", nucleo, maximo, cola, tiempoInactivo, new ThreadPoolExecutor.AbortPolicy(), meterRegistry);
+	}
+
+	static ThreadPoolExecutor crearPool(String nombre, int nucleo, int maximo, int cola, Duration tiempoInactivo,
+			RejectedExecutionHandler politica, MeterRegistry meterRegistry) {
+
+		Counter rechazadas = Counter.builder("executor.rechazadas")
+				.tag("name", nombre)
+				.description("Tareas rechazadas por el pool de hilos")
+				.register(meterRegistry);
+
+		AtomicInteger contador = new AtomicInteger();
+		ThreadPoolExecutor ejecutor = new ThreadPoolExecutor(nucleo, maximo,
+				tiempoInactivo.toMillis(), TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(cola),
+				tarea -> new Thread(tarea, nombre + "-" + contador.incrementAndGet()),
+				(tarea, pool) -> {
+					rechazadas.increment();
+					politica.rejectedExecution(tarea, pool);
+				});
+
+		new ExecutorServiceMetrics(ejecutor, nombre, Tags.empty()).bindTo(meterRegistry);
+		return ejecutor;
+	}
+
+}
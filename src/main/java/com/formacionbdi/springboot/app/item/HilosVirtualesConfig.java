@@ -0,0 +1,113 @@
+package com.formacionbdi.springboot.app.item;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/*
+ * Modo de ejecución con hilos virtuales (Java 21 o superior), se habilita con "configuracion.hilos-virtuales.habilitado".
+ * Para compilar contra Java 21 se usa el perfil "java21" del pom.xml, aunque el mismo jar compilado con Java 11
+ * también funciona al ejecutarse sobre Java 21, ya que los hilos virtuales se obtienen por reflexión.
+ *
+ * Con el modo habilitado corren en un hilo virtual por tarea:
+ * - Las peticiones de Tomcat, en lugar del pool "server.tomcat.threads.max".
+ * - Los pools "itemsIoExecutor" (usado por "detalle3()" y el circuit breaker programático) e "itemsSubtareasExecutor"
+ *   (hedging y lotes). Los beans de "EjecutorConfig" no se crean.
+ * - Las respuestas asíncronas de Spring MVC (StreamingResponseBody, Callable).
+ * Los clientes HTTP (Feign y RestTemplate) son bloqueantes y se ejecutan en el hilo que los llama, por lo que también quedan en hilos virtuales.
+ *
+ * Los límites dejan de ser la cantidad de hilos y pasan a ser:
+ * - "server.tomcat.max-connections": conexiones simultáneas aceptadas por Tomcat.
+ * - "configuracion.http-cliente.maximo-conexiones" y "timeout-pool": conexiones al servicio-productos.
+ * - "configuracion.limitador": peticiones simultáneas al servicio-productos.
+ *
+ * El TimeLimiter de Resilience4j sigue funcionando igual: al vencer el tiempo cancela el "Future" con "cancel(true)",
+ * la interrupción de un hilo virtual bloqueado leyendo un socket cierra el socket y termina la llamada.
+ */
+@Configuration
+@ConditionalOnProperty(name = "configuracion.hilos-virtuales.habilitado", havingValue = "true")
+public class HilosVirtualesConfig {
+
+	/*
+	 * Reemplaza al "ThreadPoolExecutor" de "EjecutorConfig". No hay cola ni rechazo, cada tarea crea su hilo virtual.
+	 * Al no tener pool, en lugar de los gauges "executor.pool.*" se publican los timers "executor" y "executor.idle"
+	 * con el tag "name=items-io".
+	 */
+	@Bean(name = "itemsIoExecutor", destroyMethod = "shutdown")
+	public ExecutorService itemsIoExecutor(MeterRegistry meterRegistry) {
+		return ExecutorServiceMetrics.monitor(meterRegistry, crearEjecutor("items-io-"), "items-io", Tags.empty());
+	}
+
+	@Bean(name = "itemsSubtareasExecutor", destroyMethod = "shutdown")
+	public ExecutorService itemsSubtareasExecutor(MeterRegistry meterRegistry) {
+		return ExecutorServiceMetrics.monitor(meterRegistry, crearEjecutor("items-subtareas-"), "items-subtareas", Tags.empty());
+	}
+
+	@Bean(name = "ejecutorMvc", destroyMethod = "shutdown")
+	public ExecutorService ejecutorMvc() {
+		return crearEjecutor("items-mvc-");
+	}
+
+	/*
+	 * Spring MVC usa el bean "applicationTaskExecutor" para las respuestas asíncronas,
+	 * sin él usaría un "SimpleAsyncTaskExecutor" que crea un hilo de plataforma por respuesta.
+	 */
+	@Bean(name = "applicationTaskExecutor")
+	public AsyncTaskExecutor applicationTaskExecutor(@Qualifier("ejecutorMvc") ExecutorService ejecutorMvc) {
+		return new TaskExecutorAdapter(ejecutorMvc);
+	}
+
+	/*
+	 * Tomcat no administra el ciclo de vida de un ejecutor externo, se cierra junto con el contexto de Spring.
+	 */
+	@Bean(name = "ejecutorTomcat", destroyMethod = "shutdown")
+	public ExecutorService ejecutorTomcat() {
+		return crearEjecutor("items-http-");
+	}
+
+	@Bean
+	public TomcatProtocolHandlerCustomizer<?> hilosVirtualesTomcatCustomizer(@Qualifier("ejecutorTomcat") ExecutorService ejecutorTomcat) {
+		return protocolo -> protocolo.setExecutor(ejecutorTomcat);
+	}
+
+	/*
+	 * Equivalente a:
+	 * Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefijo, 1).factory())
+	 */
+	static ExecutorService crearEjecutor(String prefijo) {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			Class<?> constructor = Class.forName("java.lang.Thread$Builder");
+			Class<?> constructorVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+
+			Object virtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(constructorVirtual)).invoke();
+			MethodHandle nombre = lookup.findVirtual(constructor, "name", MethodType.methodType(constructor, String.class, long.class));
+			MethodHandle fabrica = lookup.findVirtual(constructor, "factory", MethodType.methodType(ThreadFactory.class));
+			MethodHandle porTarea = lookup.findStatic(Executors.class, "newThreadPerTaskExecutor",
+					MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+
+			return (ExecutorService) porTarea.invoke((ThreadFactory) fabrica.invoke(nombre.invoke(virtual, prefijo, 1L)));
+		} catch (ClassNotFoundException | NoSuchMethodException e) {
+			throw new IllegalStateException("configuracion.hilos-virtuales.habilitado requiere Java 21 o superior, versión actual: "
+					+ Runtime.version(), e);
+		} catch (Throwable e) {
+			throw new IllegalStateException("No se pudo crear el ejecutor de hilos virtuales " + prefijo, e);
+		}
+	}
+
+}
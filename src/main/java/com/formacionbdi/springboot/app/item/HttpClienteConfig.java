@@ -0,0 +1,163 @@
+package com.formacionbdi.springboot.app.item;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+
+import com.formacionbdi.springboot.app.item.clientes.ClaveIdempotencia;
+import com.formacionbdi.springboot.app.item.clientes.EstadisticasInstancias;
+import com.formacionbdi.springboot.app.item.clientes.FormatoCable;
+import com.formacionbdi.springboot.app.item.clientes.HttpRequestExecutorMedido;
+import com.formacionbdi.springboot.app.item.clientes.InterruptoresProductos;
+import com.formacionbdi.springboot.app.item.clientes.RespuestasCondicionales;
+
+import feign.RequestInterceptor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+
+/*
+ * Cliente HTTP con pool de conexiones para las llamadas al "servicio-productos".
+ * Lo comparten el RestTemplate "clienteRestTemplate" y los clientes Feign, así las conexiones TCP
+ * se reutilizan (keep-alive) en lugar de abrir una nueva en cada request.
+ *
+ * Al existir un bean "CloseableHttpClient", Spring Cloud OpenFeign no crea el suyo y usa este.
+ *
+ * Cada petición se mide con "HttpRequestExecutorMedido". Para distinguir el tipo de cliente,
+ * Feign y el RestTemplate agregan el header "X-Cliente-Http".
+ *
+ * HttpClients.custom() deja habilitada la compresión: envía "Accept-Encoding: gzip,deflate"
+ * y descomprime las respuestas de forma transparente para Feign y el RestTemplate.
+ */
+@Configuration
+public class HttpClienteConfig {
+
+	/*
+	 * maximo-conexiones: total de conexiones abiertas del pool.
+	 * maximo-conexiones-por-ruta: conexiones hacia una misma instancia (host:puerto).
+	 * tiempo-vida: las conexiones se descartan pasado este tiempo, aunque sigan en uso, para repartirse entre instancias nuevas.
+	 *
+	 * Las métricas del pool (leased, available, pending) se publican en actuator como "httpcomponents.httpclient.pool.*"
+	 */
+	@Bean(destroyMethod = "close")
+	public PoolingHttpClientConnectionManager productosConnectionManager(
+			@Value("${configuracion.http-cliente.maximo-conexiones:200}") int maximoConexiones,
+			@Value("${configuracion.http-cliente.maximo-conexiones-por-ruta:50}") int maximoConexionesPorRuta,
+			@Value("${configuracion.http-cliente.tiempo-vida:300000}") long tiempoVida,
+			MeterRegistry meterRegistry) {
+
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(tiempoVida, TimeUnit.MILLISECONDS);
+		connectionManager.setMaxTotal(maximoConexiones);
+		connectionManager.setDefaultMaxPerRoute(maximoConexionesPorRuta);
+		// Valida las conexiones que estuvieron inactivas antes de reutilizarlas
+		connectionManager.setValidateAfterInactivity(2000);
+
+		new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "servicio-productos").bindTo(meterRegistry);
+		return connectionManager;
+	}
+
+	/*
+	 * timeout-conexion: espera máxima para establecer la conexión TCP.
+	 * timeout-lectura: espera máxima entre paquetes de la respuesta.
+	 * timeout-pool: espera máxima para obtener una conexión libre del pool.
+	 * inactividad: las conexiones sin uso durante este tiempo se cierran en segundo plano.
+	 * keep-alive: tiempo máximo de reutilización cuando el servidor no envía el header "Keep-Alive".
+	 *
+	 * Los tres timeouts se vuelven a leer en cada petición desde "ConfiguracionDinamica", así cambian con "/actuator/refresh"
+	 * sin recrear el cliente. También reemplazan a los de Feign ("feign.client.config.default"), que usan las mismas propiedades.
+	 */
+	@Bean(destroyMethod = "close")
+	public CloseableHttpClient productosHttpClient(PoolingHttpClientConnectionManager productosConnectionManager,
+			@Value("${configuracion.http-cliente.timeout-conexion:1000}") int timeoutConexion,
+			@Value("${configuracion.http-cliente.timeout-lectura:6000}") int timeoutLectura,
+			@Value("${configuracion.http-cliente.timeout-pool:500}") int timeoutPool,
+			@Value("${configuracion.http-cliente.inactividad:30000}") long inactividad,
+			@Value("${configuracion.http-cliente.keep-alive:60000}") long keepAlive,
+			MeterRegistry meterRegistry,
+			InterruptoresProductos interruptores,
+			EstadisticasInstancias estadisticas,
+			RespuestasCondicionales condicionales,
+			ConfiguracionDinamica configuracionDinamica) {
+
+		RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectTimeout(timeoutConexion)
+				.setSocketTimeout(timeoutLectura)
+				.setConnectionRequestTimeout(timeoutPool)
+				.build();
+
+		ConnectionKeepAliveStrategy keepAliveStrategy = (respuesta, contexto) -> {
+			long indicadoPorServidor = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(respuesta, contexto);
+			return indicadoPorServidor > 0 ? Math.min(indicadoPorServidor, keepAlive) : keepAlive;
+		};
+
+		// Se ejecuta antes de obtener la conexión del pool, que es donde se leen los timeouts del contexto
+		HttpRequestInterceptor timeoutsDinamicos = (peticion, contexto) -> {
+			HttpClientContext clienteContexto = HttpClientContext.adapt(contexto);
+			clienteContexto.setRequestConfig(timeouts(clienteContexto.getRequestConfig(), configuracionDinamica.actual()));
+		};
+
+		return HttpClients.custom()
+				.setConnectionManager(productosConnectionManager)
+				.setDefaultRequestConfig(requestConfig)
+				.addInterceptorLast(timeoutsDinamicos)
+				.setKeepAliveStrategy(keepAliveStrategy)
+				.setRequestExecutor(new HttpRequestExecutorMedido(meterRegistry, interruptores, estadisticas, condicionales))
+				.evictExpiredConnections()
+				.evictIdleConnections(inactividad, TimeUnit.MILLISECONDS)
+				.disableCookieManagement()
+				.build();
+	}
+
+	// Solo crea un "RequestConfig" nuevo si algún timeout es distinto
+	private static RequestConfig timeouts(RequestConfig actual, ConfiguracionDinamica.Ajustes ajustes) {
+		if (actual.getConnectTimeout() == ajustes.getTimeoutConexion()
+				&& actual.getSocketTimeout() == ajustes.getTimeoutLectura()
+				&& actual.getConnectionRequestTimeout() == ajustes.getTimeoutPool()) {
+			return actual;
+		}
+		return RequestConfig.copy(actual)
+				.setConnectTimeout(ajustes.getTimeoutConexion())
+				.setSocketTimeout(ajustes.getTimeoutLectura())
+				.setConnectionRequestTimeout(ajustes.getTimeoutPool())
+				.build();
+	}
+
+	// Se aplica a todos los clientes Feign del proyecto, como "ProductoClienteRest"
+	@Bean
+	public RequestInterceptor clienteHttpFeignInterceptor() {
+		return plantilla -> plantilla.header(HttpRequestExecutorMedido.HEADER_CLIENTE, "feign");
+	}
+
+	// Envía la clave de idempotencia de las escrituras diferidas, ver "EscrituraDiferidaService"
+	@Bean
+	public RequestInterceptor idempotenciaFeignInterceptor() {
+		return plantilla -> {
+			String clave = ClaveIdempotencia.actual();
+			if (clave != null) {
+				plantilla.header(ClaveIdempotencia.HEADER, clave);
+			}
+		};
+	}
+
+	// Pide las respuestas en el formato configurado, salvo que el método Feign indique su propio "Accept"
+	@Bean
+	public RequestInterceptor formatoFeignInterceptor(@Value("${configuracion.http-cliente.formato:json}") FormatoCable formato) {
+		return plantilla -> {
+			if (!plantilla.headers().containsKey(HttpHeaders.ACCEPT)) {
+				plantilla.header(HttpHeaders.ACCEPT, formato.getAccept());
+			}
+		};
+	}
+
+}
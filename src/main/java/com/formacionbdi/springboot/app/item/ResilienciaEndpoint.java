@@ -0,0 +1,31 @@
+package com.formacionbdi.springboot.app.item;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/*
+ * Endpoint de actuator "/actuator/resiliencia".
+ * Muestra los valores vigentes de "ConfiguracionDinamica" y los últimos cambios aplicados, el más reciente primero.
+ * Se expone junto a los demás endpoints con "management.endpoints.web.exposure.include" del "bootstrap.properties".
+ */
+@Component
+@Endpoint(id = "resiliencia")
+public class ResilienciaEndpoint {
+
+	@Autowired
+	private ConfiguracionDinamica configuracionDinamica;
+
+	@ReadOperation
+	public Map<String, Object> resiliencia() {
+		Map<String, Object> json = new LinkedHashMap<>();
+		json.put("actual", this.configuracionDinamica.actual().comoMapa());
+		json.put("cambios", this.configuracionDinamica.getCambios());
+		return json;
+	}
+
+}
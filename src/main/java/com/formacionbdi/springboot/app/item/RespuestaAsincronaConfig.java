@@ -0,0 +1,34 @@
+package com.formacionbdi.springboot.app.item;
+
+import java.lang.reflect.Method;
+
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.servlet.mvc.condition.RequestCondition;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import com.formacionbdi.springboot.app.item.controllers.CondicionRespuestaAsincrona;
+import com.formacionbdi.springboot.app.item.controllers.RespuestaAsincrona;
+
+/*
+ * Registra la condición de "@RespuestaAsincrona" en el "RequestMappingHandlerMapping" que crea Spring Boot.
+ * Entre dos métodos con la misma ruta, Spring MVC prefiere el que tiene una condición propia,
+ * así "EscrituraDiferidaController" atiende las peticiones con "Prefer: respond-async" y "ItemController" las demás.
+ */
+@Configuration
+public class RespuestaAsincronaConfig implements WebMvcRegistrations {
+
+	@Override
+	public RequestMappingHandlerMapping getRequestMappingHandlerMapping() {
+		return new RequestMappingHandlerMapping() {
+			@Override
+			protected RequestCondition<?> getCustomMethodCondition(Method metodo) {
+				return AnnotatedElementUtils.hasAnnotation(metodo, RespuestaAsincrona.class)
+						? CondicionRespuestaAsincrona.instancia()
+						: null;
+			}
+		};
+	}
+
+}
@@ -1,15 +1,28 @@
 package com.formacionbdi.springboot.app.item;
 
 import java.time.Duration;
+import java.util.concurrent.ExecutorService;
 
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JCircuitBreakerFactory;
 import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JConfigBuilder;
 import org.springframework.cloud.client.circuitbreaker.Customizer;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.cloud.client.loadbalancer.reactive.LoadBalancedExchangeFilterFunction;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
 
+import com.formacionbdi.springboot.app.item.clientes.FormatoCable;
+import com.formacionbdi.springboot.app.item.clientes.HttpRequestExecutorMedido;
+import com.formacionbdi.springboot.app.item.models.service.LimiteConcurrenciaException;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
 import io.github.resilience4j.timelimiter.TimeLimiterConfig;
 
@@ -17,8 +30,12 @@ import io.github.resilience4j.timelimiter.TimeLimiterConfig;
  * Configuraremos el RestTemplate que es un "web client".
  * Además lo registraremos como un componente de Spring.
  * Y así poder inyectarlo en la clase de servicio "ItemServiceImpl".
+ * 
+ * @LoadBalancerClient
+ * Aplica la configuración "BalanceadorProductosConfig" al balanceo de carga hacia el "servicio-productos".
  */
 @Configuration
+@LoadBalancerClient(name = "servicio-productos", configuration = BalanceadorProductosConfig.class)
 public class RestTemplateConfig {
     /*
      * Una clase anotada con @Configuration permite crear objetos y registrarlos en el contenedor de Spring
@@ -32,13 +49,42 @@ public class RestTemplateConfig {
      * @LoadBalanced
      * Permite utilizar Ribbon para el balanceo de carga, para evitar el indicar los IPs y puertos de los endpoints a utilizar.
      * Y con RestTemplate por debajo utilizando el balanceador buscando la mejor instancia disponible.
+     * 
+     * HttpComponentsClientHttpRequestFactory
+     * Usa el cliente HTTP con pool de conexiones de la clase "HttpClienteConfig", el mismo que usan los clientes Feign.
+     * El interceptor agrega el header con el que "HttpRequestExecutorMedido" identifica al cliente en las métricas,
+     * y da prioridad al formato de "configuracion.http-cliente.formato" en el header "Accept".
      */
     @Bean("clienteRestTemplate")
     @LoadBalanced
-    RestTemplate registarRestTemplate() {
-		return new RestTemplate();
+    RestTemplate registarRestTemplate(CloseableHttpClient productosHttpClient,
+    		@Value("${configuracion.http-cliente.formato:json}") FormatoCable formato) {
+    	RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(productosHttpClient));
+    	restTemplate.getInterceptors().add((peticion, cuerpo, ejecucion) -> {
+    		peticion.getHeaders().set(HttpRequestExecutorMedido.HEADER_CLIENTE, "resttemplate");
+    		formato.preferir(peticion.getHeaders());
+    		return ejecucion.execute(peticion, cuerpo);
+    	});
+		return restTemplate;
 	}
     
+    /*
+     * WebClient
+     * Es el "web client" reactivo (no bloqueante) de Spring WebFlux.
+     * Será inyectado en la clase de servicio "ItemReactiveServiceImpl".
+     * 
+     * Se parte del "WebClient.Builder" de Spring Boot, que ya trae los codecs con el ObjectMapper de la aplicación
+     * y las métricas "http.client.requests". No se registra un builder propio con @LoadBalanced, ya que reemplazaría al de Boot.
+     * El filtro del balanceador resuelve "servicio-productos" igual que @LoadBalanced en el RestTemplate.
+     */
+    @Bean("clienteWebClient")
+    WebClient registrarWebClient(WebClient.Builder webClientBuilder, LoadBalancedExchangeFilterFunction balanceador) {
+    	return webClientBuilder.clone()
+    			.baseUrl("http://servicio-productos")
+    			.filter(balanceador)
+    			.build();
+    }
+    
     // Método para configurar los valores por defecto de cada "circuit breaker" implementado en el proyecto.
     @Bean
     public Customizer<Resilience4JCircuitBreakerFactory> defaulCustomizer() {
@@ -68,6 +114,8 @@ public class RestTemplateConfig {
     						.permittedNumberOfCallsInHalfOpenState(5) // cantidad de llamdas en el estado "semi-abierto"
     						.slowCallRateThreshold(50) // Umbral de fallo, pero para llamadas lentas, por defecto es 100, referente al 100%
     						.slowCallDurationThreshold(Duration.ofSeconds(2L)) // Tiempo maximo de espera para llamadas lentas, por cada request
+    						// Un circuito de "InterruptoresProductos" abierto o un rechazo de "ItemServiceLimitado" no cuentan como falla de este circuito
+    						.ignoreExceptions(CallNotPermittedException.class, LimiteConcurrenciaException.class)
     						.build()
     						)
     				//.timeLimiterConfig(TimeLimiterConfig.ofDefaults()) // Timeout/tiempoLimite, aunque de momento lo dejaremos con las configuraciones por defecto
@@ -83,5 +131,14 @@ public class RestTemplateConfig {
     				.build();
     	});
     }
+    
+    /*
+     * El circuit breaker programático ejecuta la llamada en un pool de hilos para poder aplicar el "TimeOut".
+     * Le indicamos el pool "itemsIoExecutor" de la clase "EjecutorConfig" en lugar del pool por defecto.
+     */
+    @Bean
+    public Customizer<Resilience4JCircuitBreakerFactory> ejecutorCustomizer(@Qualifier("itemsIoExecutor") ExecutorService itemsIoExecutor) {
+    	return factory -> factory.configureExecutorService(itemsIoExecutor);
+    }
 
 }
@@ -4,8 +4,10 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.cloud.netflix.eureka.EnableEurekaClient;
 import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /*
  * @EnableEurekaClient
@@ -24,10 +26,14 @@ import org.springframework.cloud.openfeign.EnableFeignClients;
  * Para versiones mayores a 2.4.*
  * Utilizará "Spring Load Balancer", el cual ya tiene incluido a Ribbon dentro de Eureka.
  * Y utilizará "Resilience4j" en reemplazo de "Hystrix".
+ * 
+ * @EnableScheduling
+ * Habilita los métodos anotados con @Scheduled, como la sincronización de "CatalogoReplica".
  */
 
 @EnableEurekaClient
 @EnableFeignClients
+@EnableScheduling
 @SpringBootApplication
 /*
  * Anotación necesaria para el H2 de la clase "Producto" del servicio "commons".
@@ -36,8 +42,15 @@ import org.springframework.cloud.openfeign.EnableFeignClients;
 @EnableAutoConfiguration(exclude = {DataSourceAutoConfiguration.class})
 public class SpringbootServicioItemApplication {
 
+	/*
+	 * BufferingApplicationStartup
+	 * Guarda la duración de cada etapa del arranque (creación de beans, configuración, etc.).
+	 * Se consulta en "/actuator/startup" y "CalentamientoRunner" registra en el log los beans más lentos.
+	 */
 	public static void main(String[] args) {
-		SpringApplication.run(SpringbootServicioItemApplication.class, args);
+		SpringApplication aplicacion = new SpringApplication(SpringbootServicioItemApplication.class);
+		aplicacion.setApplicationStartup(new BufferingApplicationStartup(4096));
+		aplicacion.run(args);
 	}
 
 }
@@ -0,0 +1,95 @@
+package com.formacionbdi.springboot.app.item.clientes;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+import com.formacionbdi.springboot.app.item.clientes.EstadisticasInstancias.Estadistica;
+
+import reactor.core.publisher.Mono;
+
+/*
+ * Balanceador de carga del "servicio-productos" que reemplaza al round-robin de Spring Cloud LoadBalancer.
+ * Usa "dos opciones al azar" (power of two choices): toma dos instancias al azar y elige la de menor puntaje,
+ * donde el puntaje es la latencia EWMA por las peticiones en curso ("EstadisticasInstancias").
+ *
+ * Con round-robin una instancia lenta recibe su parte del tráfico hasta que se abre su circuit breaker.
+ * Comparar solo dos instancias, en lugar de elegir siempre la mejor, evita que todas las réplicas del microservicio items
+ * envíen el tráfico a la misma instancia a la vez.
+ *
+ * Durante su calentamiento una instancia ganadora solo se acepta con la probabilidad de su "peso", sino se usa la otra.
+ */
+public class BalanceadorLatencia implements ReactorServiceInstanceLoadBalancer {
+
+	private final ObjectProvider<ServiceInstanceListSupplier> instancias;
+	private final EstadisticasInstancias estadisticas;
+	// Generador del hilo actual, las pruebas usan uno con semilla fija para que el resultado sea reproducible
+	private final Supplier<Random> aleatorio;
+
+	public BalanceadorLatencia(ObjectProvider<ServiceInstanceListSupplier> instancias, EstadisticasInstancias estadisticas) {
+		this(instancias, estadisticas, ThreadLocalRandom::current);
+	}
+
+	BalanceadorLatencia(ObjectProvider<ServiceInstanceListSupplier> instancias, EstadisticasInstancias estadisticas,
+			Supplier<Random> aleatorio) {
+		this.instancias = instancias;
+		this.estadisticas = estadisticas;
+		this.aleatorio = aleatorio;
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public Mono<Response<ServiceInstance>> choose(Request request) {
+		ServiceInstanceListSupplier proveedor = this.instancias.getIfAvailable(NoopServiceInstanceListSupplier::new);
+		return proveedor.get(request).next().map(lista -> {
+			Response<ServiceInstance> respuesta = this.elegir(lista);
+			if (proveedor instanceof SelectedInstanceCallback && respuesta.hasServer()) {
+				((SelectedInstanceCallback) proveedor).selectedServiceInstance(respuesta.getServer());
+			}
+			return respuesta;
+		});
+	}
+
+	Response<ServiceInstance> elegir(List<ServiceInstance> lista) {
+		if (lista.isEmpty()) {
+			return new EmptyResponse();
+		}
+		if (lista.size() == 1) {
+			return new DefaultResponse(lista.get(0));
+		}
+
+		Random aleatorio = this.aleatorio.get();
+		int primera = aleatorio.nextInt(lista.size());
+		int segunda = aleatorio.nextInt(lista.size() - 1);
+		if (segunda >= primera) {
+			segunda++;
+		}
+
+		ServiceInstance a = lista.get(primera);
+		ServiceInstance b = lista.get(segunda);
+		Estadistica estadisticaA = this.estadisticas.de(a);
+		Estadistica estadisticaB = this.estadisticas.de(b);
+		long ahora = this.estadisticas.reloj.getAsLong();
+
+		boolean ganaA = estadisticaA.puntaje(ahora) <= estadisticaB.puntaje(ahora);
+		ServiceInstance elegida = ganaA ? a : b;
+		double peso = (ganaA ? estadisticaA : estadisticaB).peso(ahora);
+		if (peso < 1 && aleatorio.nextDouble() >= peso) {
+			elegida = ganaA ? b : a;
+		}
+		return new DefaultResponse(elegida);
+	}
+
+}
@@ -0,0 +1,41 @@
+package com.formacionbdi.springboot.app.item.clientes;
+
+import java.util.function.Supplier;
+
+/*
+ * Clave de idempotencia de la escritura que se está ejecutando en el hilo actual.
+ * El interceptor Feign "idempotenciaFeignInterceptor" la envía en el header "Idempotency-Key",
+ * así el servicio-productos puede descartar un reintento de una escritura que ya aplicó.
+ *
+ * Se usa un ThreadLocal porque la escritura pasa por toda la cadena de "ItemService" (cache, réplica, límite)
+ * en el mismo hilo hasta llegar al cliente Feign.
+ */
+public final class ClaveIdempotencia {
+
+	public static final String HEADER = "Idempotency-Key";
+
+	private static final ThreadLocal<String> ACTUAL = new ThreadLocal<>();
+
+	private ClaveIdempotencia() {
+
+	}
+
+	public static <T> T ejecutar(String clave, Supplier<T> escritura) {
+		String anterior = ACTUAL.get();
+		ACTUAL.set(clave);
+		try {
+			return escritura.get();
+		} finally {
+			if (anterior == null) {
+				ACTUAL.remove();
+			} else {
+				ACTUAL.set(anterior);
+			}
+		}
+	}
+
+	public static String actual() {
+		return ACTUAL.get();
+	}
+
+}
@@ -0,0 +1,203 @@
+package com.formacionbdi.springboot.app.item.clientes;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.netflix.eureka.EurekaServiceInstance;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.netflix.appinfo.LeaseInfo;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Latencia y peticiones en curso de cada instancia (host:puerto) del "servicio-productos", usadas por "BalanceadorLatencia".
+ * Las registra "HttpRequestExecutorMedido" en cada petición que sale por el cliente HTTP compartido (Feign y RestTemplate).
+ *
+ * La latencia es un promedio móvil exponencial (EWMA) sensible a picos:
+ * - Una muestra mayor al promedio lo reemplaza, así una instancia que se vuelve lenta se evita de inmediato.
+ * - Una muestra menor pesa según el tiempo desde la anterior, con "ventana" como constante de tiempo.
+ * - Sin muestras durante un tiempo el promedio vuelve hacia "latencia-inicial", así una instancia lenta vuelve a recibir
+ *   alguna petición y se detecta cuando se recupera.
+ * - Una instancia sin muestras tiene latencia 0 mientras no tenga peticiones en curso, así recibe una petición de prueba,
+ *   y "latencia-inicial" hasta que esa petición responde.
+ * Las respuestas 5xx y los errores de conexión cuentan como mínimo "penalizacion-fallo", ya que una instancia
+ * que falla rápido no debe parecer la más rápida.
+ *
+ * Las instancias que no se usan durante "inactividad" se eliminan junto con sus métricas.
+ * Métricas con el tag "instancia": "items.balanceador.latencia" (ms), "items.balanceador.pendientes" y "items.balanceador.puntaje".
+ */
+@Component
+public class EstadisticasInstancias {
+
+	// ATRIBUTOS
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${configuracion.balanceador.ventana:10s}")
+	private Duration ventana;
+
+	@Value("${configuracion.balanceador.latencia-inicial:100ms}")
+	private Duration latenciaInicial;
+
+	@Value("${configuracion.balanceador.penalizacion-fallo:1s}")
+	private Duration penalizacionFallo;
+
+	@Value("${configuracion.balanceador.calentamiento:30s}")
+	private Duration calentamiento;
+
+	@Value("${configuracion.balanceador.inactividad:10m}")
+	private Duration inactividad;
+
+	@Value("${configuracion.balanceador.maximo-instancias:1000}")
+	private long maximoInstancias;
+
+	// Reloj en nanosegundos, las pruebas lo reemplazan para simular el paso del tiempo
+	LongSupplier reloj = System::nanoTime;
+
+	private Cache<String, Estadistica> instancias;
+
+	@PostConstruct
+	public void inicializar() {
+		this.instancias = Caffeine.newBuilder()
+				.expireAfterAccess(this.inactividad)
+				.maximumSize(this.maximoInstancias)
+				.<String, Estadistica>removalListener((instancia, estadistica, causa) -> {
+					if (causa != RemovalCause.REPLACED) {
+						this.eliminarMetricas(instancia);
+					}
+				})
+				.build();
+	}
+
+	// MÉTODOS
+	// Estadística de la instancia, se crea la primera vez que el balanceador o el cliente HTTP la consultan
+	public Estadistica de(String instancia) {
+		return this.instancias.get(instancia, clave -> this.crear(clave, 0));
+	}
+
+	/*
+	 * Usado por el balanceador. Con Eureka el calentamiento se cuenta desde que la instancia se registró como "UP",
+	 * sino desde que el balanceador la vio por primera vez. Así reiniciar el microservicio items no pone en calentamiento
+	 * a instancias del servicio-productos que ya llevan tiempo recibiendo tráfico.
+	 */
+	public Estadistica de(ServiceInstance instancia) {
+		return this.instancias.get(clave(instancia), clave -> this.crear(clave, antiguedadMillis(instancia)));
+	}
+
+	// Misma clave que usan "HttpRequestExecutorMedido" e "InterruptoresProductos"
+	public static String clave(ServiceInstance instancia) {
+		return instancia.getHost() + ":" + instancia.getPort();
+	}
+
+	private static long antiguedadMillis(ServiceInstance instancia) {
+		if (instancia instanceof EurekaServiceInstance) {
+			LeaseInfo lease = ((EurekaServiceInstance) instancia).getInstanceInfo().getLeaseInfo();
+			if (lease != null && lease.getServiceUpTimestamp() > 0) {
+				return Math.max(0, System.currentTimeMillis() - lease.getServiceUpTimestamp());
+			}
+		}
+		return 0;
+	}
+
+	private Estadistica crear(String instancia, long antiguedadMillis) {
+		Estadistica estadistica = new Estadistica(this.reloj.getAsLong() - TimeUnit.MILLISECONDS.toNanos(antiguedadMillis));
+		Gauge.builder("items.balanceador.latencia", estadistica, e -> e.latencia(this.reloj.getAsLong()) / 1_000_000)
+				.description("Latencia EWMA de la instancia del servicio-productos en milisegundos")
+				.tag("instancia", instancia)
+				.register(this.meterRegistry);
+		Gauge.builder("items.balanceador.pendientes", estadistica, e -> e.pendientes.get())
+				.description("Peticiones en curso hacia la instancia del servicio-productos")
+				.tag("instancia", instancia)
+				.register(this.meterRegistry);
+		Gauge.builder("items.balanceador.puntaje", estadistica, e -> e.puntaje(this.reloj.getAsLong()) / 1_000_000)
+				.description("Puntaje usado por el balanceador, menor es mejor")
+				.tag("instancia", instancia)
+				.register(this.meterRegistry);
+		return estadistica;
+	}
+
+	private void eliminarMetricas(String instancia) {
+		for (String metrica : new String[] { "items.balanceador.latencia", "items.balanceador.pendientes", "items.balanceador.puntaje" }) {
+			this.meterRegistry.find(metrica).tag("instancia", instancia).meters().forEach(this.meterRegistry::remove);
+		}
+	}
+
+	public final class Estadistica {
+
+		private final AtomicInteger pendientes = new AtomicInteger();
+		private final long creada;
+		private double ewma;
+		private long ultimaMuestra;
+		private boolean conMuestras;
+
+		private Estadistica(long creada) {
+			this.creada = creada;
+		}
+
+		public void iniciar() {
+			this.pendientes.incrementAndGet();
+		}
+
+		public void terminar(long duracionNanos, boolean fallo) {
+			this.pendientes.decrementAndGet();
+			double muestra = fallo ? Math.max(duracionNanos, penalizacionFallo.toNanos()) : duracionNanos;
+			long ahora = reloj.getAsLong();
+			synchronized (this) {
+				double actual = this.latencia(ahora);
+				if (!this.conMuestras || muestra > actual) {
+					this.ewma = muestra;
+				} else {
+					double peso = Math.exp(-(ahora - this.ultimaMuestra) / (double) ventana.toNanos());
+					this.ewma = actual * peso + muestra * (1 - peso);
+				}
+				this.ultimaMuestra = ahora;
+				this.conMuestras = true;
+			}
+		}
+
+		// EWMA en nanosegundos, sin muestras recientes se acerca a "latencia-inicial"
+		synchronized double latencia(long ahora) {
+			double inicial = latenciaInicial.toNanos();
+			if (!this.conMuestras) {
+				return this.pendientes.get() == 0 ? 0 : inicial;
+			}
+			double peso = Math.exp(-(ahora - this.ultimaMuestra) / (double) ventana.toNanos());
+			return this.ewma * peso + inicial * (1 - peso);
+		}
+
+		// Latencia esperada considerando las peticiones en curso, menor es mejor
+		public double puntaje(long ahora) {
+			return this.latencia(ahora) * (this.pendientes.get() + 1);
+		}
+
+		/*
+		 * Durante el "calentamiento" crece de 0.1 a 1 en forma lineal. El balanceador solo acepta la instancia
+		 * con esta probabilidad, así una instancia nueva no recibe de golpe todo el tráfico mientras su JIT y sus caches se calientan.
+		 */
+		public double peso(long ahora) {
+			long calentamientoNanos = calentamiento.toNanos();
+			if (calentamientoNanos <= 0) {
+				return 1;
+			}
+			double avance = (ahora - this.creada) / (double) calentamientoNanos;
+			return Math.max(0.1, Math.min(1, avance));
+		}
+
+		public int getPendientes() {
+			return this.pendientes.get();
+		}
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.formacionbdi.springboot.app.item.clientes;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+/*
+ * Formato preferido para las respuestas del "servicio-productos".
+ *
+ * SMILE y CBOR son codificaciones binarias del mismo modelo de datos de JSON, más compactas y rápidas de leer.
+ * Siempre se acepta JSON con menor prioridad, así una instancia del servicio-productos sin soporte binario sigue respondiendo.
+ * Spring registra sus "HttpMessageConverter" al estar las librerías "jackson-dataformat-smile" y "jackson-dataformat-cbor" en el classpath.
+ */
+public enum FormatoCable {
+
+	JSON(MediaType.APPLICATION_JSON),
+	SMILE(new MediaType("application", "x-jackson-smile")),
+	CBOR(MediaType.APPLICATION_CBOR);
+
+	private static final MediaType JSON_ALTERNATIVO = new MediaType(MediaType.APPLICATION_JSON, Map.of("q", "0.9"));
+
+	// ATRIBUTOS
+	private final MediaType tipo;
+
+	// CONSTRUCTORES
+	FormatoCable(MediaType tipo) {
+		this.tipo = tipo;
+	}
+
+	// MÉTODOS
+	// Valor del header "Accept", por ejemplo "application/x-jackson-smile, application/json;q=0.9"
+	public String getAccept() {
+		return MediaType.toString(this.getTiposAceptados());
+	}
+
+	public List<MediaType> getTiposAceptados() {
+		return this == JSON ? List.of(MediaType.APPLICATION_JSON) : List.of(this.tipo, JSON_ALTERNATIVO);
+	}
+
+	/*
+	 * El RestTemplate arma el "Accept" con todos los formatos que sabe leer y el servidor elige JSON.
+	 * Si ese "Accept" incluye el formato preferido, lo reemplazamos para darle prioridad.
+	 * Las peticiones que piden solo JSON, como las de "ItemStreamingService", no se modifican.
+	 */
+	public void preferir(HttpHeaders headers) {
+		if (this != JSON && headers.getAccept().stream().anyMatch(this.tipo::isCompatibleWith)) {
+			headers.setAccept(this.getTiposAceptados());
+		}
+	}
+
+}
@@ -0,0 +1,165 @@
+package com.formacionbdi.springboot.app.item.clientes;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*
+ * Mide cada petición que sale por el cliente HTTP compartido de la clase "HttpClienteConfig".
+ * Al medir en este punto ya se conoce la instancia elegida por el balanceador de carga.
+ *
+ * Registra el timer "productos.cliente.peticiones" con los tags:
+ * - operacion: listar, ver, ver-lote, crear, editar, eliminar
+ * - instancia: host:puerto de la instancia del "servicio-productos"
+ * - cliente: feign, resttemplate o hedging, según el header interno "X-Cliente-Http", que se quita antes de enviar la petición
+ * - resultado: exito, error-cliente, error-servidor, timeout, interruptor-abierto o error
+ *
+ * Además registra el resultado en el circuit breaker de la instancia ("InterruptoresProductos").
+ * Con el circuito abierto la petición no se envía y se lanza "CallNotPermittedException".
+ * Los errores 4xx cuentan como éxito, ya que la instancia respondió correctamente.
+ *
+ * También registra la latencia y las peticiones en curso de la instancia en "EstadisticasInstancias", usadas por "BalanceadorLatencia".
+ * Los GET se envían como peticiones condicionales con "RespuestasCondicionales", una respuesta 304 cuenta como éxito.
+ */
+public class HttpRequestExecutorMedido extends HttpRequestExecutor {
+
+	public static final String HEADER_CLIENTE = "X-Cliente-Http";
+	public static final String METRICA = "productos.cliente.peticiones";
+
+	// Error usado para registrar las respuestas 5xx en el circuit breaker, sin stack trace
+	private static final IOException ERROR_SERVIDOR = new IOException("Respuesta 5xx del servicio-productos") {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;
+		}
+	};
+
+	private final MeterRegistry meterRegistry;
+	private final InterruptoresProductos interruptores;
+	private final EstadisticasInstancias estadisticas;
+	private final RespuestasCondicionales condicionales;
+
+	public HttpRequestExecutorMedido(MeterRegistry meterRegistry, InterruptoresProductos interruptores,
+			EstadisticasInstancias estadisticas, RespuestasCondicionales condicionales) {
+		this.meterRegistry = meterRegistry;
+		this.interruptores = interruptores;
+		this.estadisticas = estadisticas;
+		this.condicionales = condicionales;
+	}
+
+	@Override
+	public HttpResponse execute(HttpRequest peticion, HttpClientConnection conexion, HttpContext contexto)
+			throws IOException, HttpException {
+
+		long inicio = System.nanoTime();
+		String cliente = cliente(peticion, contexto);
+		String instancia = instancia(contexto);
+		String resultado = "error";
+		CircuitBreaker interruptor = this.interruptores.porInstancia(instancia);
+		EstadisticasInstancias.Estadistica estadistica = null;
+		try {
+			if (interruptor != null && !interruptor.tryAcquirePermission()) {
+				resultado = "interruptor-abierto";
+				throw CallNotPermittedException.createCallNotPermittedException(interruptor);
+			}
+			estadistica = this.estadisticas.de(instancia);
+			estadistica.iniciar();
+			RespuestasCondicionales.Guardada guardada = this.condicionales.preparar(peticion);
+			HttpResponse respuesta = super.execute(peticion, conexion, contexto);
+			int estado = respuesta.getStatusLine().getStatusCode();
+			resultado = resultado(estado);
+			if (interruptor != null) {
+				if (estado >= 500) {
+					interruptor.onError(System.nanoTime() - inicio, TimeUnit.NANOSECONDS, ERROR_SERVIDOR);
+				} else {
+					interruptor.onSuccess(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+				}
+			}
+			return this.condicionales.procesar(peticion, guardada, respuesta);
+		} catch (IOException | HttpException | RuntimeException e) {
+			if (e instanceof InterruptedIOException) {
+				// Incluye "SocketTimeoutException" y "ConnectTimeoutException"
+				resultado = "timeout";
+			}
+			if (interruptor != null && !(e instanceof CallNotPermittedException)) {
+				interruptor.onError(System.nanoTime() - inicio, TimeUnit.NANOSECONDS, e);
+			}
+			throw e;
+		} finally {
+			if (estadistica != null) {
+				estadistica.terminar(System.nanoTime() - inicio, !"exito".equals(resultado) && !"error-cliente".equals(resultado));
+			}
+			Timer.builder(METRICA)
+					.description("Latencia de las peticiones al servicio-productos")
+					.tag("operacion", operacion(peticion.getRequestLine().getUri()))
+					.tag("instancia", instancia)
+					.tag("cliente", cliente)
+					.tag("resultado", resultado)
+					.register(this.meterRegistry)
+					.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private static String resultado(int estado) {
+		if (estado >= 500) {
+			return "error-servidor";
+		}
+		return estado >= 400 ? "error-cliente" : "exito";
+	}
+
+	// La operación es el primer segmento de la ruta, sin los ids, para no crear un timer por producto
+	static String operacion(String uri) {
+		String ruta = uri;
+		int inicioRuta = ruta.indexOf("://");
+		if (inicioRuta >= 0) {
+			int barra = ruta.indexOf('/', inicioRuta + 3);
+			ruta = barra >= 0 ? ruta.substring(barra) : "/";
+		}
+		int consulta = ruta.indexOf('?');
+		if (consulta >= 0) {
+			ruta = ruta.substring(0, consulta);
+		}
+		String[] segmentos = ruta.replaceFirst("^/", "").split("/");
+		if (segmentos.length > 1 && "ver".equals(segmentos[0]) && "lote".equals(segmentos[1])) {
+			return "ver-lote";
+		}
+		return segmentos[0].isEmpty() ? "desconocida" : segmentos[0];
+	}
+
+	private static String instancia(HttpContext contexto) {
+		HttpHost destino = HttpClientContext.adapt(contexto).getTargetHost();
+		return destino == null ? "desconocida" : destino.getHostName() + ":" + destino.getPort();
+	}
+
+	/*
+	 * Lee y quita el header, así no llega al servicio-productos.
+	 * El valor se guarda en el contexto, que comparten los reintentos de la misma petición del cliente HTTP.
+	 */
+	private static String cliente(HttpRequest peticion, HttpContext contexto) {
+		Header header = peticion.getFirstHeader(HEADER_CLIENTE);
+		if (header != null) {
+			peticion.removeHeaders(HEADER_CLIENTE);
+			contexto.setAttribute(HEADER_CLIENTE, header.getValue());
+		}
+		Object cliente = contexto.getAttribute(HEADER_CLIENTE);
+		return cliente == null ? "desconocido" : cliente.toString();
+	}
+
+}
@@ -0,0 +1,37 @@
+package com.formacionbdi.springboot.app.item.clientes;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.DelegatingServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+import reactor.core.publisher.Flux;
+
+/*
+ * Lista de instancias del "servicio-productos" para el balanceador de carga, sin las que tienen el circuit breaker abierto.
+ * Si todas lo tienen abierto se devuelve la lista completa, y "HttpRequestExecutorMedido" rechaza la petición.
+ */
+public class InstanciasSinInterruptorAbierto extends DelegatingServiceInstanceListSupplier {
+
+	private final InterruptoresProductos interruptores;
+
+	public InstanciasSinInterruptorAbierto(ServiceInstanceListSupplier delegate, InterruptoresProductos interruptores) {
+		super(delegate);
+		this.interruptores = interruptores;
+	}
+
+	@Override
+	public Flux<List<ServiceInstance>> get() {
+		return this.getDelegate().get().map(this::filtrar);
+	}
+
+	private List<ServiceInstance> filtrar(List<ServiceInstance> instancias) {
+		List<ServiceInstance> disponibles = instancias.stream()
+				.filter(instancia -> !this.interruptores.abierto(instancia.getHost() + ":" + instancia.getPort()))
+				.collect(Collectors.toList());
+		return disponibles.isEmpty() ? instancias : disponibles;
+	}
+
+}
@@ -0,0 +1,192 @@
+package com.formacionbdi.springboot.app.item.clientes;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/*
+ * Circuit breakers más finos que el "items" del "ItemController", así una instancia o un producto con fallas
+ * no abre el circuito para todo el tráfico.
+ *
+ * - Por instancia (host:puerto) del "servicio-productos": los usa "HttpRequestExecutorMedido" en cada petición
+ *   y el balanceador de carga evita las instancias con el circuito abierto (ver "BalanceadorProductosConfig").
+ *   Se guardan en una cache de Caffeine, los que no se usan durante "inactividad" se eliminan junto con sus métricas.
+ * - Por cubeta de ids de producto (id % cubetas): los usa "ItemServiceInterruptores". La cantidad es fija, por lo que
+ *   se guardan en un arreglo y se buscan por posición. Con "cubetas: 0" no se usan.
+ *
+ * Todos usan la misma configuración del circuit breaker "items", con la transición automática de abierto a semi-abierto.
+ * Sin ella el paso a semi-abierto ocurre recién cuando llega una petición, y el balanceador no envía peticiones
+ * a las instancias con el circuito abierto, por lo que una instancia quedaría excluida para siempre.
+ * El "items" ignora "CallNotPermittedException", así un circuito fino abierto no cuenta como falla del global.
+ * Cuando "ConfiguracionDinamica" reemplaza el "items" en el registro, se copia su nueva configuración y los circuitos
+ * existentes se descartan: se vuelven a crear con la nueva configuración en su próximo uso, cerrados y sin historial, igual que el "items".
+ *
+ * Métricas: "items.interruptores.estado" (0 cerrado, 1 abierto, 2 semi-abierto, 3 otro) y "items.interruptores.tasa.fallos",
+ * con los tags "tipo" (instancia o cubeta) y "nombre".
+ */
+@Component
+public class InterruptoresProductos {
+
+	private static final String ITEMS = "items";
+
+	// ATRIBUTOS
+	@Autowired
+	private CircuitBreakerRegistry circuitBreakerRegistry;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${configuracion.interruptores.por-instancia:true}")
+	private boolean porInstancia;
+
+	@Value("${configuracion.interruptores.cubetas:0}")
+	private int cantidadCubetas;
+
+	@Value("${configuracion.interruptores.inactividad:10m}")
+	private Duration inactividad;
+
+	@Value("${configuracion.interruptores.maximo-instancias:1000}")
+	private long maximoInstancias;
+
+	private volatile CircuitBreakerConfig configuracion;
+	private Cache<String, CircuitBreaker> instancias;
+	private AtomicReferenceArray<CircuitBreaker> cubetas;
+
+	@PostConstruct
+	public void inicializar() {
+		this.configuracion = configuracionDe(this.circuitBreakerRegistry.circuitBreaker(ITEMS));
+		this.instancias = Caffeine.newBuilder()
+				.expireAfterAccess(this.inactividad)
+				.maximumSize(this.maximoInstancias)
+				// Las métricas se eliminan en el mismo hilo, antes de que se pueda crear el circuito nuevo de la instancia
+				.executor(Runnable::run)
+				.<String, CircuitBreaker>removalListener((instancia, interruptor, causa) -> {
+					if (causa != RemovalCause.REPLACED) {
+						this.eliminarMetricas("instancia", instancia);
+					}
+				})
+				.build();
+		this.cubetas = new AtomicReferenceArray<>(Math.max(0, this.cantidadCubetas));
+		this.circuitBreakerRegistry.getEventPublisher().onEntryReplaced(evento -> {
+			if (ITEMS.equals(evento.getNewEntry().getName())) {
+				this.reconfigurar(configuracionDe(evento.getNewEntry()));
+			}
+		});
+	}
+
+	// MÉTODOS
+	// Circuito de la instancia, se crea la primera vez. null si "por-instancia" está deshabilitado
+	public CircuitBreaker porInstancia(String instancia) {
+		if (!this.porInstancia) {
+			return null;
+		}
+		return this.instancias.get(instancia, nombre -> this.crear("instancia", nombre));
+	}
+
+	/*
+	 * Usado por el balanceador, no crea circuitos para las instancias que aún no recibieron peticiones.
+	 * La lectura no cuenta como acceso, así una instancia excluida igual se elimina pasada la "inactividad".
+	 */
+	public boolean abierto(String instancia) {
+		CircuitBreaker interruptor = this.porInstancia ? this.instancias.policy().getIfPresentQuietly(instancia) : null;
+		if (interruptor == null) {
+			return false;
+		}
+		CircuitBreaker.State estado = interruptor.getState();
+		return estado == CircuitBreaker.State.OPEN || estado == CircuitBreaker.State.FORCED_OPEN;
+	}
+
+	// Circuito de la cubeta a la que pertenece el producto. null si "cubetas" es 0
+	public CircuitBreaker porProducto(long id) {
+		if (this.cubetas.length() == 0) {
+			return null;
+		}
+		int cubeta = (int) Math.floorMod(id, (long) this.cubetas.length());
+		CircuitBreaker interruptor = this.cubetas.get(cubeta);
+		if (interruptor == null) {
+			// Solo la primera petición de cada cubeta entra a este bloque
+			synchronized (this.cubetas) {
+				interruptor = this.cubetas.get(cubeta);
+				if (interruptor == null) {
+					interruptor = this.crear("cubeta", String.valueOf(cubeta));
+					this.cubetas.set(cubeta, interruptor);
+				}
+			}
+		}
+		return interruptor;
+	}
+
+	private static CircuitBreakerConfig configuracionDe(CircuitBreaker items) {
+		return CircuitBreakerConfig.from(items.getCircuitBreakerConfig())
+				.automaticTransitionFromOpenToHalfOpenEnabled(true)
+				.build();
+	}
+
+	/*
+	 * Las instancias se eliminan de la cache junto con sus métricas (removalListener).
+	 * Las métricas de las cubetas se eliminan a mano, sino el gauge nuevo quedaría registrado sobre el circuito anterior.
+	 */
+	private void reconfigurar(CircuitBreakerConfig nueva) {
+		synchronized (this.cubetas) {
+			this.configuracion = nueva;
+			for (int cubeta = 0; cubeta < this.cubetas.length(); cubeta++) {
+				if (this.cubetas.getAndSet(cubeta, null) != null) {
+					this.eliminarMetricas("cubeta", String.valueOf(cubeta));
+				}
+			}
+		}
+		this.instancias.invalidateAll();
+	}
+
+	private CircuitBreaker crear(String tipo, String nombre) {
+		CircuitBreaker interruptor = CircuitBreaker.of("items-" + tipo + "-" + nombre, this.configuracion);
+		Tags tags = Tags.of("tipo", tipo, "nombre", nombre);
+		Gauge.builder("items.interruptores.estado", interruptor, InterruptoresProductos::estado)
+				.description("Estado del circuit breaker: 0 cerrado, 1 abierto, 2 semi-abierto, 3 otro")
+				.tags(tags)
+				.register(this.meterRegistry);
+		Gauge.builder("items.interruptores.tasa.fallos", interruptor, cb -> cb.getMetrics().getFailureRate())
+				.description("Porcentaje de fallos en la ventana del circuit breaker, -1 si aún no tiene suficientes llamadas")
+				.tags(tags)
+				.register(this.meterRegistry);
+		return interruptor;
+	}
+
+	private void eliminarMetricas(String tipo, String nombre) {
+		this.meterRegistry.find("items.interruptores.estado").tags("tipo", tipo, "nombre", nombre).meters()
+				.forEach(this.meterRegistry::remove);
+		this.meterRegistry.find("items.interruptores.tasa.fallos").tags("tipo", tipo, "nombre", nombre).meters()
+				.forEach(this.meterRegistry::remove);
+	}
+
+	private static double estado(CircuitBreaker interruptor) {
+		switch (interruptor.getState()) {
+		case CLOSED:
+			return 0;
+		case OPEN:
+		case FORCED_OPEN:
+			return 1;
+		case HALF_OPEN:
+			return 2;
+		default:
+			return 3;
+		}
+	}
+
+}
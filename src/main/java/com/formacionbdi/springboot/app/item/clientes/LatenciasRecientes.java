@@ -0,0 +1,55 @@
+package com.formacionbdi.springboot.app.item.clientes;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Guarda las últimas latencias observadas en un buffer circular y calcula un percentil sobre ellas.
+ * El percentil se recalcula cada "recalcularCada" muestras, así la lectura en cada request es solo un campo volatile.
+ */
+public class LatenciasRecientes {
+
+	// ATRIBUTOS
+	private final AtomicLongArray muestras;
+	private final AtomicInteger siguiente = new AtomicInteger();
+	private final double percentil;
+	private final int recalcularCada;
+
+	private volatile long valorPercentil;
+
+	// CONSTRUCTORES
+	public LatenciasRecientes(int capacidad, double percentil, int recalcularCada, long valorInicial) {
+		this.muestras = new AtomicLongArray(capacidad);
+		this.percentil = percentil;
+		this.recalcularCada = recalcularCada;
+		this.valorPercentil = valorInicial;
+	}
+
+	// MÉTODOS
+	public void registrar(long latencia) {
+		int posicion = this.siguiente.getAndIncrement();
+		this.muestras.set(Math.floorMod(posicion, this.muestras.length()), latencia);
+
+		if ((posicion + 1) % this.recalcularCada == 0) {
+			// Mientras el buffer no se llena solo se consideran las posiciones ya escritas
+			boolean lleno = posicion < 0 || posicion + 1 >= this.muestras.length();
+			this.recalcular(lleno ? this.muestras.length() : posicion + 1);
+		}
+	}
+
+	public long getPercentil() {
+		return this.valorPercentil;
+	}
+
+	private void recalcular(int cantidad) {
+		long[] copia = new long[cantidad];
+		for (int i = 0; i < cantidad; i++) {
+			copia[i] = this.muestras.get(i);
+		}
+		Arrays.sort(copia);
+		int indice = (int) Math.ceil(this.percentil / 100D * cantidad) - 1;
+		this.valorPercentil = copia[Math.max(0, Math.min(indice, cantidad - 1))];
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.formacionbdi.springboot.app.item.clientes;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/*
+ * Configuración de los límites de concurrencia hacia el "servicio-productos", prefijo "configuracion.limitador".
+ * "defecto" aplica a todas las operaciones y "operaciones" permite cambiarla por operación de "ItemService"
+ * (findAll, findById, findAllById, save, update, deleteById).
+ */
+@Component
+@ConfigurationProperties(prefix = "configuracion.limitador")
+public class LimitadorProperties {
+
+	// ATRIBUTOS
+	private boolean habilitado = true;
+	private Limite defecto = new Limite();
+	private Map<String, Limite> operaciones = new HashMap<>();
+
+	// MÉTODOS
+	public Limite para(String operacion) {
+		return this.operaciones.getOrDefault(operacion, this.defecto);
+	}
+
+	// GETTERS AND SETTERS
+	public boolean isHabilitado() {
+		return habilitado;
+	}
+
+	public void setHabilitado(boolean habilitado) {
+		this.habilitado = habilitado;
+	}
+
+	public Limite getDefecto() {
+		return defecto;
+	}
+
+	public void setDefecto(Limite defecto) {
+		this.defecto = defecto;
+	}
+
+	public Map<String, Limite> getOperaciones() {
+		return operaciones;
+	}
+
+	public void setOperaciones(Map<String, Limite> operaciones) {
+		this.operaciones = operaciones;
+	}
+
+	public static class Limite {
+		private int limiteInicial = 20;
+		private int limiteMinimo = 2;
+		private int limiteMaximo = 200;
+		// Latencia a partir de la cual una respuesta cuenta como sobrecarga, igual que "slow-call-duration-threshold"
+		private Duration latenciaObjetivo = Duration.ofSeconds(2);
+		private double factorReduccion = 0.9;
+
+		public int getLimiteInicial() {
+			return limiteInicial;
+		}
+
+		public void setLimiteInicial(int limiteInicial) {
+			this.limiteInicial = limiteInicial;
+		}
+
+		public int getLimiteMinimo() {
+			return limiteMinimo;
+		}
+
+		public void setLimiteMinimo(int limiteMinimo) {
+			this.limiteMinimo = limiteMinimo;
+		}
+
+		public int getLimiteMaximo() {
+			return limiteMaximo;
+		}
+
+		public void setLimiteMaximo(int limiteMaximo) {
+			this.limiteMaximo = limiteMaximo;
+		}
+
+		public Duration getLatenciaObjetivo() {
+			return latenciaObjetivo;
+		}
+
+		public void setLatenciaObjetivo(Duration latenciaObjetivo) {
+			this.latenciaObjetivo = latenciaObjetivo;
+		}
+
+		public double getFactorReduccion() {
+			return factorReduccion;
+		}
+
+		public void setFactorReduccion(double factorReduccion) {
+			this.factorReduccion = factorReduccion;
+		}
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.formacionbdi.springboot.app.item.clientes;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Límite de peticiones simultáneas que se ajusta con el algoritmo AIMD (Additive Increase, Multiplicative Decrease).
+ *
+ * - Si una petición falla o su latencia supera "latenciaObjetivo", el límite se multiplica por "factorReduccion".
+ * - Si responde a tiempo y el límite se está usando, el límite aumenta en 1.
+ *
+ * Así, cuando el "servicio-productos" se vuelve lento, se envían menos peticiones en paralelo
+ * y las que exceden el límite se rechazan de inmediato en lugar de hacer cola.
+ */
+public class LimiteAdaptativo {
+
+	// ATRIBUTOS
+	private final int limiteMinimo;
+	private final int limiteMaximo;
+	private final long latenciaObjetivoNanos;
+	private final double factorReduccion;
+
+	private final AtomicInteger enCurso = new AtomicInteger();
+	private volatile double limite;
+
+	// CONSTRUCTORES
+	public LimiteAdaptativo(int limiteInicial, int limiteMinimo, int limiteMaximo, long latenciaObjetivoNanos, double factorReduccion) {
+		this.limiteMinimo = limiteMinimo;
+		this.limiteMaximo = limiteMaximo;
+		this.latenciaObjetivoNanos = latenciaObjetivoNanos;
+		this.factorReduccion = factorReduccion;
+		this.limite = limiteInicial;
+	}
+
+	// MÉTODOS
+	// Devuelve false si ya hay tantas peticiones en curso como el límite actual
+	public boolean adquirir() {
+		int actual;
+		do {
+			actual = this.enCurso.get();
+			if (actual >= (int) this.limite) {
+				return false;
+			}
+		} while (!this.enCurso.compareAndSet(actual, actual + 1));
+		return true;
+	}
+
+	// Se llama al terminar cada petición adquirida, con su latencia y si fue exitosa
+	public void liberar(long latenciaNanos, boolean exito) {
+		int enCursoAntes = this.enCurso.getAndDecrement();
+
+		synchronized (this) {
+			if (!exito || latenciaNanos > this.latenciaObjetivoNanos) {
+				this.limite = Math.max(this.limiteMinimo, this.limite * this.factorReduccion);
+			} else if (enCursoAntes * 2 >= this.limite) {
+				// Solo se aumenta si el límite realmente se estaba usando
+				this.limite = Math.min(this.limiteMaximo, this.limite + 1);
+			}
+		}
+	}
+
+	public int getLimite() {
+		return (int) this.limite;
+	}
+
+	public int getEnCurso() {
+		return this.enCurso.get();
+	}
+
+}
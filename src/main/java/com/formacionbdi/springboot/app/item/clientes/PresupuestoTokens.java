@@ -0,0 +1,51 @@
+package com.formacionbdi.springboot.app.item.clientes;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * "Token bucket" usado para limitar peticiones extra (hedging, reintentos) a un porcentaje del tráfico.
+ * Cada "depositar()" agrega "proporcion" tokens hasta el "maximo" y cada "retirar()" consume un token completo.
+ *
+ * Los tokens se guardan en milésimas dentro de un AtomicLong, por lo que no usa bloqueos.
+ */
+public class PresupuestoTokens {
+
+	private static final long ESCALA = 1000;
+
+	// ATRIBUTOS
+	private final long deposito;
+	private final long maximo;
+	private final AtomicLong tokens;
+
+	// CONSTRUCTORES
+	/*
+	 * proporcion: tokens agregados por cada depósito, por ejemplo 0.05 permite una petición extra cada 20
+	 * maximo: tokens acumulables, permite absorber ráfagas cortas
+	 */
+	public PresupuestoTokens(double proporcion, double maximo) {
+		this.deposito = Math.round(proporcion * ESCALA);
+		this.maximo = Math.round(maximo * ESCALA);
+		this.tokens = new AtomicLong(this.maximo);
+	}
+
+	// MÉTODOS
+	public void depositar() {
+		this.tokens.accumulateAndGet(this.deposito, (actual, deposito) -> Math.min(this.maximo, actual + deposito));
+	}
+
+	public boolean retirar() {
+		long actual;
+		do {
+			actual = this.tokens.get();
+			if (actual < ESCALA) {
+				return false;
+			}
+		} while (!this.tokens.compareAndSet(actual, actual - ESCALA));
+		return true;
+	}
+
+	public double getDisponibles() {
+		return (double) this.tokens.get() / ESCALA;
+	}
+
+}
@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import com.formacionbdi.springboot.app.commons.models.entity.Producto;
 
@@ -37,9 +38,26 @@ public interface ProductoClienteRest {
 	@GetMapping("/listar")
 	public List<Producto> listar();
 	
+	// Productos creados o editados desde la fecha indicada (milisegundos). Usado por "CatalogoReplica"
+	@GetMapping("/listar")
+	public List<Producto> listarModificados(@RequestParam("modificadoDesde") Long modificadoDesde);
+	
+	/*
+	 * Página del catálogo filtrada y proyectada por el "servicio-productos". Usado por "ItemStreamingService".
+	 * Los parámetros null no se envían.
+	 */
+	@GetMapping("/listar")
+	public List<Producto> listarPagina(@RequestParam("page") int page, @RequestParam("size") int size,
+			@RequestParam(name = "nombre", required = false) String nombre,
+			@RequestParam(name = "fields", required = false) String fields);
+	
 	@GetMapping("/ver/{id}")
 	public Producto detalle(@PathVariable Long id);
 	
+	// Consulta varios productos en una sola petición. Usado por el "MicroBatcher" de "ItemServiceFeign"
+	@PostMapping("/ver/lote")
+	public List<Producto> detalleLote(@RequestBody List<Long> ids);
+	
 	@PostMapping("/crear")	
 	public Producto crear(@RequestBody Producto producto);
 	
@@ -0,0 +1,285 @@
+package com.formacionbdi.springboot.app.item.clientes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.message.BasicHttpResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/*
+ * Peticiones condicionales (If-None-Match) hacia el "servicio-productos", para Feign y el RestTemplate.
+ * La usa "HttpRequestExecutorMedido", así aplica a todos los clientes que comparten el cliente HTTP de "HttpClienteConfig".
+ *
+ * - Las respuestas 200 de un GET que traen ETag se guardan tal como llegaron (incluso comprimidas), a medida que se leen,
+ *   así no se pierde el streaming de "ItemStreamingService". Las mayores a "tamano-maximo" no se guardan.
+ * - El siguiente GET a la misma ruta y con el mismo "Accept" envía "If-None-Match".
+ *   Si el servicio-productos responde 304, se entrega la respuesta guardada como un 200, sin volver a descargarla.
+ *
+ * Requiere que el servicio-productos envíe ETag (por ejemplo con el "ShallowEtagHeaderFilter" de Spring), sino no se guarda nada.
+ * La clave no incluye la instancia, ya que el ETag depende de los datos y no de la instancia que respondió.
+ *
+ * Métricas: "cache.*" con el tag "cache=respuestas-condicionales" y "productos.cliente.revalidaciones" con el tag
+ * "resultado" (no-modificado o modificado).
+ */
+@Component
+public class RespuestasCondicionales {
+
+	// ATRIBUTOS
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${configuracion.http-cliente.condicional.habilitado:true}")
+	private boolean habilitado;
+
+	// Memoria total usada por las respuestas guardadas
+	@Value("${configuracion.http-cliente.condicional.memoria:64MB}")
+	private DataSize memoria;
+
+	@Value("${configuracion.http-cliente.condicional.tamano-maximo:8MB}")
+	private DataSize tamanoMaximo;
+
+	private Cache<String, Guardada> respuestas;
+	private Counter noModificadas;
+	private Counter modificadas;
+
+	@PostConstruct
+	public void inicializar() {
+		this.respuestas = Caffeine.newBuilder()
+				.maximumWeight(this.memoria.toBytes())
+				.<String, Guardada>weigher((clave, guardada) -> clave.length() + guardada.cuerpo.length)
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(this.meterRegistry, this.respuestas, "respuestas-condicionales");
+		this.noModificadas = this.contador("no-modificado");
+		this.modificadas = this.contador("modificado");
+	}
+
+	// MÉTODOS
+	/*
+	 * Antes de enviar la petición. Si hay una respuesta guardada agrega "If-None-Match" y la devuelve, sino null.
+	 * Las peticiones que ya traen "If-None-Match" se envían sin cambios.
+	 */
+	public Guardada preparar(HttpRequest peticion) {
+		if (!this.aplica(peticion) || peticion.containsHeader(HttpHeaders.IF_NONE_MATCH)) {
+			return null;
+		}
+		Guardada guardada = this.respuestas.getIfPresent(clave(peticion));
+		if (guardada != null) {
+			peticion.setHeader(HttpHeaders.IF_NONE_MATCH, guardada.etag);
+		}
+		return guardada;
+	}
+
+	// Al recibir la respuesta: reemplaza un 304 por la respuesta guardada, o guarda el 200 mientras se lee
+	public HttpResponse procesar(HttpRequest peticion, Guardada guardada, HttpResponse respuesta) {
+		if (!this.aplica(peticion)) {
+			return respuesta;
+		}
+		int estado = respuesta.getStatusLine().getStatusCode();
+		if (estado == HttpStatus.SC_NOT_MODIFIED && guardada != null) {
+			this.noModificadas.increment();
+			return guardada.comoRespuesta(respuesta);
+		}
+		if (guardada != null) {
+			this.modificadas.increment();
+		}
+
+		String clave = clave(peticion);
+		Header etag = respuesta.getFirstHeader(HttpHeaders.ETAG);
+		HttpEntity entidad = respuesta.getEntity();
+		if (estado == HttpStatus.SC_OK && etag != null && entidad != null
+				&& entidad.getContentLength() <= this.tamanoMaximo.toBytes()) {
+			respuesta.setEntity(new EntidadRegistrada(entidad, clave, etag.getValue()));
+		} else if (guardada != null) {
+			this.respuestas.invalidate(clave);
+		}
+		return respuesta;
+	}
+
+	private boolean aplica(HttpRequest peticion) {
+		return this.habilitado && "GET".equals(peticion.getRequestLine().getMethod());
+	}
+
+	// Ruta sin host ni puerto, más el formato pedido, ya que JSON, Smile y CBOR tienen ETag distintos
+	private static String clave(HttpRequest peticion) {
+		String uri = peticion.getRequestLine().getUri();
+		int esquema = uri.indexOf("://");
+		if (esquema >= 0) {
+			int barra = uri.indexOf('/', esquema + 3);
+			uri = barra >= 0 ? uri.substring(barra) : "/";
+		}
+		Header accept = peticion.getFirstHeader(HttpHeaders.ACCEPT);
+		return accept == null ? uri : uri + " " + accept.getValue();
+	}
+
+	private Counter contador(String resultado) {
+		return Counter.builder("productos.cliente.revalidaciones")
+				.description("Peticiones condicionales al servicio-productos según la respuesta")
+				.tag("resultado", resultado)
+				.register(this.meterRegistry);
+	}
+
+	// Respuesta guardada, con los headers necesarios para reconstruirla
+	public static final class Guardada {
+		private final String etag;
+		private final byte[] cuerpo;
+		private final Header tipo;
+		private final Header codificacion;
+
+		private Guardada(String etag, byte[] cuerpo, Header tipo, Header codificacion) {
+			this.etag = etag;
+			this.cuerpo = cuerpo;
+			this.tipo = tipo;
+			this.codificacion = codificacion;
+		}
+
+		/*
+		 * Se conservan los headers del 304 (Connection, Keep-Alive, Date), así el cliente HTTP decide
+		 * igual que antes si reutiliza la conexión. La entidad no es "streaming", la conexión se libera de inmediato.
+		 */
+		private HttpResponse comoRespuesta(HttpResponse noModificada) {
+			BasicHttpResponse respuesta = new BasicHttpResponse(noModificada.getProtocolVersion(), HttpStatus.SC_OK, "OK");
+			respuesta.setHeaders(noModificada.getAllHeaders());
+			respuesta.setHeader(HttpHeaders.ETAG, this.etag);
+			respuesta.setHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(this.cuerpo.length));
+			respuesta.removeHeaders(HttpHeaders.TRANSFER_ENCODING);
+
+			ByteArrayEntity entidad = new ByteArrayEntity(this.cuerpo);
+			if (this.tipo != null) {
+				respuesta.setHeader(this.tipo);
+				entidad.setContentType(this.tipo);
+			}
+			if (this.codificacion != null) {
+				respuesta.setHeader(this.codificacion);
+				entidad.setContentEncoding(this.codificacion);
+			}
+			respuesta.setEntity(entidad);
+			return respuesta;
+		}
+	}
+
+	// Copia el cuerpo mientras el cliente lo lee, al llegar al final lo guarda
+	private final class EntidadRegistrada extends HttpEntityWrapper {
+		private final String clave;
+		private final String etag;
+		private InputStream contenido;
+
+		private EntidadRegistrada(HttpEntity entidad, String clave, String etag) {
+			super(entidad);
+			this.clave = clave;
+			this.etag = etag;
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			if (this.contenido == null) {
+				this.contenido = new Copia(this.wrappedEntity.getContent(), this);
+			}
+			return this.contenido;
+		}
+
+		@Override
+		public void writeTo(OutputStream salida) throws IOException {
+			try (InputStream entrada = this.getContent()) {
+				entrada.transferTo(salida);
+			}
+		}
+
+		private void guardar(byte[] cuerpo) {
+			respuestas.put(this.clave, new Guardada(this.etag, cuerpo, this.getContentType(), this.getContentEncoding()));
+		}
+	}
+
+	private final class Copia extends FilterInputStream {
+		private final EntidadRegistrada entidad;
+		private ByteArrayOutputStream copia;
+
+		private Copia(InputStream entrada, EntidadRegistrada entidad) {
+			super(entrada);
+			this.entidad = entidad;
+			long largo = entidad.getContentLength();
+			this.copia = new ByteArrayOutputStream(largo > 0 ? (int) largo : 8192);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int leido = super.read();
+			if (leido >= 0) {
+				if (this.admite(1)) {
+					this.copia.write(leido);
+				}
+			} else {
+				this.terminar();
+			}
+			return leido;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int leidos = super.read(b, off, len);
+			if (leidos > 0) {
+				this.copiar(b, off, leidos);
+			} else if (leidos < 0) {
+				this.terminar();
+			}
+			return leidos;
+		}
+
+		// Un salto deja la copia incompleta, la respuesta no se guarda
+		@Override
+		public long skip(long n) throws IOException {
+			this.copia = null;
+			return super.skip(n);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		private void copiar(byte[] b, int off, int len) {
+			if (this.admite(len)) {
+				this.copia.write(b, off, len);
+			}
+		}
+
+		// Si el cuerpo supera el tamaño máximo se deja de copiar, la lectura continúa normalmente
+		private boolean admite(int len) {
+			if (this.copia != null && this.copia.size() + len > tamanoMaximo.toBytes()) {
+				this.copia = null;
+			}
+			return this.copia != null;
+		}
+
+		private void terminar() {
+			if (this.copia != null) {
+				this.entidad.guardar(this.copia.toByteArray());
+				this.copia = null;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.formacionbdi.springboot.app.item.controllers;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.mvc.condition.AbstractRequestCondition;
+
+/*
+ * Condición de "@RespuestaAsincrona". Con "headers = \"Prefer=respond-async\"" el valor debe ser exactamente ese,
+ * en cambio el header "Prefer" puede traer varias preferencias, con parámetros y en mayúsculas, por ejemplo:
+ * "Prefer: wait=5, Respond-Async" o "Prefer: respond-async; motivo=lote".
+ */
+public final class CondicionRespuestaAsincrona extends AbstractRequestCondition<CondicionRespuestaAsincrona> {
+
+	public static final String PREFERENCIA = "respond-async";
+
+	private static final String HEADER = "Prefer";
+
+	private static final CondicionRespuestaAsincrona INSTANCIA = new CondicionRespuestaAsincrona();
+
+	// CONSTRUCTORES
+	private CondicionRespuestaAsincrona() {
+
+	}
+
+	public static CondicionRespuestaAsincrona instancia() {
+		return INSTANCIA;
+	}
+
+	// MÉTODOS
+	@Override
+	public CondicionRespuestaAsincrona combine(CondicionRespuestaAsincrona otra) {
+		return this;
+	}
+
+	@Override
+	public CondicionRespuestaAsincrona getMatchingCondition(HttpServletRequest request) {
+		// Las peticiones CORS preliminares no incluyen el header, igual que "HeadersRequestCondition"
+		if (request.getHeader(HttpHeaders.ORIGIN) != null && "OPTIONS".equals(request.getMethod())
+				&& request.getHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD) != null) {
+			return this;
+		}
+		return prefiereAsincrona(request.getHeaders(HEADER)) ? this : null;
+	}
+
+	@Override
+	public int compareTo(CondicionRespuestaAsincrona otra, HttpServletRequest request) {
+		return 0;
+	}
+
+	@Override
+	protected Collection<?> getContent() {
+		return Collections.singleton(HEADER + ": " + PREFERENCIA);
+	}
+
+	@Override
+	protected String getToStringInfix() {
+		return " && ";
+	}
+
+	/*
+	 * Cada valor es una lista separada por comas de "token [= valor] *(; parámetro)",
+	 * los nombres de las preferencias no distinguen mayúsculas.
+	 */
+	static boolean prefiereAsincrona(Enumeration<String> valores) {
+		if (valores == null) {
+			return false;
+		}
+		while (valores.hasMoreElements()) {
+			for (String preferencia : valores.nextElement().split(",")) {
+				String nombre = preferencia.split(";", 2)[0].split("=", 2)[0].trim();
+				if (PREFERENCIA.equalsIgnoreCase(nombre)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+}
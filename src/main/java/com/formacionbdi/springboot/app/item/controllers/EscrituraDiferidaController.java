@@ -0,0 +1,82 @@
+package com.formacionbdi.springboot.app.item.controllers;
+
+import java.net.URI;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.clientes.ClaveIdempotencia;
+import com.formacionbdi.springboot.app.item.models.OperacionEscritura;
+import com.formacionbdi.springboot.app.item.models.service.EscrituraDiferidaService;
+
+/*
+ * Variante diferida de "/crear", "/editar/{id}" y "/eliminar/{id}" del "ItemController".
+ * Se usa cuando el header "Prefer" incluye la preferencia "respond-async" ("@RespuestaAsincrona")
+ * y "configuracion.escritura-diferida.habilitado" es true.
+ * Si no está habilitado, este controlador no se registra y el "ItemController" responde de forma síncrona.
+ *
+ * Responde 202 con la escritura aceptada y el header "Location" hacia "/escrituras/{id}" para consultar su estado.
+ * El header opcional "Idempotency-Key" permite reenviar la misma petición sin que se encole dos veces. El envío al
+ * servicio-productos es "al menos una vez" (ver "EscrituraDiferidaService"): sin deduplicación por esa clave en el
+ * servicio-productos, un reintento de "/crear" puede crear el producto dos veces.
+ */
+@RestController
+@ConditionalOnProperty(name = "configuracion.escritura-diferida.habilitado", havingValue = "true")
+public class EscrituraDiferidaController {
+
+	@Autowired
+	private EscrituraDiferidaService escrituraDiferidaService;
+
+	@PostMapping("/crear")
+	@RespuestaAsincrona
+	public ResponseEntity<OperacionEscritura> crear(@RequestBody Producto producto,
+			@RequestHeader(name = ClaveIdempotencia.HEADER, required = false) String clave) {
+
+		return aceptada(this.escrituraDiferidaService.encolar(OperacionEscritura.Tipo.CREAR, null, producto, clave));
+	}
+
+	@PutMapping("/editar/{id}")
+	@RespuestaAsincrona
+	public ResponseEntity<OperacionEscritura> editar(@RequestBody Producto producto, @PathVariable Long id,
+			@RequestHeader(name = ClaveIdempotencia.HEADER, required = false) String clave) {
+
+		return aceptada(this.escrituraDiferidaService.encolar(OperacionEscritura.Tipo.EDITAR, id, producto, clave));
+	}
+
+	@DeleteMapping("/eliminar/{id}")
+	@RespuestaAsincrona
+	public ResponseEntity<OperacionEscritura> eliminar(@PathVariable Long id,
+			@RequestHeader(name = ClaveIdempotencia.HEADER, required = false) String clave) {
+
+		return aceptada(this.escrituraDiferidaService.encolar(OperacionEscritura.Tipo.ELIMINAR, id, null, clave));
+	}
+
+	@GetMapping("/escrituras/{id}")
+	public OperacionEscritura estado(@PathVariable String id) {
+		OperacionEscritura operacion = this.escrituraDiferidaService.buscar(id);
+		if (operacion == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Escritura " + id + " no encontrada");
+		}
+		return operacion;
+	}
+
+	private static ResponseEntity<OperacionEscritura> aceptada(OperacionEscritura operacion) {
+		return ResponseEntity.accepted()
+				.location(URI.create("/escrituras/" + operacion.getId()))
+				.header("Preference-Applied", CondicionRespuestaAsincrona.PREFERENCIA)
+				.body(operacion);
+	}
+
+}
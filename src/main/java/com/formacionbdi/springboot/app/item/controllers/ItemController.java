@@ -1,10 +1,15 @@
 package com.formacionbdi.springboot.app.item.controllers;
 
-import java.util.Date;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,9 +17,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.circuitbreaker.CircuitBreakerFactory;
-import org.springframework.cloud.context.config.annotation.RefreshScope;
 import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -26,27 +32,47 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.formacionbdi.springboot.app.item.ConfiguracionDinamica;
+import com.formacionbdi.springboot.app.item.models.ConsultaItems;
+import com.formacionbdi.springboot.app.item.models.EtiquetaItems;
 import com.formacionbdi.springboot.app.item.models.Item;
+import com.formacionbdi.springboot.app.item.models.SolicitudItem;
 import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.models.service.CatalogoReplica;
 import com.formacionbdi.springboot.app.item.models.service.ItemService;
+import com.formacionbdi.springboot.app.item.models.service.ItemStreamingService;
+import com.formacionbdi.springboot.app.item.models.service.ListadoSerializado;
+import com.formacionbdi.springboot.app.item.models.service.ProductoNoDisponibleException;
+import com.formacionbdi.springboot.app.item.models.service.ProductosUltimoConocido;
 
+import feign.FeignException;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.timelimiter.annotation.TimeLimiter;
 /*
  * @RefreshScope
  * Anotación que permite actualizar los componentes del contenedor de spring en tiempo real, sin reiniciar la aplicación.
- * Es decir, aquellas clases anotadas con @Component y sus derivados (@Service, @RestController, etc).
- * Esto también aplica a los atributos inyectados con @Value y @Autowired.
- * Este proecedimiento se realizará mediante un endpoint de Spring Actuator
- * Requiere instalar esta dependencia en el "pom.xml"
+ * Ya no se usa en este controlador: cada "/actuator/refresh" lo volvía a crear y cada llamada pasaba por un proxy.
+ * Los valores que cambian en tiempo real ("configuracion.texto", tamaños de página) se leen de "ConfiguracionDinamica".
  */
-@RefreshScope
 @RestController
 public class ItemController {
 	
 	private final Logger logger = LoggerFactory.getLogger(ItemController.class);
 	
+	// Segundos desde la última sincronización de la réplica, presente solo si la respuesta se sirvió desde ella
+	private static final String HEADER_ANTIGUEDAD_CATALOGO = "X-Catalogo-Antiguedad";
+	
+	// Los clientes pueden guardar "/listar" y "/ver", pero deben revalidarlos con "If-None-Match" antes de usarlos
+	private static final String CACHE_CONTROL_REVALIDAR = "no-cache";
+	
+	// Params de la variante paginada de "/listar"
+	private static final String[] PARAMS_PAGINACION = { "filtro", "size", "fields" };
+	
 	@Autowired
 	private Environment env;
 	
@@ -55,14 +81,34 @@ public class ItemController {
 	@Autowired
 	private CircuitBreakerFactory circuitBreakerFactory;
 	
-	// Esta propiedad se encuentra en el Repositorio Git del "servidor de configuraciones"
-	@Value(value = "${configuracion.texto}")
-	private String texto;
+	// "configuracion.texto" se encuentra en el Repositorio Git del "servidor de configuraciones"
+	@Autowired
+	private ConfiguracionDinamica configuracionDinamica;
 
+	// Cadena de decoradores: "serviceReplica" -> "serviceCache" -> "serviceInterruptores" -> "serviceSingleFlight" -> "serviceReintentos" -> "serviceLimitado" -> "serviceHedged" -> "serviceFeign"
 	@Autowired
-	@Qualifier("serviceFeign")
+	@Qualifier("serviceReplica")
 	private ItemService itemService;
 
+	@Autowired
+	private CatalogoReplica catalogoReplica;
+
+	@Autowired
+	private ItemStreamingService itemStreamingService;
+
+	@Autowired
+	private ListadoSerializado listadoSerializado;
+
+	@Autowired
+	private ProductosUltimoConocido ultimoConocido;
+
+	@Autowired
+	private MetricasFallback metricasFallback;
+
+	@Autowired
+	@Qualifier("itemsIoExecutor")
+	private Executor itemsIoExecutor;
+
 	/*
 	 * @RequestParam(name = "nombre") String nombre:
 	 * Corresponde al "param" recibido por el "filter" del "API Gateway" 
@@ -74,16 +120,99 @@ public class ItemController {
 	 * Configurado en el archivo "application.yml" con "AddRequestHeader=token-request, 123456"
 	 * en el proyecto "springboot-sevicio-gatewaty-server" 
 	 * 
+	 * WebRequest.checkNotModified()
+	 * Agrega el header "ETag" y, si el cliente envió un "If-None-Match" que coincide, responde "304 Not Modified" sin cuerpo.
+	 * En ese caso el método debe devolver null. El ETag (débil) se calcula a partir de los datos con "EtiquetaItems", sin serializar.
+	 * 
+	 * ListadoSerializado
+	 * Si hay un listado ya serializado con los mismos datos, se escribe directamente en la respuesta y también se devuelve null.
+	 * Con la réplica disponible se identifica por su versión, sin armar la lista de items.
+	 * 
+	 * "filtro", "size" y "fields" solo se aplican en la variante paginada, sin "page" se responde 400 en lugar de ignorarlos.
 	 */
 	@GetMapping("/listar")
 	public List<Item> listar(
 			@RequestParam(name = "nombre", required = false) String nombre, 
-			@RequestHeader(name = "token-request", required = false) String header) {
+			@RequestHeader(name = "token-request", required = false) String header,
+			HttpServletRequest request,
+			HttpServletResponse response,
+			WebRequest webRequest) throws IOException {
 		
-		System.out.println("Filtro Params - nombre: " + nombre);
-		System.out.println("Filtro Header - token-request: " + header);
+		logger.debug("Filtro Params - nombre: " + nombre);
+		logger.debug("Filtro Header - token-request: " + header);
+		validarSinPagina(request);
 		
-		return this.itemService.findAll();
+		if (this.catalogoReplica.disponible()) {
+			response.setHeader(HEADER_ANTIGUEDAD_CATALOGO, String.valueOf(this.catalogoReplica.getAntiguedad().getSeconds()));
+		}
+		List<Item> items = null;
+		ListadoSerializado.Listado listado = this.listadoSerializado.deReplica();
+		long datos;
+		if (listado != null) {
+			datos = listado.getDatos();
+		} else {
+			items = this.itemService.findAll();
+			datos = EtiquetaItems.datos(items);
+			listado = this.listadoSerializado.buscar(items, datos);
+		}
+		response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL_REVALIDAR);
+		if (webRequest.checkNotModified(EtiquetaItems.de(datos, webRequest.getHeader(HttpHeaders.ACCEPT)))) {
+			return null;
+		}
+		if (listado != null && this.listadoSerializado.escribir(listado, request, response)) {
+			return null;
+		}
+		return items != null ? items : this.itemService.findAll();
+	}
+
+	/*
+	 * Variante de "/listar" activada con el param "stream=true".
+	 * 
+	 * StreamingResponseBody
+	 * Permite escribir directamente en el "OutputStream" de la respuesta.
+	 * Cada producto se escribe apenas se lee del "servicio-productos", sin armar la lista completa en memoria.
+	 */
+	@GetMapping(value = "/listar", params = { "stream=true", "!page" })
+	public ResponseEntity<StreamingResponseBody> listarStream(HttpServletRequest request) {
+		validarSinPagina(request);
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_JSON)
+				.body(salida -> this.itemStreamingService.listar(salida));
+	}
+
+	/*
+	 * Variante paginada de "/listar", activada con el param "page" (desde 0).
+	 * Ejemplo: /listar?page=0&size=50&filtro=mesa&fields=producto.nombre,producto.precio
+	 * 
+	 * El filtro por nombre usa el param "filtro" porque "nombre" lo agrega siempre el "API Gateway".
+	 * "size" se limita a "configuracion.listado.tamano-maximo".
+	 */
+	@GetMapping(value = "/listar", params = "page")
+	public ResponseEntity<StreamingResponseBody> listarPagina(
+			@RequestParam(name = "page") int page,
+			@RequestParam(name = "size", required = false) Integer size,
+			@RequestParam(name = "filtro", required = false) String filtro,
+			@RequestParam(name = "fields", required = false) List<String> fields) {
+		
+		if (page < 0 || (size != null && size < 1)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "page debe ser mayor o igual a 0 y size mayor a 0");
+		}
+		ConfiguracionDinamica.Ajustes ajustes = this.configuracionDinamica.actual();
+		int tamano = size == null ? ajustes.getTamanoPagina() : Math.min(size, ajustes.getTamanoMaximoPagina());
+		ConsultaItems consulta = new ConsultaItems(page, tamano, filtro, fields);
+		
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_JSON)
+				.body(salida -> this.itemStreamingService.listarPagina(consulta, salida));
+	}
+
+	// Los params de la variante paginada sin "page": se rechazan para que el cliente no reciba el listado completo sin filtrar
+	private static void validarSinPagina(HttpServletRequest request) {
+		for (String param : PARAMS_PAGINACION) {
+			if (request.getParameter(param) != null) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "El param " + param + " requiere el param page");
+			}
+		}
 	}
 
 	/*
@@ -98,7 +227,10 @@ public class ItemController {
 	 */
 	//@HystrixCommand(fallbackMethod = "metodoAlternativo")
 	@GetMapping("/ver/{id}/cantidad/{cantidad}")
-	public Item detalle(@PathVariable Long id, @PathVariable Integer cantidad) {
+	public Item detalle(@PathVariable Long id, @PathVariable Integer cantidad, HttpServletResponse response, WebRequest webRequest) {
+		if (this.catalogoReplica.disponible() && this.catalogoReplica.buscar(id) != null) {
+			response.setHeader(HEADER_ANTIGUEDAD_CATALOGO, String.valueOf(this.catalogoReplica.getAntiguedad().getSeconds()));
+		}
 		/*
 		 * Implementación de resiliencia con la forma programática(programación funcional)
 		 * .create("items")
@@ -114,13 +246,21 @@ public class ItemController {
 		 * Contiene la excepción en caso falle la comunicación hacia el microservicio.
 		 * Se emite un argumento que corresponde a una excepción, el cual es una instancia de "Throwable"
 		 */
-		return this.circuitBreakerFactory
+		Item item = this.circuitBreakerFactory
 				.create("items")
 				.run(
 						() -> this.itemService.findById(id, cantidad), 
 						e -> metodoAlternativo(id, cantidad, e)
 						);
-	
+		
+		// Las respuestas del método alternativo cambian en cada segundo con la "antiguedad", no llevan ETag
+		if (!item.tieneAntiguedad()) {
+			response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL_REVALIDAR);
+			if (webRequest.checkNotModified(EtiquetaItems.de(item, webRequest.getHeader(HttpHeaders.ACCEPT)))) {
+				return null;
+			}
+		}
+		return item;
 	}
 	
 	// Anotación que implementa un circuit breaker con Resilience4j. 
@@ -148,48 +288,70 @@ public class ItemController {
 	@TimeLimiter(name = "items")	
 	@GetMapping("/ver3/{id}/cantidad/{cantidad}")
 	public CompletableFuture<Item> detalle3(@PathVariable Long id, @PathVariable Integer cantidad) {
-		return CompletableFuture.supplyAsync(() ->  this.itemService.findById(id, cantidad));	
+		// La llamada bloqueante se ejecuta en el pool "itemsIoExecutor" y no en el "ForkJoinPool.commonPool()"
+		return CompletableFuture.supplyAsync(() ->  this.itemService.findById(id, cantidad), this.itemsIoExecutor);	
 	}
 	
 	
+	/*
+	 * Consulta varios productos en una sola llamada.
+	 * Recibe una lista de {id, cantidad} y devuelve los items en el mismo orden.
+	 * Una solicitud nula o sin id o cantidad se responde con 400, antes de llegar a la cadena de "ItemService".
+	 */
+	@PostMapping("/ver/batch")
+	public List<Item> detalleLote(@RequestBody List<SolicitudItem> solicitudes) {
+		for (int i = 0; i < solicitudes.size(); i++) {
+			SolicitudItem solicitud = solicitudes.get(i);
+			if (solicitud == null || solicitud.getId() == null || solicitud.getCantidad() == null) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "La solicitud " + i + " debe tener id y cantidad");
+			}
+		}
+		return this.itemService.findAllById(solicitudes);
+	}
+	
 	/*
 	 * Método alternativo con una firma igual al método "detalle()"
-	 * Este método podría incluso, comunicarse con otra instancia de un microservicio,
-	 * sea con Feign o RestTemplate.
+	 * Responde con la última versión conocida del producto, indicando su antigüedad en segundos.
+	 * Si el producto nunca se obtuvo con éxito, responde 503 en lugar de inventar un producto.
+	 * La última versión conocida solo cubre fallas de disponibilidad: un 4xx del servicio-productos (por ejemplo un 404
+	 * de un producto eliminado) se responde con el mismo estado, no con una copia vieja ni con 503.
+	 * 
+	 * Con el circuito abierto se llama en cada request, por eso reutiliza el producto ya decodificado
+	 * de "ProductosUltimoConocido" y la instancia compartida de "ProductoNoDisponibleException".
 	 */
 	public Item metodoAlternativo(Long id, Integer cantidad, Throwable e) {
 		
+		int estado = estadoErrorDelCliente(e);
+		if (estado != 0) {
+			throw new ResponseStatusException(estado, e.getMessage(), e);
+		}
 		logger.info(e.getMessage());
-		Item item = new Item();
-		Producto producto = new Producto();
+		this.metricasFallback.registrar("servlet", e);
+		ProductosUltimoConocido.Registro registro = this.ultimoConocido.buscar(id);
+		if (registro == null) {
+			throw ProductoNoDisponibleException.INSTANCIA;
+		}
 		
-		item.setCantidad(cantidad);
-		producto.setId(id);
-		producto.setNombre("Camara Sony");
-		producto.setPrecio(5000D);
-		producto.setCreateAt(new Date());
-		item.setProducto(producto);
-	
-				
+		Item item = new Item(registro.getProducto(), cantidad);
+		item.setAntiguedad(registro.getAntiguedad());
 		return item;
 	}
 	
+	// Estado 4xx de la respuesta del servicio-productos, o 0 si la falla no es un error del cliente
+	private static int estadoErrorDelCliente(Throwable e) {
+		Throwable causa = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+		if (causa instanceof FeignException) {
+			int estado = ((FeignException) causa).status();
+			return estado >= 400 && estado < 500 ? estado : 0;
+		}
+		return causa instanceof HttpClientErrorException ? ((HttpClientErrorException) causa).getRawStatusCode() : 0;
+	}
+	
 	// Método alternativo correspondiente al método "detalle3()"
+	// El item ya está disponible, se devuelve un "CompletableFuture" completado sin pasar por un pool de hilos
 	public CompletableFuture<Item> metodoAlternativo2(Long id, Integer cantidad, Throwable e) {
 		
-		logger.info(e.getMessage());
-		Item item = new Item();
-		Producto producto = new Producto();
-		
-		item.setCantidad(cantidad);
-		producto.setId(id);
-		producto.setNombre("Camara Sony");
-		producto.setPrecio(5000D);
-		producto.setCreateAt(new Date());
-		item.setProducto(producto);
-	
-				
-		return CompletableFuture.supplyAsync(() -> item);
+		return CompletableFuture.completedFuture(metodoAlternativo(id, cantidad, e));
 	}
 	
 	// Endpoint que imprime las propiedades configuaradas en nuestro "servidor de configuraciones"
@@ -198,11 +360,12 @@ public class ItemController {
 	public ResponseEntity<?> obtenerConfig(
 			@Value(value = "${server.port}") String puerto) {
 		
-		logger.info("Config server - Texto: " + this.texto);
+		String texto = this.configuracionDinamica.actual().getTexto();
+		logger.info("Config server - Texto: " + texto);
 		logger.info("Config server - Puerto: " + puerto);
 		
 		Map<String, String> json = new HashMap<>();		
-		json.put("texto", this.texto);
+		json.put("texto", texto);
 		json.put("puerto", puerto);
 		
 		// Validación de que existe algún "profile" y que este sea igual a "dev"
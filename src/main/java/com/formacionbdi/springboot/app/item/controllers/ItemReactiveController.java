@@ -0,0 +1,145 @@
+package com.formacionbdi.springboot.app.item.controllers;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.ConfiguracionDinamica;
+import com.formacionbdi.springboot.app.item.models.Item;
+import com.formacionbdi.springboot.app.item.models.service.ItemReactiveService;
+import com.formacionbdi.springboot.app.item.models.service.ProductoNoDisponibleException;
+import com.formacionbdi.springboot.app.item.models.service.ProductosUltimoConocido;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.timelimiter.TimeLimiterOperator;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/*
+ * Endpoints equivalentes a los de "ItemController" pero devolviendo "Mono" y "Flux".
+ * Spring MVC se suscribe a estos tipos y libera el hilo de Tomcat mientras se espera al "servicio-productos".
+ *
+ * El circuit breaker y el time limiter "items" se obtienen de los registros de Resilience4j,
+ * por lo que usan la configuración del "application.yml" y comparten estado con "detalle2()" y "detalle3()".
+ * Cuando "ConfiguracionDinamica" los reemplaza en el registro, se toma la instancia nueva.
+ */
+@RestController
+@RequestMapping("/reactivo")
+public class ItemReactiveController {
+
+	private final Logger logger = LoggerFactory.getLogger(ItemReactiveController.class);
+
+	@Autowired
+	@Qualifier("serviceReactive")
+	private ItemReactiveService itemService;
+
+	@Autowired
+	private ProductosUltimoConocido ultimoConocido;
+
+	@Autowired
+	private MetricasFallback metricasFallback;
+
+	@Autowired
+	private CircuitBreakerRegistry circuitBreakerRegistry;
+
+	@Autowired
+	private TimeLimiterRegistry timeLimiterRegistry;
+
+	private volatile CircuitBreaker circuitBreaker;
+	private volatile TimeLimiter timeLimiter;
+
+	@PostConstruct
+	public void inicializar() {
+		this.circuitBreaker = this.circuitBreakerRegistry.circuitBreaker(ConfiguracionDinamica.ITEMS);
+		this.timeLimiter = this.timeLimiterRegistry.timeLimiter(ConfiguracionDinamica.ITEMS);
+		this.circuitBreakerRegistry.getEventPublisher().onEntryReplaced(evento -> {
+			if (ConfiguracionDinamica.ITEMS.equals(evento.getNewEntry().getName())) {
+				this.circuitBreaker = evento.getNewEntry();
+			}
+		});
+		this.timeLimiterRegistry.getEventPublisher().onEntryReplaced(evento -> {
+			if (ConfiguracionDinamica.ITEMS.equals(evento.getNewEntry().getName())) {
+				this.timeLimiter = evento.getNewEntry();
+			}
+		});
+	}
+
+	/*
+	 * transformDeferred()
+	 * Aplica primero el "TimeOut" y luego el circuit breaker, así los "TimeOut" también cuentan como fallos.
+	 */
+	@GetMapping("/listar")
+	public Flux<Item> listar() {
+		return this.itemService.findAll()
+				.transformDeferred(TimeLimiterOperator.of(this.timeLimiter))
+				.transformDeferred(CircuitBreakerOperator.of(this.circuitBreaker));
+	}
+
+	@GetMapping("/ver/{id}/cantidad/{cantidad}")
+	public Mono<Item> detalle(@PathVariable Long id, @PathVariable Integer cantidad) {
+		return this.itemService.findById(id, cantidad)
+				.transformDeferred(TimeLimiterOperator.of(this.timeLimiter))
+				.transformDeferred(CircuitBreakerOperator.of(this.circuitBreaker))
+				.onErrorResume(e -> this.metodoAlternativo(id, cantidad, e));
+	}
+
+	// Método alternativo equivalente al "metodoAlternativo()" de "ItemController", un 4xx se responde con el mismo estado
+	public Mono<Item> metodoAlternativo(Long id, Integer cantidad, Throwable e) {
+
+		if (e instanceof WebClientResponseException && ((WebClientResponseException) e).getStatusCode().is4xxClientError()) {
+			return Mono.error(new ResponseStatusException(((WebClientResponseException) e).getRawStatusCode(), e.getMessage(), e));
+		}
+		logger.info(e.getMessage());
+		this.metricasFallback.registrar("reactivo", e);
+		ProductosUltimoConocido.Registro registro = this.ultimoConocido.buscar(id);
+		if (registro == null) {
+			return Mono.error(ProductoNoDisponibleException.INSTANCIA);
+		}
+
+		Item item = new Item(registro.getProducto(), cantidad);
+		item.setAntiguedad(registro.getAntiguedad());
+		return Mono.just(item);
+	}
+
+	@PostMapping("/crear")
+	@ResponseStatus(code = HttpStatus.CREATED)
+	public Mono<Producto> crear(@RequestBody Producto producto) {
+
+		return this.itemService.save(producto);
+	}
+
+	@PutMapping("/editar/{id}")
+	@ResponseStatus(code = HttpStatus.CREATED)
+	public Mono<Producto> editar(@RequestBody Producto producto, @PathVariable Long id) {
+
+		return this.itemService.update(producto, id);
+	}
+
+	@DeleteMapping("/eliminar/{id}")
+	@ResponseStatus(code = HttpStatus.NO_CONTENT)
+	public Mono<Void> eliminar(@PathVariable Long id) {
+
+		return this.itemService.deleteById(id);
+	}
+
+}
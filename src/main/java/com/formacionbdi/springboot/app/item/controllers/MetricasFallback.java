@@ -0,0 +1,60 @@
+package com.formacionbdi.springboot.app.item.controllers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Cuenta las respuestas entregadas por los métodos alternativos en lugar de datos reales.
+ * Se publica como "items.fallback" con los tags:
+ * - controlador: servlet ("ItemController") o reactivo ("ItemReactiveController")
+ * - causa: circuito-abierto, timeout o error
+ *
+ * Los contadores se registran una sola vez por controlador, ya que con el circuito abierto
+ * este método se llama en cada request.
+ */
+@Component
+public class MetricasFallback {
+
+	private static final String[] CAUSAS = { "circuito-abierto", "timeout", "error" };
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	// Por cada controlador, un contador por causa en el orden de "CAUSAS"
+	private final Map<String, Counter[]> contadores = new ConcurrentHashMap<>();
+
+	public void registrar(String controlador, Throwable e) {
+		this.contadores.computeIfAbsent(controlador, this::registrarContadores)[causa(e)].increment();
+	}
+
+	private Counter[] registrarContadores(String controlador) {
+		Counter[] porCausa = new Counter[CAUSAS.length];
+		for (int i = 0; i < CAUSAS.length; i++) {
+			porCausa[i] = Counter.builder("items.fallback")
+					.description("Respuestas entregadas por los métodos alternativos")
+					.tag("controlador", controlador)
+					.tag("causa", CAUSAS[i])
+					.register(this.meterRegistry);
+		}
+		return porCausa;
+	}
+
+	private static int causa(Throwable e) {
+		if (e instanceof CallNotPermittedException) {
+			return 0;
+		}
+		if (e instanceof TimeoutException) {
+			return 1;
+		}
+		return 2;
+	}
+
+}
@@ -0,0 +1,18 @@
+package com.formacionbdi.springboot.app.item.controllers;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * El método solo atiende las peticiones que incluyen la preferencia "respond-async" en el header "Prefer" (RFC 7240).
+ * Las demás peticiones a la misma ruta las atiende el método sin esta anotación. Lo evalúa "CondicionRespuestaAsincrona".
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RespuestaAsincrona {
+
+}
@@ -0,0 +1,86 @@
+package com.formacionbdi.springboot.app.item.models;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+
+/*
+ * Parámetros de "/listar?page=" recibidos por el "ItemController".
+ *
+ * page / size: número de página (desde 0) y cantidad de items por página.
+ * filtro: texto que debe contener el nombre del producto, sin distinguir mayúsculas.
+ * fields: campos a incluir en cada item, por ejemplo "producto.nombre,producto.precio,total".
+ *         Los campos del producto se indican con el prefijo "producto.". Vacío incluye todos.
+ */
+public class ConsultaItems {
+	// ATRIBUTOS
+	private static final String PREFIJO_PRODUCTO = "producto.";
+
+	private final int page;
+	private final int size;
+	private final String filtro;
+	private final List<String> fields;
+
+	// CONSTRUCTORES
+	public ConsultaItems(int page, int size, String filtro, List<String> fields) {
+		this.page = page;
+		this.size = size;
+		this.filtro = filtro == null || filtro.isBlank() ? null : filtro.toLowerCase();
+		this.fields = fields == null ? Collections.emptyList() : fields.stream()
+				.map(String::trim)
+				.filter(campo -> !campo.isEmpty())
+				.distinct()
+				.collect(Collectors.toList());
+	}
+
+	// MÉTODOS
+	public boolean coincide(Producto producto) {
+		return this.filtro == null
+				|| (producto.getNombre() != null && producto.getNombre().toLowerCase().contains(this.filtro));
+	}
+
+	public boolean tieneProyeccion() {
+		return !this.fields.isEmpty();
+	}
+
+	/*
+	 * Campos del producto que se piden al "servicio-productos", separados por coma.
+	 * Siempre se incluyen "id" y "precio" porque el "Item" los necesita para calcular el total.
+	 * null si no hay proyección, es decir, se piden todos los campos.
+	 */
+	public String getCamposProducto() {
+		if (!this.tieneProyeccion()) {
+			return null;
+		}
+		Set<String> campos = new LinkedHashSet<>();
+		campos.add("id");
+		campos.add("precio");
+		this.fields.stream()
+				.filter(campo -> campo.startsWith(PREFIJO_PRODUCTO))
+				.map(campo -> campo.substring(PREFIJO_PRODUCTO.length()))
+				.forEach(campos::add);
+		return String.join(",", campos);
+	}
+
+	// GETTERS
+	public int getPage() {
+		return page;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public String getFiltro() {
+		return filtro;
+	}
+
+	public List<String> getFields() {
+		return fields;
+	}
+
+}
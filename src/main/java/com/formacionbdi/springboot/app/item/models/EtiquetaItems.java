@@ -0,0 +1,91 @@
+package com.formacionbdi.springboot.app.item.models;
+
+import java.util.List;
+
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+
+/*
+ * ETag débil ("W/") de las respuestas de "/ver" y "/listar", calculado a partir de los datos y no de los bytes serializados,
+ * así se puede responder "304 Not Modified" sin serializar la respuesta.
+ *
+ * Es débil porque identifica los datos y no los bytes: la misma respuesta con y sin gzip lleva el mismo ETag.
+ * Además, con un ETag fuerte Tomcat no comprime la respuesta ("noCompressionStrongETag" está activo por defecto).
+ *
+ * Es un hash FNV-1a de 64 bits de cada campo que aparece en el JSON de "Item": los del producto y la cantidad
+ * ("total" se calcula a partir de ellos). Se calcula en dos partes:
+ * - "datos()": solo los items, "ListadoSerializado" lo guarda junto con la respuesta ya serializada.
+ * - "de()": agrega el header "Accept", ya que JSON, Smile y CBOR son representaciones distintas del mismo recurso.
+ *
+ * Al cambiar los campos serializados por "Item.Serializador" se debe cambiar "VERSION", así los ETag anteriores dejan de coincidir.
+ */
+public final class EtiquetaItems {
+
+	private static final long VERSION = 2;
+	private static final long BASE = 0xcbf29ce484222325L;
+	private static final long PRIMO = 0x100000001b3L;
+
+	private EtiquetaItems() {
+
+	}
+
+	public static String de(Item item, String accept) {
+		return de(mezclar(mezclar(BASE, VERSION), item), accept);
+	}
+
+	public static String de(List<Item> items, String accept) {
+		return de(datos(items), accept);
+	}
+
+	public static String de(long datos, String accept) {
+		return formato(mezclar(datos, accept));
+	}
+
+	public static long datos(List<Item> items) {
+		long hash = mezclar(mezclar(BASE, VERSION), items.size());
+		for (Item item : items) {
+			hash = mezclar(hash, item);
+		}
+		return hash;
+	}
+
+	private static long mezclar(long hash, Item item) {
+		Producto producto = item.getProducto();
+		if (producto == null) {
+			hash = mezclar(hash, 0);
+		} else {
+			hash = mezclar(hash, producto.getId() == null ? 0 : producto.getId());
+			hash = mezclar(hash, producto.getNombre());
+			hash = mezclar(hash, producto.getPrecio() == null ? 0 : Double.doubleToLongBits(producto.getPrecio()));
+			hash = mezclar(hash, producto.getCreateAt() == null ? 0 : producto.getCreateAt().getTime());
+			hash = mezclar(hash, producto.getPort() == null ? 0 : producto.getPort());
+		}
+		return mezclar(hash, item.getCantidad());
+	}
+
+	private static long mezclar(long hash, long valor) {
+		for (int i = 0; i < 8; i++) {
+			hash = (hash ^ (valor & 0xff)) * PRIMO;
+			valor >>>= 8;
+		}
+		return hash;
+	}
+
+	// Se agrega el largo antes del texto, así "ab" + "c" no coincide con "a" + "bc"
+	private static long mezclar(long hash, String texto) {
+		if (texto == null) {
+			return mezclar(hash, -1);
+		}
+		hash = mezclar(hash, texto.length());
+		for (int i = 0; i < texto.length(); i++) {
+			char caracter = texto.charAt(i);
+			hash = (hash ^ (caracter & 0xff)) * PRIMO;
+			hash = (hash ^ (caracter >>> 8)) * PRIMO;
+		}
+		return hash;
+	}
+
+	private static String formato(long hash) {
+		return "W/\"" + Long.toHexString(hash) + "\"";
+	}
+
+}
@@ -1,25 +1,56 @@
 package com.formacionbdi.springboot.app.item.models;
 
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import com.formacionbdi.springboot.app.commons.models.entity.Producto;
 
+/*
+ * La cantidad y el total se guardan como primitivos y el total se calcula una sola vez,
+ * al crear el item o al cambiar el producto o la cantidad, en lugar de en cada serialización.
+ *
+ * @JsonSerialize(using = Item.Serializador.class)
+ * Escribe los campos primitivos directamente con el "JsonGenerator", sin los getters boxed (Integer, Double, Long).
+ * El JSON es el mismo de antes: producto, cantidad, antiguedad (solo si tiene) y total.
+ */
+@JsonSerialize(using = Item.Serializador.class)
 public class Item {
+
+	// Valor de "antiguedad" cuando el item no viene de un método alternativo
+	private static final long SIN_ANTIGUEDAD = -1;
+
 	// ATRIBUTOS
 	private Producto producto;
-	private Integer cantidad;
+	private int cantidad;
+	private double total;
+	// Segundos desde que se obtuvo el producto. Solo se informa cuando responde un método alternativo con datos guardados
+	private long antiguedad = SIN_ANTIGUEDAD;
 
 	// CONSTRUCTORES
 	public Item() {
 
 	}
 
-	public Item(Producto producto, Integer cantidad) {
+	public Item(Producto producto, int cantidad) {
 		this.producto = producto;
 		this.cantidad = cantidad;
+		this.calcularTotal();
 	}
 
 	// MÉTODOS
-	public Double getTotal() {
-		return producto.getPrecio() * cantidad.doubleValue();
+	public double getTotal() {
+		return total;
+	}
+
+	private void calcularTotal() {
+		this.total = this.producto == null || this.producto.getPrecio() == null ? 0 : this.producto.getPrecio() * this.cantidad;
+	}
+
+	public boolean tieneAntiguedad() {
+		return this.antiguedad != SIN_ANTIGUEDAD;
 	}
 
 	// GETTERS AND SETTERS
@@ -29,14 +60,46 @@ public class Item {
 
 	public void setProducto(Producto producto) {
 		this.producto = producto;
+		this.calcularTotal();
 	}
 
-	public Integer getCantidad() {
+	public int getCantidad() {
 		return cantidad;
 	}
 
-	public void setCantidad(Integer cantidad) {
+	public void setCantidad(int cantidad) {
 		this.cantidad = cantidad;
+		this.calcularTotal();
+	}
+
+	public Long getAntiguedad() {
+		return this.tieneAntiguedad() ? this.antiguedad : null;
+	}
+
+	public void setAntiguedad(long antiguedad) {
+		this.antiguedad = antiguedad;
+	}
+
+	public static class Serializador extends StdSerializer<Item> {
+
+		private static final long serialVersionUID = 1L;
+
+		public Serializador() {
+			super(Item.class);
+		}
+
+		@Override
+		public void serialize(Item item, JsonGenerator generador, SerializerProvider provider) throws IOException {
+			generador.writeStartObject(item);
+			// El producto se sigue serializando con la configuración del ObjectMapper (fechas, etc.)
+			provider.defaultSerializeField("producto", item.producto, generador);
+			generador.writeNumberField("cantidad", item.cantidad);
+			if (item.tieneAntiguedad()) {
+				generador.writeNumberField("antiguedad", item.antiguedad);
+			}
+			generador.writeNumberField("total", item.total);
+			generador.writeEndObject();
+		}
 	}
 
 }
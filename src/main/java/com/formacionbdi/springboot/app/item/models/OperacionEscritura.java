@@ -0,0 +1,150 @@
+package com.formacionbdi.springboot.app.item.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+
+/*
+ * Escritura (crear, editar o eliminar) aceptada en modo diferido por "EscrituraDiferidaService".
+ * Es también la respuesta del endpoint "/escrituras/{id}" y cada línea del diario en disco.
+ */
+@JsonInclude(Include.NON_NULL)
+public class OperacionEscritura {
+
+	public enum Tipo {
+		CREAR, EDITAR, ELIMINAR
+	}
+
+	public enum Estado {
+		PENDIENTE, COMPLETADA, FALLIDA
+	}
+
+	// ATRIBUTOS
+	private String id;
+	private Tipo tipo;
+	private Long productoId;
+	private Producto producto;
+	// Se envía al servicio-productos en el header "Idempotency-Key", igual en cada reintento
+	private String claveIdempotencia;
+	// volatile y asignado al final de "terminar()", así quien consulta el estado ve también el resultado
+	private volatile Estado estado;
+	private volatile int intentos;
+	private String error;
+	// Producto devuelto por el servicio-productos al crear o editar
+	private Producto resultado;
+	private long recibidaEn;
+	private Long terminadaEn;
+
+	// CONSTRUCTORES
+	public OperacionEscritura() {
+
+	}
+
+	public OperacionEscritura(String id, Tipo tipo, Long productoId, Producto producto, String claveIdempotencia) {
+		this.id = id;
+		this.tipo = tipo;
+		this.productoId = productoId;
+		this.producto = producto;
+		this.claveIdempotencia = claveIdempotencia;
+		this.estado = Estado.PENDIENTE;
+		this.recibidaEn = System.currentTimeMillis();
+	}
+
+	// MÉTODOS
+	public void terminar(Estado estado, Producto resultado, String error) {
+		this.resultado = resultado;
+		this.error = error;
+		this.terminadaEn = System.currentTimeMillis();
+		this.estado = estado;
+	}
+
+	// GETTERS AND SETTERS
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public Tipo getTipo() {
+		return tipo;
+	}
+
+	public void setTipo(Tipo tipo) {
+		this.tipo = tipo;
+	}
+
+	public Long getProductoId() {
+		return productoId;
+	}
+
+	public void setProductoId(Long productoId) {
+		this.productoId = productoId;
+	}
+
+	public Producto getProducto() {
+		return producto;
+	}
+
+	public void setProducto(Producto producto) {
+		this.producto = producto;
+	}
+
+	public String getClaveIdempotencia() {
+		return claveIdempotencia;
+	}
+
+	public void setClaveIdempotencia(String claveIdempotencia) {
+		this.claveIdempotencia = claveIdempotencia;
+	}
+
+	public Estado getEstado() {
+		return estado;
+	}
+
+	public void setEstado(Estado estado) {
+		this.estado = estado;
+	}
+
+	public int getIntentos() {
+		return intentos;
+	}
+
+	public void setIntentos(int intentos) {
+		this.intentos = intentos;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+	public Producto getResultado() {
+		return resultado;
+	}
+
+	public void setResultado(Producto resultado) {
+		this.resultado = resultado;
+	}
+
+	public long getRecibidaEn() {
+		return recibidaEn;
+	}
+
+	public void setRecibidaEn(long recibidaEn) {
+		this.recibidaEn = recibidaEn;
+	}
+
+	public Long getTerminadaEn() {
+		return terminadaEn;
+	}
+
+	public void setTerminadaEn(Long terminadaEn) {
+		this.terminadaEn = terminadaEn;
+	}
+
+}
@@ -0,0 +1,36 @@
+package com.formacionbdi.springboot.app.item.models;
+
+// Representa cada par {id, cantidad} recibido por el endpoint "/ver/batch"
+public class SolicitudItem {
+	// ATRIBUTOS
+	private Long id;
+	private Integer cantidad;
+
+	// CONSTRUCTORES
+	public SolicitudItem() {
+
+	}
+
+	public SolicitudItem(Long id, Integer cantidad) {
+		this.id = id;
+		this.cantidad = cantidad;
+	}
+
+	// GETTERS AND SETTERS
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public Integer getCantidad() {
+		return cantidad;
+	}
+
+	public void setCantidad(Integer cantidad) {
+		this.cantidad = cantidad;
+	}
+
+}
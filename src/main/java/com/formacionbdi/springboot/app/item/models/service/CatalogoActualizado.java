@@ -0,0 +1,19 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+/*
+ * Evento publicado por "CatalogoReplica" cada vez que cambia su versión, es decir, cuando cambia algún producto.
+ * Lo escucha "ListadoSerializado" para volver a serializar "/listar".
+ */
+public class CatalogoActualizado {
+
+	private final long version;
+
+	public CatalogoActualizado(long version) {
+		this.version = version;
+	}
+
+	public long getVersion() {
+		return this.version;
+	}
+
+}
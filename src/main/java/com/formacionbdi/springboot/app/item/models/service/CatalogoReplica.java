@@ -0,0 +1,298 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.clientes.ProductoClienteRest;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Réplica local del catálogo completo del "servicio-productos".
+ *
+ * Los productos se guardan en una "Instantanea" inmutable: un arreglo ordenado de ids (long primitivos)
+ * y un arreglo paralelo de productos, donde se busca por id con búsqueda binaria.
+ * Cada actualización arma una instantánea nueva y la reemplaza (copy-on-write),
+ * por lo que las lecturas no usan bloqueos.
+ *
+ * Una tarea programada mantiene la réplica al día:
+ * - Si el "servicio-productos" soporta el parámetro "modificadoDesde", solo se piden los cambios desde la última sincronización.
+ *   El cursor es la hora de esta instancia y la del "servicio-productos" puede estar atrasada, por eso se pide desde
+ *   "solapamiento" antes. Un cambio reciente se recibe más de una vez y vuelve a cambiar la versión, pero no se pierden cambios.
+ * - Cada "resincronizacion-completa" (o siempre, si no hay soporte de cambios) se descarga el catálogo completo,
+ *   lo cual también elimina los productos borrados.
+ *
+ * Cada cambio de versión se publica como el evento "CatalogoActualizado". Una descarga completa igual a la réplica
+ * no cambia la versión.
+ *
+ * Costo de las escrituras: "aplicar()" y "eliminar()" copian los dos arreglos (O(n) por escritura, sin ordenar ni crear objetos
+ * por producto). Con un catálogo de miles de productos es menos que serializar la respuesta, pero con escrituras muy frecuentes
+ * sobre un catálogo grande conviene dejar que las aplique la sincronización, que copia una sola vez por lote de cambios.
+ */
+@Component
+public class CatalogoReplica {
+
+	private final Logger logger = LoggerFactory.getLogger(CatalogoReplica.class);
+
+	// ATRIBUTOS
+	@Autowired
+	private ProductoClienteRest clienteFeign;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Value("${configuracion.replica.habilitado:false}")
+	private boolean habilitado;
+
+	@Value("${configuracion.replica.cambios-soportados:false}")
+	private boolean cambiosSoportados;
+
+	@Value("${configuracion.replica.resincronizacion-completa:10m}")
+	private Duration resincronizacionCompleta;
+
+	// Margen que se resta al cursor de cambios, cubre la diferencia de reloj con el servicio-productos
+	@Value("${configuracion.replica.solapamiento:30s}")
+	private Duration solapamiento;
+
+	// Pasado este tiempo sin sincronizar, la réplica deja de usarse y se consulta al servicio-productos
+	@Value("${configuracion.replica.antiguedad-maxima:2m}")
+	private Duration antiguedadMaxima;
+
+	private volatile Instantanea actual;
+	private long ultimaCompleta;
+
+	@PostConstruct
+	public void inicializar() {
+		Gauge.builder("items.replica.antiguedad", this, replica -> replica.getAntiguedad().getSeconds())
+				.description("Segundos desde la última sincronización de la réplica")
+				.baseUnit("seconds")
+				.register(this.meterRegistry);
+		Gauge.builder("items.replica.productos", this, replica -> replica.actual == null ? 0 : replica.actual.ids.length)
+				.description("Productos en la réplica local")
+				.register(this.meterRegistry);
+	}
+
+	// MÉTODOS
+	// Indica si la réplica tiene datos y su antigüedad está dentro del máximo configurado
+	public boolean disponible() {
+		return this.habilitado && this.actual != null && this.getAntiguedad().compareTo(this.antiguedadMaxima) <= 0;
+	}
+
+	public Duration getAntiguedad() {
+		Instantanea instantanea = this.actual;
+		return instantanea == null ? Duration.ZERO : Duration.ofMillis(System.currentTimeMillis() - instantanea.sincronizadaEn);
+	}
+
+	// Identifica el contenido actual de la réplica, cambia con cada actualización que modifica productos
+	public long getVersion() {
+		Instantanea instantanea = this.actual;
+		return instantanea == null ? 0 : instantanea.version;
+	}
+
+	public Producto buscar(long id) {
+		Instantanea instantanea = this.actual;
+		int posicion = Arrays.binarySearch(instantanea.ids, id);
+		return posicion >= 0 ? instantanea.productos[posicion] : null;
+	}
+
+	public List<Producto> listar() {
+		return Collections.unmodifiableList(Arrays.asList(this.actual.productos));
+	}
+
+	// Aplica las escrituras hechas desde este microservicio sin esperar la siguiente sincronización
+	public synchronized void aplicar(Producto producto) {
+		if (this.actual != null && producto != null && producto.getId() != null) {
+			this.reemplazar(this.actual.con(producto));
+		}
+	}
+
+	public synchronized void eliminar(Long id) {
+		if (this.actual != null && id != null) {
+			Instantanea nueva = this.actual.sin(id);
+			if (nueva != this.actual) {
+				this.reemplazar(nueva);
+			}
+		}
+	}
+
+	// "intervalo" en milisegundos, @Scheduled no acepta el formato "30s" en esta versión de Spring
+	@Scheduled(fixedDelayString = "${configuracion.replica.intervalo:30000}", initialDelay = 0)
+	public void sincronizar() {
+		if (!this.habilitado) {
+			return;
+		}
+		long inicio = System.currentTimeMillis();
+		try {
+			boolean completa = this.actual == null || !this.cambiosSoportados
+					|| inicio - this.ultimaCompleta >= this.resincronizacionCompleta.toMillis();
+			if (completa) {
+				this.sincronizarCompleta(inicio);
+			} else {
+				this.sincronizarCambios(inicio);
+			}
+		} catch (RuntimeException e) {
+			// La réplica anterior se mantiene hasta superar la antigüedad máxima
+			logger.warn("No se pudo sincronizar la réplica del catálogo: " + e.getMessage());
+		}
+	}
+
+	private void sincronizarCompleta(long inicio) {
+		Map<Long, Producto> productos = new TreeMap<>();
+		this.clienteFeign.listar().forEach(producto -> productos.put(producto.getId(), producto));
+
+		synchronized (this) {
+			// Sin cambios solo se actualiza la fecha, así la versión y los caches que dependen de ella se mantienen
+			if (this.actual != null && this.actual.igualA(productos)) {
+				this.actual = new Instantanea(this.actual, inicio);
+			} else {
+				long version = this.actual == null ? 1 : this.actual.version + 1;
+				this.reemplazar(new Instantanea(productos, version, inicio));
+			}
+			this.ultimaCompleta = inicio;
+		}
+	}
+
+	private void sincronizarCambios(long inicio) {
+		// El cursor es el inicio de la sincronización anterior, así no se pierden cambios hechos durante ella,
+		// menos el solapamiento por la diferencia de reloj con el servicio-productos
+		List<Producto> cambios = this.clienteFeign.listarModificados(this.actual.sincronizadaEn - this.solapamiento.toMillis());
+
+		synchronized (this) {
+			if (cambios.isEmpty()) {
+				this.actual = new Instantanea(this.actual, inicio);
+				return;
+			}
+			Map<Long, Producto> productos = this.actual.comoMapa();
+			cambios.forEach(producto -> productos.put(producto.getId(), producto));
+			this.reemplazar(new Instantanea(productos, this.actual.version + 1, inicio));
+		}
+	}
+
+	// Se llama dentro de un bloque synchronized, los escuchas solo deben programar su trabajo
+	private void reemplazar(Instantanea instantanea) {
+		this.actual = instantanea;
+		this.eventPublisher.publishEvent(new CatalogoActualizado(instantanea.version));
+	}
+
+	// Contenido inmutable de la réplica en un momento dado
+	private static final class Instantanea {
+		private final long[] ids;
+		private final Producto[] productos;
+		private final long version;
+		private final long sincronizadaEn;
+
+		// "productosOrdenados" debe estar ordenado por id, como un TreeMap
+		private Instantanea(Map<Long, Producto> productosOrdenados, long version, long sincronizadaEn) {
+			this.ids = new long[productosOrdenados.size()];
+			this.productos = new Producto[productosOrdenados.size()];
+			int i = 0;
+			for (Map.Entry<Long, Producto> producto : productosOrdenados.entrySet()) {
+				this.ids[i] = producto.getKey();
+				this.productos[i] = producto.getValue();
+				i++;
+			}
+			this.version = version;
+			this.sincronizadaEn = sincronizadaEn;
+		}
+
+		// Misma instantánea con una nueva fecha de sincronización, sin copiar los arreglos
+		private Instantanea(Instantanea anterior, long sincronizadaEn) {
+			this(anterior.ids, anterior.productos, anterior.version, sincronizadaEn);
+		}
+
+		private Instantanea(long[] ids, Producto[] productos, long version, long sincronizadaEn) {
+			this.ids = ids;
+			this.productos = productos;
+			this.version = version;
+			this.sincronizadaEn = sincronizadaEn;
+		}
+
+		// Nueva versión con el producto agregado o reemplazado, copiando los arreglos una sola vez
+		private Instantanea con(Producto producto) {
+			int posicion = Arrays.binarySearch(this.ids, producto.getId());
+			if (posicion >= 0) {
+				Producto[] productosNuevos = this.productos.clone();
+				productosNuevos[posicion] = producto;
+				return new Instantanea(this.ids, productosNuevos, this.version + 1, this.sincronizadaEn);
+			}
+			int insercion = -posicion - 1;
+			long[] idsNuevos = new long[this.ids.length + 1];
+			Producto[] productosNuevos = new Producto[this.productos.length + 1];
+			System.arraycopy(this.ids, 0, idsNuevos, 0, insercion);
+			System.arraycopy(this.productos, 0, productosNuevos, 0, insercion);
+			idsNuevos[insercion] = producto.getId();
+			productosNuevos[insercion] = producto;
+			System.arraycopy(this.ids, insercion, idsNuevos, insercion + 1, this.ids.length - insercion);
+			System.arraycopy(this.productos, insercion, productosNuevos, insercion + 1, this.productos.length - insercion);
+			return new Instantanea(idsNuevos, productosNuevos, this.version + 1, this.sincronizadaEn);
+		}
+
+		// Nueva versión sin el producto, o la misma instantánea si no existe
+		private Instantanea sin(long id) {
+			int posicion = Arrays.binarySearch(this.ids, id);
+			if (posicion < 0) {
+				return this;
+			}
+			long[] idsNuevos = new long[this.ids.length - 1];
+			Producto[] productosNuevos = new Producto[this.productos.length - 1];
+			System.arraycopy(this.ids, 0, idsNuevos, 0, posicion);
+			System.arraycopy(this.productos, 0, productosNuevos, 0, posicion);
+			System.arraycopy(this.ids, posicion + 1, idsNuevos, posicion, this.ids.length - posicion - 1);
+			System.arraycopy(this.productos, posicion + 1, productosNuevos, posicion, this.productos.length - posicion - 1);
+			return new Instantanea(idsNuevos, productosNuevos, this.version + 1, this.sincronizadaEn);
+		}
+
+		/*
+		 * Compara los datos de cada producto, "Producto" no implementa equals().
+		 * No se compara "port": cambia según la instancia del servicio-productos que respondió, no según el producto.
+		 */
+		private boolean igualA(Map<Long, Producto> productosOrdenados) {
+			if (productosOrdenados.size() != this.ids.length) {
+				return false;
+			}
+			int i = 0;
+			for (Map.Entry<Long, Producto> producto : productosOrdenados.entrySet()) {
+				if (this.ids[i] != producto.getKey() || !mismosDatos(this.productos[i], producto.getValue())) {
+					return false;
+				}
+				i++;
+			}
+			return true;
+		}
+
+		private static boolean mismosDatos(Producto a, Producto b) {
+			return Objects.equals(a.getNombre(), b.getNombre())
+					&& Objects.equals(a.getPrecio(), b.getPrecio())
+					&& Objects.equals(a.getCreateAt(), b.getCreateAt());
+		}
+
+		private TreeMap<Long, Producto> comoMapa() {
+			TreeMap<Long, Producto> mapa = new TreeMap<>();
+			for (int i = 0; i < this.ids.length; i++) {
+				mapa.put(this.ids[i], this.productos[i]);
+			}
+			return mapa;
+		}
+	}
+
+}
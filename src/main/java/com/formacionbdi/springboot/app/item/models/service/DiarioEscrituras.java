@@ -0,0 +1,228 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.formacionbdi.springboot.app.item.models.OperacionEscritura;
+
+/*
+ * Diario en disco de las escrituras diferidas: un archivo de solo agregado con una línea JSON por cambio de estado.
+ * Al iniciar, la última línea de cada operación indica si quedó pendiente y se debe volver a encolar.
+ *
+ * Las escrituras al archivo las hace un solo hilo ("items-escrituras-diario") con "group commit":
+ * cada "agregar()" deja sus líneas en una cola y espera; el hilo toma todo lo encolado, lo escribe y hace un solo fsync
+ * (si "sincronizar" está habilitado) para todo el grupo, y recién entonces libera a todos los que esperaban.
+ * Con muchas escrituras a la vez se hace un fsync por grupo y no uno por petición; con una sola, la espera es la misma de antes.
+ * Como solo ese hilo usa el canal, interrumpir un hilo de petición tampoco puede cerrarlo (FileChannel es interrumpible).
+ *
+ * Como el archivo solo crece, "compactar()" lo reescribe dejando solo las operaciones pendientes.
+ */
+class DiarioEscrituras implements Closeable {
+
+	private final Logger logger = LoggerFactory.getLogger(DiarioEscrituras.class);
+
+	// ATRIBUTOS
+	private final Path archivo;
+	private final ObjectMapper objectMapper;
+	private final boolean sincronizar;
+	// Protege "canal": lo usan el hilo escritor, "compactar()" y "close()"
+	private final Object bloqueoCanal = new Object();
+	private FileChannel canal;
+	private final BlockingQueue<Registro> porEscribir = new LinkedBlockingQueue<>();
+	private final Thread escritor;
+	// Marca encolada por "close()" para que el hilo escritor termine
+	private static final Registro FIN = new Registro(new byte[0]);
+	private volatile boolean cerrado;
+
+	// CONSTRUCTORES
+	DiarioEscrituras(Path archivo, ObjectMapper objectMapper, boolean sincronizar) throws IOException {
+		this.archivo = archivo;
+		this.objectMapper = objectMapper;
+		this.sincronizar = sincronizar;
+		this.canal = this.abrir();
+		this.escritor = new Thread(this::escribirGrupos, "items-escrituras-diario");
+		this.escritor.setDaemon(true);
+		this.escritor.start();
+	}
+
+	// MÉTODOS
+	// Operaciones cuya última línea está en estado PENDIENTE, en el orden en que fueron recibidas
+	synchronized List<OperacionEscritura> recuperar() throws IOException {
+		Map<String, OperacionEscritura> operaciones = new LinkedHashMap<>();
+		try (BufferedReader lector = Files.newBufferedReader(this.archivo, StandardCharsets.UTF_8)) {
+			String linea;
+			while ((linea = lector.readLine()) != null) {
+				if (linea.isBlank()) {
+					continue;
+				}
+				try {
+					OperacionEscritura operacion = this.objectMapper.readValue(linea, OperacionEscritura.class);
+					operaciones.put(operacion.getId(), operacion);
+				} catch (JsonProcessingException e) {
+					// Normalmente la última línea, escrita a medias antes de una caída
+					logger.warn("Línea inválida en el diario de escrituras, se descarta: " + e.getOriginalMessage());
+				}
+			}
+		}
+		List<OperacionEscritura> pendientes = new ArrayList<>();
+		for (OperacionEscritura operacion : operaciones.values()) {
+			if (operacion.getEstado() == OperacionEscritura.Estado.PENDIENTE) {
+				pendientes.add(operacion);
+			}
+		}
+		return pendientes;
+	}
+
+	// Vuelve cuando las líneas están escritas (y en disco, con "sincronizar"), junto con las de otros hilos que llegaron a la vez
+	void agregar(Collection<OperacionEscritura> operaciones) throws IOException {
+		if (operaciones.isEmpty()) {
+			return;
+		}
+		if (this.cerrado) {
+			throw new IOException("El diario de escrituras está cerrado");
+		}
+		Registro registro = new Registro(this.serializar(operaciones));
+		this.porEscribir.add(registro);
+		// "close()" pudo vaciar la cola antes de que se agregara este registro
+		if (this.cerrado && this.porEscribir.remove(registro)) {
+			throw new IOException("El diario de escrituras está cerrado");
+		}
+		try {
+			registro.escrito.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrumpido esperando el diario de escrituras");
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+		}
+	}
+
+	long getTamano() throws IOException {
+		synchronized (this.bloqueoCanal) {
+			return this.canal.size();
+		}
+	}
+
+	// Reescribe el diario en un archivo temporal y lo reemplaza, así una caída a mitad no pierde el diario anterior
+	synchronized void compactar(Collection<OperacionEscritura> pendientes) throws IOException {
+		Path temporal = this.archivo.resolveSibling(this.archivo.getFileName() + ".tmp");
+		Files.write(temporal, this.serializar(pendientes));
+		try (FileChannel canalTemporal = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+			canalTemporal.force(true);
+		}
+		synchronized (this.bloqueoCanal) {
+			this.canal.close();
+			Files.move(temporal, this.archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			this.canal = this.abrir();
+		}
+	}
+
+	// Las líneas que quedaron sin escribir fallan con IOException, quienes las esperaban ya no respondieron el 202
+	@Override
+	public synchronized void close() throws IOException {
+		this.cerrado = true;
+		// Sin interrumpir al hilo escritor: una interrupción durante "write()" cerraría el canal a mitad de un grupo
+		this.porEscribir.add(FIN);
+		try {
+			this.escritor.join(TimeUnit.SECONDS.toMillis(10));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		List<Registro> sinEscribir = new ArrayList<>();
+		this.porEscribir.drainTo(sinEscribir);
+		IOException cerrado = new IOException("El diario de escrituras está cerrado");
+		sinEscribir.forEach(registro -> registro.escrito.completeExceptionally(cerrado));
+		synchronized (this.bloqueoCanal) {
+			this.canal.close();
+		}
+	}
+
+	private void escribirGrupos() {
+		List<Registro> grupo = new ArrayList<>();
+		boolean fin = false;
+		while (!fin) {
+			try {
+				grupo.add(this.porEscribir.take());
+			} catch (InterruptedException e) {
+				return;
+			}
+			this.porEscribir.drainTo(grupo);
+			// Lo encolado antes de "FIN" se escribe, lo posterior lo rechaza "close()"
+			int posicionFin = grupo.indexOf(FIN);
+			if (posicionFin >= 0) {
+				this.porEscribir.addAll(grupo.subList(posicionFin + 1, grupo.size()));
+				grupo.subList(posicionFin, grupo.size()).clear();
+				fin = true;
+			}
+			if (grupo.isEmpty()) {
+				continue;
+			}
+			try {
+				synchronized (this.bloqueoCanal) {
+					for (Registro registro : grupo) {
+						ByteBuffer lineas = ByteBuffer.wrap(registro.lineas);
+						while (lineas.hasRemaining()) {
+							this.canal.write(lineas);
+						}
+					}
+					if (this.sincronizar) {
+						this.canal.force(false);
+					}
+				}
+				grupo.forEach(registro -> registro.escrito.complete(null));
+			} catch (IOException | RuntimeException e) {
+				grupo.forEach(registro -> registro.escrito.completeExceptionally(e));
+			}
+			grupo.clear();
+		}
+	}
+
+	private FileChannel abrir() throws IOException {
+		return FileChannel.open(this.archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	private byte[] serializar(Collection<OperacionEscritura> operaciones) throws IOException {
+		ByteArrayOutputStream lineas = new ByteArrayOutputStream();
+		for (OperacionEscritura operacion : operaciones) {
+			lineas.write(this.objectMapper.writeValueAsBytes(operacion));
+			lineas.write('\n');
+		}
+		return lineas.toByteArray();
+	}
+
+	// Líneas de un "agregar()" y el aviso de que ya están escritas
+	private static final class Registro {
+		private final byte[] lineas;
+		private final CompletableFuture<Void> escrito = new CompletableFuture<>();
+
+		private Registro(byte[] lineas) {
+			this.lineas = lineas;
+		}
+	}
+
+}
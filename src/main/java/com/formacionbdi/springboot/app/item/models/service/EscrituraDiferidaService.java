@@ -0,0 +1,418 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.clientes.ClaveIdempotencia;
+import com.formacionbdi.springboot.app.item.models.OperacionEscritura;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import feign.FeignException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/*
+ * Escrituras diferidas (write-behind) hacia el "servicio-productos".
+ *
+ * 1. "encolar()" registra la escritura en el "DiarioEscrituras" y la deja en una cola acotada. El cliente recibe un 202 con el id.
+ *    Las escrituras aceptadas a la vez comparten una sola escritura a disco (group commit del diario).
+ * 2. Un hilo despachador toma lotes de hasta "tamano-lote" escrituras y las envía en paralelo con su propio pool de "hilos" hilos,
+ *    separado de "itemsIoExecutor" para no competir con las lecturas. Hay hasta "lotes-en-curso" lotes enviándose a la vez.
+ *    Las escrituras de un mismo producto se envían en orden, aunque estén en lotes distintos.
+ * 3. Los errores 5xx o de conexión se reintentan con la misma clave de idempotencia, los 4xx se marcan como fallidos.
+ *    La espera entre reintentos se programa en un "ScheduledExecutorService", ningún hilo del pool queda dormido.
+ * 4. El resultado del lote se registra en el diario con una sola escritura a disco.
+ *
+ * Las escrituras pasan por la cadena "serviceReplica", así la cache y la réplica quedan actualizadas.
+ * Al reiniciar, las escrituras pendientes del diario se vuelven a encolar.
+ *
+ * La clave de idempotencia evita duplicados dentro de este servicio, pero el envío es "al menos una vez": una escritura
+ * que el servicio-productos aplicó y cuya respuesta se perdió se vuelve a enviar (reintento o reinicio). Solo es "exactamente una vez"
+ * si el servicio-productos descarta las peticiones con un "Idempotency-Key" ya aplicado. Si no lo hace, un reintento de "crear"
+ * puede crear el producto dos veces; "editar" y "eliminar" son idempotentes.
+ *
+ * Métricas: "items.escrituras.pendientes" y "items.escrituras.demora" (desde que se aceptó hasta que terminó).
+ */
+@Service
+@ConditionalOnProperty(name = "configuracion.escritura-diferida.habilitado", havingValue = "true")
+public class EscrituraDiferidaService {
+
+	// Milisegundos antes de volver a entregar una tarea que el pool rechazó por tener la cola llena
+	private static final long ESPERA_COLA_LLENA = 50;
+
+	private final Logger logger = LoggerFactory.getLogger(EscrituraDiferidaService.class);
+
+	// ATRIBUTOS
+	@Autowired
+	@Qualifier("serviceReplica")
+	private ItemService itemService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${configuracion.escritura-diferida.archivo:escrituras.log}")
+	private String archivo;
+
+	// Escribe cada escritura aceptada en disco (fsync) antes de responder el 202, un fsync por grupo de peticiones simultáneas
+	@Value("${configuracion.escritura-diferida.sincronizar-disco:true}")
+	private boolean sincronizarDisco;
+
+	// Escrituras pendientes como máximo, al superarlas se responde 503
+	@Value("${configuracion.escritura-diferida.capacidad:10000}")
+	private int capacidad;
+
+	@Value("${configuracion.escritura-diferida.tamano-lote:32}")
+	private int tamanoLote;
+
+	// Hilos que envían las escrituras al servicio-productos
+	@Value("${configuracion.escritura-diferida.hilos:8}")
+	private int hilos;
+
+	// Lotes que se envían a la vez, el despachador espera a que termine alguno antes de tomar el siguiente
+	@Value("${configuracion.escritura-diferida.lotes-en-curso:4}")
+	private int lotesEnCurso;
+
+	@Value("${configuracion.escritura-diferida.reintentos:5}")
+	private int reintentos;
+
+	// Espera antes del primer reintento, se duplica en cada uno
+	@Value("${configuracion.escritura-diferida.espera-reintento:500ms}")
+	private Duration esperaReintento;
+
+	// Tiempo que se puede consultar una escritura terminada en "/escrituras/{id}"
+	@Value("${configuracion.escritura-diferida.retencion:1h}")
+	private Duration retencion;
+
+	@Value("${configuracion.escritura-diferida.tamano-maximo-diario:64MB}")
+	private DataSize tamanoMaximoDiario;
+
+	private DiarioEscrituras diario;
+	private Semaphore espacio;
+	private final BlockingQueue<OperacionEscritura> cola = new LinkedBlockingQueue<>();
+	private final Map<String, OperacionEscritura> pendientes = new ConcurrentHashMap<>();
+	private Cache<String, OperacionEscritura> terminadas;
+	// Clave de idempotencia enviada por el cliente -> id de la escritura
+	private Cache<String, String> porClave;
+
+	private ThreadPoolExecutor ejecutor;
+	private ScheduledExecutorService planificador;
+	private Semaphore lotesDisponibles;
+	// Último envío de cada producto, el siguiente grupo del mismo producto se envía cuando termina
+	private final Map<Object, CompletableFuture<Void>> ultimoEnvio = new ConcurrentHashMap<>();
+
+	private volatile boolean activo = true;
+	private Thread despachador;
+
+	@PostConstruct
+	public void inicializar() throws IOException {
+		this.terminadas = Caffeine.newBuilder().expireAfterWrite(this.retencion).maximumSize(this.capacidad * 10L).build();
+		this.porClave = Caffeine.newBuilder().expireAfterWrite(this.retencion).maximumSize(this.capacidad * 10L).build();
+
+		this.diario = new DiarioEscrituras(Paths.get(this.archivo), this.objectMapper, this.sincronizarDisco);
+		List<OperacionEscritura> recuperadas = this.diario.recuperar();
+		for (OperacionEscritura operacion : recuperadas) {
+			this.pendientes.put(operacion.getId(), operacion);
+			this.porClave.put(operacion.getClaveIdempotencia(), operacion.getId());
+			this.cola.add(operacion);
+		}
+		this.diario.compactar(recuperadas);
+		// Puede quedar negativo si se recuperaron más escrituras que la capacidad actual
+		this.espacio = new Semaphore(this.capacidad - recuperadas.size());
+		if (!recuperadas.isEmpty()) {
+			logger.info("Escrituras diferidas recuperadas del diario: " + recuperadas.size());
+		}
+
+		Gauge.builder("items.escrituras.pendientes", this.pendientes, Map::size)
+				.description("Escrituras diferidas aceptadas y aún no enviadas al servicio-productos")
+				.register(this.meterRegistry);
+
+		/*
+		 * Cada lote tiene como máximo "tamano-lote" tareas en el pool (un reintento reemplaza al intento anterior),
+		 * la cola se dimensiona para todos los lotes en curso. Si aun así se llena, "programar()" vuelve a intentar más tarde.
+		 */
+		AtomicInteger contador = new AtomicInteger();
+		this.ejecutor = new ThreadPoolExecutor(this.hilos, this.hilos, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(this.lotesEnCurso * this.tamanoLote),
+				tarea -> new Thread(tarea, "items-escrituras-envio-" + contador.incrementAndGet()));
+		new ExecutorServiceMetrics(this.ejecutor, "items-escrituras", Tags.empty()).bindTo(this.meterRegistry);
+		this.planificador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+			Thread hilo = new Thread(tarea, "items-escrituras-reintentos");
+			hilo.setDaemon(true);
+			return hilo;
+		});
+		this.lotesDisponibles = new Semaphore(this.lotesEnCurso);
+
+		this.despachador = new Thread(this::despachar, "items-escrituras");
+		this.despachador.setDaemon(true);
+		this.despachador.start();
+	}
+
+	@PreDestroy
+	public void detener() throws IOException, InterruptedException {
+		// Las escrituras pendientes quedan en el diario y se envían al iniciar nuevamente
+		this.activo = false;
+		this.despachador.interrupt();
+		this.despachador.join(TimeUnit.SECONDS.toMillis(10));
+		this.planificador.shutdownNow();
+		this.ejecutor.shutdown();
+		this.ejecutor.awaitTermination(10, TimeUnit.SECONDS);
+		this.diario.close();
+	}
+
+	// MÉTODOS
+	/*
+	 * claveCliente: header "Idempotency-Key" recibido, puede ser null.
+	 * Si ya se aceptó una escritura con la misma clave, se devuelve esa en lugar de encolar otra.
+	 */
+	public OperacionEscritura encolar(OperacionEscritura.Tipo tipo, Long productoId, Producto producto, String claveCliente) {
+		String id = UUID.randomUUID().toString();
+		String clave = claveCliente != null ? claveCliente : id;
+		OperacionEscritura operacion = new OperacionEscritura(id, tipo, productoId, producto, clave);
+
+		this.pendientes.put(id, operacion);
+		String existente = this.porClave.asMap().putIfAbsent(clave, id);
+		if (existente != null) {
+			this.pendientes.remove(id);
+			OperacionEscritura anterior = this.buscar(existente);
+			if (anterior != null) {
+				return anterior;
+			}
+			this.porClave.put(clave, id);
+			this.pendientes.put(id, operacion);
+		}
+
+		if (!this.espacio.tryAcquire()) {
+			this.descartar(operacion);
+			throw new EscrituraRechazadaException("La cola de escrituras diferidas está llena");
+		}
+		try {
+			this.diario.agregar(Collections.singletonList(operacion));
+		} catch (IOException e) {
+			this.espacio.release();
+			this.descartar(operacion);
+			throw new EscrituraRechazadaException("No se pudo registrar la escritura en el diario", e);
+		}
+		this.cola.add(operacion);
+		return operacion;
+	}
+
+	public OperacionEscritura buscar(String id) {
+		OperacionEscritura operacion = this.pendientes.get(id);
+		return operacion != null ? operacion : this.terminadas.getIfPresent(id);
+	}
+
+	private void descartar(OperacionEscritura operacion) {
+		this.pendientes.remove(operacion.getId());
+		this.porClave.asMap().remove(operacion.getClaveIdempotencia(), operacion.getId());
+	}
+
+	private void despachar() {
+		while (this.activo) {
+			try {
+				OperacionEscritura primera = this.cola.poll(1, TimeUnit.SECONDS);
+				if (primera == null) {
+					this.compactarSiCorresponde();
+					continue;
+				}
+				this.lotesDisponibles.acquire();
+				List<OperacionEscritura> lote = new ArrayList<>(this.tamanoLote);
+				lote.add(primera);
+				this.cola.drainTo(lote, this.tamanoLote - 1);
+				this.procesar(lote);
+				this.compactarSiCorresponde();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (RuntimeException | IOException e) {
+				logger.error("Error en el despachador de escrituras diferidas", e);
+			}
+		}
+	}
+
+	// Envía el lote sin esperarlo, al terminar registra el resultado y libera su lugar en "lotesDisponibles"
+	private void procesar(List<OperacionEscritura> lote) {
+		// Las escrituras de un mismo producto van juntas y en orden, las altas son independientes
+		Map<Object, List<OperacionEscritura>> grupos = new LinkedHashMap<>();
+		for (OperacionEscritura operacion : lote) {
+			Object clave = operacion.getProductoId() != null ? operacion.getProductoId() : operacion.getId();
+			grupos.computeIfAbsent(clave, k -> new ArrayList<>()).add(operacion);
+		}
+
+		List<CompletableFuture<Void>> envios = new ArrayList<>(grupos.size());
+		grupos.forEach((clave, grupo) -> {
+			// Solo el despachador agrega envíos, así el anterior no puede cambiar entre "get" y "put"
+			CompletableFuture<Void> anterior = this.ultimoEnvio.getOrDefault(clave, CompletableFuture.completedFuture(null));
+			CompletableFuture<Void> envio = anterior.thenCompose(v -> this.ejecutarEnOrden(grupo));
+			this.ultimoEnvio.put(clave, envio);
+			envio.whenComplete((v, e) -> this.ultimoEnvio.remove(clave, envio));
+			envios.add(envio);
+		});
+
+		CompletableFuture.allOf(envios.toArray(new CompletableFuture[0])).whenComplete((v, e) -> {
+			try {
+				this.registrar(lote);
+			} catch (RuntimeException | IOException ex) {
+				logger.error("Error al registrar el resultado de las escrituras diferidas", ex);
+			} finally {
+				this.lotesDisponibles.release();
+			}
+		});
+	}
+
+	private void registrar(List<OperacionEscritura> lote) throws IOException {
+		// Las escrituras que no terminaron (la aplicación se está deteniendo) siguen pendientes en el diario
+		List<OperacionEscritura> terminadasLote = new ArrayList<>(lote.size());
+		for (OperacionEscritura operacion : lote) {
+			if (operacion.getEstado() != OperacionEscritura.Estado.PENDIENTE) {
+				terminadasLote.add(operacion);
+			}
+		}
+		// Junto con "compactarSiCorresponde()": la compactación no puede volver a escribir como pendiente una escritura ya terminada
+		synchronized (this.diario) {
+			this.diario.agregar(terminadasLote);
+			for (OperacionEscritura operacion : terminadasLote) {
+				this.terminadas.put(operacion.getId(), operacion);
+				this.pendientes.remove(operacion.getId());
+			}
+		}
+		for (OperacionEscritura operacion : terminadasLote) {
+			this.espacio.release();
+			Timer.builder("items.escrituras.demora")
+					.description("Tiempo desde que se acepta una escritura diferida hasta que termina")
+					.tag("tipo", operacion.getTipo().name().toLowerCase())
+					.tag("estado", operacion.getEstado().name().toLowerCase())
+					.register(this.meterRegistry)
+					.record(operacion.getTerminadaEn() - operacion.getRecibidaEn(), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private CompletableFuture<Void> ejecutarEnOrden(List<OperacionEscritura> grupo) {
+		CompletableFuture<Void> envio = CompletableFuture.completedFuture(null);
+		for (OperacionEscritura operacion : grupo) {
+			envio = envio.thenCompose(v -> this.ejecutar(operacion));
+		}
+		return envio;
+	}
+
+	// Se completa al terminar la escritura, o al detener la aplicación con la escritura aún pendiente
+	private CompletableFuture<Void> ejecutar(OperacionEscritura operacion) {
+		CompletableFuture<Void> terminada = new CompletableFuture<>();
+		this.programar(() -> this.intentar(operacion, this.esperaReintento.toMillis(), terminada), terminada);
+		return terminada;
+	}
+
+	private void intentar(OperacionEscritura operacion, long espera, CompletableFuture<Void> terminada) {
+		if (!this.activo) {
+			terminada.complete(null);
+			return;
+		}
+		operacion.setIntentos(operacion.getIntentos() + 1);
+		try {
+			Producto resultado = ClaveIdempotencia.ejecutar(operacion.getClaveIdempotencia(), () -> this.enviar(operacion));
+			operacion.terminar(OperacionEscritura.Estado.COMPLETADA, resultado, null);
+			terminada.complete(null);
+			return;
+		} catch (RuntimeException e) {
+			int estado = e instanceof FeignException ? ((FeignException) e).status() : -1;
+			if (estado == 404 && operacion.getTipo() == OperacionEscritura.Tipo.ELIMINAR) {
+				// Un reintento de una eliminación que ya se aplicó
+				operacion.terminar(OperacionEscritura.Estado.COMPLETADA, null, null);
+				terminada.complete(null);
+				return;
+			}
+			if ((estado >= 400 && estado < 500) || operacion.getIntentos() > this.reintentos) {
+				operacion.terminar(OperacionEscritura.Estado.FALLIDA, null, e.getMessage());
+				terminada.complete(null);
+				return;
+			}
+		}
+		try {
+			this.planificador.schedule(() -> this.programar(() -> this.intentar(operacion, espera * 2, terminada), terminada),
+					espera, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			terminada.complete(null);
+		}
+	}
+
+	/*
+	 * Si el pool rechaza la tarea con la cola llena, se vuelve a programar en "ESPERA_COLA_LLENA": la escritura no puede
+	 * quedar PENDIENTE sin enviarse y ocupando su lugar en "espacio".
+	 * Al detener la aplicación la escritura queda pendiente en el diario.
+	 */
+	private void programar(Runnable intento, CompletableFuture<Void> terminada) {
+		try {
+			this.ejecutor.execute(intento);
+		} catch (RejectedExecutionException e) {
+			if (!this.activo) {
+				terminada.complete(null);
+				return;
+			}
+			try {
+				this.planificador.schedule(() -> this.programar(intento, terminada), ESPERA_COLA_LLENA, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException ex) {
+				terminada.complete(null);
+			}
+		}
+	}
+
+	private Producto enviar(OperacionEscritura operacion) {
+		switch (operacion.getTipo()) {
+		case CREAR:
+			return this.itemService.save(operacion.getProducto());
+		case EDITAR:
+			return this.itemService.update(operacion.getProducto(), operacion.getProductoId());
+		default:
+			this.itemService.deleteById(operacion.getProductoId());
+			return null;
+		}
+	}
+
+	private void compactarSiCorresponde() throws IOException {
+		if (this.diario.getTamano() > this.tamanoMaximoDiario.toBytes()) {
+			synchronized (this.diario) {
+				this.diario.compactar(new ArrayList<>(this.pendientes.values()));
+			}
+		}
+	}
+
+}
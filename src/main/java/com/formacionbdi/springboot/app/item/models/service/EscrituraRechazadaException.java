@@ -0,0 +1,20 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Se lanza cuando la cola de escrituras diferidas está llena o no se pudo registrar la escritura en el diario
+@ResponseStatus(code = HttpStatus.SERVICE_UNAVAILABLE)
+public class EscrituraRechazadaException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public EscrituraRechazadaException(String mensaje) {
+		super(mensaje);
+	}
+
+	public EscrituraRechazadaException(String mensaje, Throwable causa) {
+		super(mensaje, causa);
+	}
+
+}
@@ -0,0 +1,21 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.models.Item;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Equivalente reactivo de "ItemService", ningún método bloquea el hilo que lo invoca
+public interface ItemReactiveService {
+
+	Flux<Item> findAll();
+
+	Mono<Item> findById(Long id, Integer cantidad);
+
+	Mono<Producto> save(Producto producto);
+
+	Mono<Producto> update(Producto producto, Long id);
+
+	Mono<Void> deleteById(Long id);
+}
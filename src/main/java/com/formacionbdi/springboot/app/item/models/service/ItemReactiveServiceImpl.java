@@ -0,0 +1,79 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.models.Item;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/*
+ * Esta clase es similar a "ItemServiceImpl" pero usando "WebClient".
+ * Las peticiones no bloquean hilos mientras se espera la respuesta del "servicio-productos",
+ * por lo que un servicio lento no agota los hilos de Tomcat.
+ */
+@Service("serviceReactive")
+public class ItemReactiveServiceImpl implements ItemReactiveService {
+
+	// ATRIBUTOS
+	// La "baseUrl" usa el nombre del servicio, el cual resuelve el balanceador de carga (ver "RestTemplateConfig")
+	@Autowired
+	@Qualifier("clienteWebClient")
+	private WebClient webClient;
+
+	// Los productos obtenidos se guardan para los métodos alternativos de "ItemReactiveController"
+	@Autowired
+	private ProductosUltimoConocido ultimoConocido;
+
+	// MÉTODOS
+	@Override
+	public Flux<Item> findAll() {
+		return this.webClient.get()
+				.uri("/listar")
+				.retrieve()
+				.bodyToFlux(Producto.class)
+				.doOnNext(this.ultimoConocido::guardar)
+				.map(producto -> new Item(producto, 1));
+	}
+
+	@Override
+	public Mono<Item> findById(Long id, Integer cantidad) {
+		return this.webClient.get()
+				.uri("/ver/{id}", id)
+				.retrieve()
+				.bodyToMono(Producto.class)
+				.doOnNext(this.ultimoConocido::guardar)
+				.map(producto -> new Item(producto, cantidad));
+	}
+
+	@Override
+	public Mono<Producto> save(Producto producto) {
+		return this.webClient.post()
+				.uri("/crear")
+				.bodyValue(producto)
+				.retrieve()
+				.bodyToMono(Producto.class);
+	}
+
+	@Override
+	public Mono<Producto> update(Producto producto, Long id) {
+		return this.webClient.put()
+				.uri("/editar/{id}", id)
+				.bodyValue(producto)
+				.retrieve()
+				.bodyToMono(Producto.class);
+	}
+
+	@Override
+	public Mono<Void> deleteById(Long id) {
+		return this.webClient.delete()
+				.uri("/eliminar/{id}", id)
+				.retrieve()
+				.bodyToMono(Void.class);
+	}
+
+}
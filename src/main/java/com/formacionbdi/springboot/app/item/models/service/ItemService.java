@@ -3,6 +3,7 @@ package com.formacionbdi.springboot.app.item.models.service;
 import java.util.List;
 
 import com.formacionbdi.springboot.app.item.models.Item;
+import com.formacionbdi.springboot.app.item.models.SolicitudItem;
 import com.formacionbdi.springboot.app.commons.models.entity.Producto;
 
 
@@ -11,6 +12,9 @@ public interface ItemService {
 	List<Item> findAll();
 
 	Item findById(Long id, Integer cantidad);
+	
+	// Devuelve los items en el mismo orden de las solicitudes, omitiendo los productos que no existen
+	List<Item> findAllById(List<SolicitudItem> solicitudes);
 			
 	Producto save(Producto producto);
 	
@@ -0,0 +1,154 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.models.Item;
+import com.formacionbdi.springboot.app.item.models.SolicitudItem;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/*
+ * Decorador de "ItemService" que guarda en memoria los "Producto" consultados por id.
+ * Solo se guarda el producto, el "Item" se construye en cada request con la "cantidad" recibida.
+ *
+ * Además cada producto obtenido con éxito se guarda en "ProductosUltimoConocido" para los métodos alternativos.
+ *
+ * El resto de llamadas se delegan al servicio indicado con @Qualifier, en este caso "serviceInterruptores".
+ */
+@Service("serviceCache")
+public class ItemServiceCache implements ItemService {
+
+	// ATRIBUTOS
+	@Autowired
+	@Qualifier("serviceInterruptores")
+	private ItemService itemService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private ProductosUltimoConocido ultimoConocido;
+
+	// Cantidad máxima de productos en memoria, al superarla se eliminan los menos usados
+	@Value("${configuracion.cache.maximo-productos:10000}")
+	private long maximoProductos;
+
+	// Tiempo de vida de cada producto desde que fue escrito en la cache
+	@Value("${configuracion.cache.expiracion:60s}")
+	private Duration expiracion;
+
+	private Cache<Long, Producto> productos;
+
+	/*
+	 * recordStats()
+	 * Habilita los contadores de aciertos, fallos y desalojos.
+	 * Estos se publican en actuator con el nombre "cache.*" y el tag "cache=productos"
+	 */
+	@PostConstruct
+	public void inicializar() {
+		this.productos = Caffeine.newBuilder()
+				.maximumSize(this.maximoProductos)
+				.expireAfterWrite(this.expiracion)
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(this.meterRegistry, this.productos, "productos");
+	}
+
+	// MÉTODOS
+	@Override
+	public List<Item> findAll() {
+		List<Item> items = this.itemService.findAll();
+		/*
+		 * Aprovechamos el listado completo para refrescar los productos ya guardados.
+		 * Con "replace()" no se agregan productos nuevos: con un catálogo mayor que "maximo-productos" agregarlos
+		 * desalojaría a los más consultados. Todos se guardan en "ProductosUltimoConocido".
+		 */
+		for (Item item : items) {
+			Producto producto = item.getProducto();
+			if (producto != null && producto.getId() != null) {
+				this.productos.asMap().replace(producto.getId(), producto);
+				this.ultimoConocido.guardar(producto);
+			}
+		}
+		return items;
+	}
+
+	@Override
+	public Item findById(Long id, Integer cantidad) {
+		// Si el producto no está en la cache, se consulta con cantidad 1 y solo se guarda el producto
+		Producto producto = this.productos.get(id, clave -> {
+			Producto encontrado = this.itemService.findById(clave, 1).getProducto();
+			this.ultimoConocido.guardar(encontrado);
+			return encontrado;
+		});
+		return new Item(producto, cantidad);
+	}
+
+	/*
+	 * Los productos que ya están en la cache se responden desde memoria.
+	 * Solo los faltantes se consultan en una sola llamada a "findAllById()" del servicio delegado.
+	 */
+	@Override
+	public List<Item> findAllById(List<SolicitudItem> solicitudes) {
+		Map<Long, Producto> productos = new HashMap<>(this.productos.getAllPresent(SolicitudesItem.ids(solicitudes)));
+
+		List<SolicitudItem> faltantes = solicitudes.stream()
+				.filter(solicitud -> !productos.containsKey(solicitud.getId()))
+				.map(solicitud -> new SolicitudItem(solicitud.getId(), 1))
+				.collect(Collectors.toList());
+
+		if (!faltantes.isEmpty()) {
+			for (Item item : this.itemService.findAllById(faltantes)) {
+				this.guardar(item.getProducto());
+				productos.put(item.getProducto().getId(), item.getProducto());
+			}
+		}
+		return SolicitudesItem.armar(solicitudes, productos);
+	}
+
+	@Override
+	public Producto save(Producto producto) {
+		Producto productoCreado = this.itemService.save(producto);
+		this.guardar(productoCreado);
+		return productoCreado;
+	}
+
+	@Override
+	public Producto update(Producto producto, Long id) {
+		// Invalidamos antes de editar, así una falla en la edición no deja un producto desactualizado
+		this.productos.invalidate(id);
+		Producto productoEditado = this.itemService.update(producto, id);
+		this.guardar(productoEditado);
+		return productoEditado;
+	}
+
+	@Override
+	public void deleteById(Long id) {
+		this.itemService.deleteById(id);
+		this.productos.invalidate(id);
+		this.ultimoConocido.eliminar(id);
+	}
+
+	private void guardar(Producto producto) {
+		if (producto != null && producto.getId() != null) {
+			this.productos.put(producto.getId(), producto);
+			this.ultimoConocido.guardar(producto);
+		}
+	}
+
+}
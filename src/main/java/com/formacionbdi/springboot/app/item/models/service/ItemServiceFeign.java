@@ -1,23 +1,92 @@
 package com.formacionbdi.springboot.app.item.models.service;
 
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 import com.formacionbdi.springboot.app.item.clientes.ProductoClienteRest;
 import com.formacionbdi.springboot.app.item.models.Item;
+import com.formacionbdi.springboot.app.item.models.SolicitudItem;
 import com.formacionbdi.springboot.app.commons.models.entity.Producto;
 
+import feign.FeignException;
+import feign.Request;
+import feign.Response;
+
 // Esta clase es similar a "ItemServiceImpl" pero en este caso usando un "client Feign"
 @Service("serviceFeign")
 public class ItemServiceFeign implements ItemService {
 
+	private static final String SERVICIO = "servicio-productos";
+
 	// ATRIBUTOS
 	@Autowired
 	private ProductoClienteRest clienteFeign;
 
+	/*
+	 * Agrupación de consultas por id en lotes.
+	 * Requiere que el "servicio-productos" tenga el endpoint "/ver/lote", por eso viene deshabilitado.
+	 */
+	@Value("${configuracion.lotes.habilitado:false}")
+	private boolean lotesHabilitado;
+
+	@Value("${configuracion.lotes.tamano-maximo:64}")
+	private int tamanoMaximoLote;
+
+	@Value("${configuracion.lotes.ventana:2ms}")
+	private Duration ventanaLote;
+
+	// Espera máxima por el resultado del lote, incluye la ventana y la petición a "/ver/lote"
+	@Value("${configuracion.lotes.espera-maxima:10s}")
+	private Duration esperaMaximaLote;
+
+	/*
+	 * Los lotes se envían desde el pool de subtareas de "EjecutorConfig" y no desde "itemsIoExecutor",
+	 * ya que "findById()" se ejecuta en ese pool (circuit breaker programático, "detalle3()") y espera el lote.
+	 */
+	@Autowired
+	@Qualifier("itemsSubtareasExecutor")
+	private Executor itemsSubtareasExecutor;
+
+	private MicroBatcher<Long, Producto> microBatcher;
+
+	@PostConstruct
+	public void inicializar() {
+		if (this.lotesHabilitado) {
+			this.microBatcher = new MicroBatcher<>(
+					ids -> SolicitudesItem.porId(this.clienteFeign.detalleLote(ids)),
+					this.tamanoMaximoLote, this.ventanaLote, this.itemsSubtareasExecutor,
+					ItemServiceFeign::noEncontrado);
+		}
+	}
+
+	@PreDestroy
+	public void cerrar() {
+		if (this.microBatcher != null) {
+			this.microBatcher.cerrar();
+		}
+	}
+
 	// MÉTODOS
 	@Override
 	public List<Item> findAll() {
@@ -29,7 +98,41 @@ public class ItemServiceFeign implements ItemService {
 
 	@Override
 	public Item findById(Long id, Integer cantidad) {
-		return new Item(this.clienteFeign.detalle(id), cantidad); 
+		if (this.microBatcher == null) {
+			return new Item(this.clienteFeign.detalle(id), cantidad); 
+		}
+		try {
+			return new Item(this.microBatcher.solicitar(id).get(this.esperaMaximaLote.toMillis(), TimeUnit.MILLISECONDS), cantidad);
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new CompletionException(e.getCause());
+		} catch (TimeoutException e) {
+			// Como un timeout de lectura, "ItemServiceReintentos" lo considera transitorio
+			throw new UncheckedIOException(new SocketTimeoutException("Sin respuesta del lote para el producto " + id
+					+ " en " + this.esperaMaximaLote.toMillis() + " ms"));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CompletionException(e);
+		}
+	}
+
+	@Override
+	public List<Item> findAllById(List<SolicitudItem> solicitudes) {
+		List<Long> ids = SolicitudesItem.ids(solicitudes);
+
+		if (this.lotesHabilitado) {
+			return SolicitudesItem.armar(solicitudes, SolicitudesItem.porId(this.clienteFeign.detalleLote(ids)));
+		}
+
+		// Sin el endpoint de lotes consultamos cada id por separado
+		Map<Long, Producto> productos = new HashMap<>();
+		for (Long id : ids) {
+			try {
+				productos.put(id, this.clienteFeign.detalle(id));
+			} catch (FeignException.NotFound e) {
+				// Los productos inexistentes se omiten de la respuesta
+			}
+		}
+		return SolicitudesItem.armar(solicitudes, productos);
 	}
 
 	@Override
@@ -48,4 +151,20 @@ public class ItemServiceFeign implements ItemService {
 		
 	}
 
+	/*
+	 * Un id que no está en la respuesta de "/ver/lote" falla con el mismo "FeignException.NotFound" que "/ver/{id}",
+	 * así se responde 404 y los decoradores (circuit breakers, límite, reintentos) lo tratan como error del cliente.
+	 */
+	static FeignException noEncontrado(Long id) {
+		Request peticion = Request.create(Request.HttpMethod.GET, "http://" + SERVICIO + "/ver/" + id,
+				Collections.emptyMap(), null, StandardCharsets.UTF_8, null);
+		Response respuesta = Response.builder()
+				.status(HttpStatus.NOT_FOUND.value())
+				.reason(HttpStatus.NOT_FOUND.getReasonPhrase())
+				.request(peticion)
+				.headers(Collections.emptyMap())
+				.build();
+		return FeignException.errorStatus("ProductoClienteRest#detalle(Long)", respuesta);
+	}
+
 }
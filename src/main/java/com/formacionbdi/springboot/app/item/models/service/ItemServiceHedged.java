@@ -0,0 +1,335 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.UnknownHttpStatusCodeException;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.clientes.HttpRequestExecutorMedido;
+import com.formacionbdi.springboot.app.item.clientes.InterruptoresProductos;
+import com.formacionbdi.springboot.app.item.clientes.LatenciasRecientes;
+import com.formacionbdi.springboot.app.item.clientes.PresupuestoTokens;
+import com.formacionbdi.springboot.app.item.models.Item;
+import com.formacionbdi.springboot.app.item.models.SolicitudItem;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Decorador de "ItemService" que envía "peticiones de cobertura"(hedged requests) en las lecturas.
+ *
+ * Si la primera petición no responde dentro del percentil configurado de las latencias recientes,
+ * se envía una segunda petición a otra instancia del "servicio-productos".
+ * Se usa la primera respuesta exitosa y la otra petición se aborta, cerrando su conexión.
+ *
+ * Las peticiones extra se limitan a un porcentaje del tráfico con "PresupuestoTokens".
+ * Las escrituras no son idempotentes, por lo que siempre se delegan a "serviceFeign".
+ */
+@Service("serviceHedged")
+public class ItemServiceHedged implements ItemService {
+
+	private static final String SERVICIO = "servicio-productos";
+
+	// ATRIBUTOS
+	@Autowired
+	@Qualifier("serviceFeign")
+	private ItemService itemService;
+
+	@Autowired
+	private LoadBalancerClient loadBalancerClient;
+
+	@Autowired
+	private DiscoveryClient discoveryClient;
+
+	@Autowired
+	private InterruptoresProductos interruptores;
+
+	@Autowired
+	private CloseableHttpClient productosHttpClient;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	/*
+	 * Las peticiones se ejecutan en el pool de subtareas y no en "itemsIoExecutor",
+	 * ya que quien las espera puede estar ocupando un hilo de ese pool (circuit breaker programático, "detalle3()").
+	 */
+	@Autowired
+	@Qualifier("itemsSubtareasExecutor")
+	private Executor itemsSubtareasExecutor;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${configuracion.hedging.habilitado:false}")
+	private boolean habilitado;
+
+	// Percentil de las latencias recientes usado como espera antes de la segunda petición
+	@Value("${configuracion.hedging.percentil:95}")
+	private double percentil;
+
+	// Espera mínima en milisegundos, evita duplicar peticiones cuando las latencias son muy bajas
+	@Value("${configuracion.hedging.retardo-minimo:20}")
+	private long retardoMinimo;
+
+	// Porcentaje máximo de peticiones que pueden tener una segunda petición
+	@Value("${configuracion.hedging.porcentaje-maximo:5}")
+	private double porcentajeMaximo;
+
+	private LatenciasRecientes latencias;
+	private PresupuestoTokens presupuesto;
+	private Counter enviados;
+	private Counter ganados;
+
+	@PostConstruct
+	public void inicializar() {
+		this.latencias = new LatenciasRecientes(1024, this.percentil, 64, 100);
+		this.presupuesto = new PresupuestoTokens(this.porcentajeMaximo / 100D, 10);
+		this.enviados = Counter.builder("items.hedging.enviados")
+				.description("Segundas peticiones enviadas a otra instancia")
+				.register(this.meterRegistry);
+		this.ganados = Counter.builder("items.hedging.ganados")
+				.description("Segundas peticiones que respondieron antes que la primera")
+				.register(this.meterRegistry);
+		Gauge.builder("items.hedging.retardo", this, ItemServiceHedged::retardo)
+				.description("Espera en milisegundos antes de enviar la segunda petición")
+				.baseUnit("milliseconds")
+				.register(this.meterRegistry);
+	}
+
+	// MÉTODOS
+	@Override
+	public List<Item> findAll() {
+		if (!this.habilitado) {
+			return this.itemService.findAll();
+		}
+		JavaType tipo = this.objectMapper.getTypeFactory().constructCollectionType(List.class, Producto.class);
+		List<Producto> productos = this.consultar("/listar", tipo);
+		return productos.stream()
+				.map(producto -> new Item(producto, 1))
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public Item findById(Long id, Integer cantidad) {
+		if (!this.habilitado) {
+			return this.itemService.findById(id, cantidad);
+		}
+		Producto producto = this.consultar("/ver/" + id, this.objectMapper.constructType(Producto.class));
+		return new Item(producto, cantidad);
+	}
+
+	@Override
+	public List<Item> findAllById(List<SolicitudItem> solicitudes) {
+		return this.itemService.findAllById(solicitudes);
+	}
+
+	@Override
+	public Producto save(Producto producto) {
+		return this.itemService.save(producto);
+	}
+
+	@Override
+	public Producto update(Producto producto, Long id) {
+		return this.itemService.update(producto, id);
+	}
+
+	@Override
+	public void deleteById(Long id) {
+		this.itemService.deleteById(id);
+	}
+
+	private long retardo() {
+		return Math.max(this.retardoMinimo, this.latencias.getPercentil());
+	}
+
+	private <T> T consultar(String ruta, JavaType tipo) {
+		this.presupuesto.depositar();
+		ServiceInstance primera = this.loadBalancerClient.choose(SERVICIO);
+		if (primera == null) {
+			throw new IllegalStateException("No hay instancias disponibles de " + SERVICIO);
+		}
+
+		Carrera<T> carrera = new Carrera<>();
+		HttpGet principal = this.intentar(primera, ruta, tipo, carrera);
+		if (principal == null) {
+			return this.esperar(carrera.resultado);
+		}
+
+		try {
+			return carrera.resultado.get(this.retardo(), TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			ServiceInstance segunda = this.otraInstancia(primera);
+			HttpGet cobertura = null;
+			if (segunda != null && !carrera.resultado.isDone() && this.presupuesto.retirar()) {
+				cobertura = this.intentar(segunda, ruta, tipo, carrera);
+			}
+			if (cobertura != null) {
+				this.enviados.increment();
+				T valor = this.esperar(carrera.resultado);
+				// Abortamos la petición que perdió, cerrando su conexión
+				if (carrera.ganadora.get() == cobertura) {
+					this.ganados.increment();
+					principal.abort();
+				} else {
+					cobertura.abort();
+				}
+				return valor;
+			}
+			return this.esperar(carrera.resultado);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			principal.abort();
+			throw new RestClientException("Consulta interrumpida", e);
+		} catch (ExecutionException e) {
+			throw this.propagar(e.getCause());
+		}
+	}
+
+	/*
+	 * Envía una petición a la instancia indicada, la primera respuesta exitosa completa la carrera.
+	 * Devuelve null sin enviarla si la carrera ya terminó, por ejemplo porque la primera petición falló mientras tanto,
+	 * o si el pool de subtareas la rechazó (ese rechazo cuenta como una petición fallida).
+	 */
+	private <T> HttpGet intentar(ServiceInstance instancia, String ruta, JavaType tipo, Carrera<T> carrera) {
+		if (!carrera.agregar()) {
+			return null;
+		}
+
+		HttpGet peticion = new HttpGet(URI.create(instancia.getUri() + ruta));
+		peticion.setHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+		peticion.setHeader(HttpRequestExecutorMedido.HEADER_CLIENTE, "hedging");
+
+		CompletableFuture<Void> envio;
+		try {
+			envio = CompletableFuture.runAsync(() -> this.enviar(peticion, ruta, tipo, carrera), this.itemsSubtareasExecutor);
+		} catch (RejectedExecutionException e) {
+			carrera.terminar(e);
+			return null;
+		}
+		envio.whenComplete((vacio, error) ->
+				carrera.terminar(error instanceof CompletionException ? error.getCause() : error));
+		return peticion;
+	}
+
+	private <T> void enviar(HttpGet peticion, String ruta, JavaType tipo, Carrera<T> carrera) {
+		long inicio = System.nanoTime();
+		try (CloseableHttpResponse respuesta = this.productosHttpClient.execute(peticion)) {
+			int estado = respuesta.getStatusLine().getStatusCode();
+			if (estado < 200 || estado >= 300) {
+				throw errorDeEstado(estado, respuesta.getStatusLine().getReasonPhrase(), ruta);
+			}
+			try (InputStream cuerpo = respuesta.getEntity().getContent()) {
+				T valor = this.objectMapper.readValue(cuerpo, tipo);
+				this.latencias.registrar(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+				// La ganadora se marca antes de completar, así quien espera el resultado ya la ve
+				if (carrera.ganadora.compareAndSet(null, peticion)) {
+					carrera.resultado.complete(valor);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/*
+	 * Conserva el estado, igual que el RestTemplate: un 4xx no cuenta como falla en "ItemServiceInterruptores"
+	 * ni en "ItemServiceLimitado", y "ItemServiceReintentos" reintenta los 502, 503 y 504.
+	 */
+	private static RestClientException errorDeEstado(int estado, String motivo, String ruta) {
+		String mensaje = "El " + SERVICIO + " respondió con estado " + estado + " en " + ruta;
+		HttpStatus status = HttpStatus.resolve(estado);
+		if (status != null && status.is4xxClientError()) {
+			return HttpClientErrorException.create(mensaje, status, motivo, null, null, null);
+		}
+		if (status != null && status.is5xxServerError()) {
+			return HttpServerErrorException.create(mensaje, status, motivo, null, null, null);
+		}
+		return new UnknownHttpStatusCodeException(mensaje, estado, motivo, null, null, null);
+	}
+
+	// Elige al azar una instancia distinta a la primera y sin el circuit breaker abierto
+	private ServiceInstance otraInstancia(ServiceInstance primera) {
+		List<ServiceInstance> otras = this.discoveryClient.getInstances(SERVICIO)
+				.stream()
+				.filter(instancia -> !Objects.equals(instancia.getUri(), primera.getUri()))
+				.filter(instancia -> !this.interruptores.abierto(instancia.getHost() + ":" + instancia.getPort()))
+				.collect(Collectors.toList());
+		return otras.isEmpty() ? null : otras.get(ThreadLocalRandom.current().nextInt(otras.size()));
+	}
+
+	private <T> T esperar(CompletableFuture<T> resultado) {
+		try {
+			return resultado.join();
+		} catch (CompletionException e) {
+			throw this.propagar(e.getCause());
+		}
+	}
+
+	private RuntimeException propagar(Throwable causa) {
+		return causa instanceof RuntimeException ? (RuntimeException) causa : new RestClientException(causa.getMessage(), causa);
+	}
+
+	/*
+	 * Estado compartido por las peticiones de una misma consulta.
+	 * Agregar una petición y terminar la última se sincronizan, así la carrera no termina con error
+	 * mientras se está enviando la petición de cobertura.
+	 */
+	private static class Carrera<T> {
+		private final CompletableFuture<T> resultado = new CompletableFuture<>();
+		private final AtomicReference<HttpGet> ganadora = new AtomicReference<>();
+		private int pendientes;
+
+		private synchronized boolean agregar() {
+			if (this.resultado.isDone()) {
+				return false;
+			}
+			this.pendientes++;
+			return true;
+		}
+
+		// Solo se informa el error si todas las peticiones fallaron
+		private synchronized void terminar(Throwable error) {
+			if (--this.pendientes == 0 && error != null) {
+				this.resultado.completeExceptionally(error);
+			}
+		}
+	}
+
+}
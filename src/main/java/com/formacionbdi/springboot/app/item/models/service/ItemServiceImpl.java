@@ -7,13 +7,16 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import com.formacionbdi.springboot.app.item.models.Item;
+import com.formacionbdi.springboot.app.item.models.SolicitudItem;
 import com.formacionbdi.springboot.app.commons.models.entity.Producto;
 
 
@@ -24,6 +27,10 @@ public class ItemServiceImpl implements ItemService {
 	@Autowired
 	private RestTemplate clienteRest;
 
+	// Requiere que el "servicio-productos" tenga el endpoint "/ver/lote"
+	@Value("${configuracion.lotes.habilitado:false}")
+	private boolean lotesHabilitado;
+
 	// MÉTODOS
 	@Override
 	public List<Item> findAll() {
@@ -66,6 +73,27 @@ public class ItemServiceImpl implements ItemService {
 		return new Item(producto, cantidad);
 	}
 
+	@Override
+	public List<Item> findAllById(List<SolicitudItem> solicitudes) {
+		List<Long> ids = SolicitudesItem.ids(solicitudes);
+
+		if (this.lotesHabilitado) {
+			// Enviamos todos los ids en el body de una sola petición
+			Producto[] productos = this.clienteRest.postForObject("http://servicio-productos/ver/lote", ids, Producto[].class);
+			return SolicitudesItem.armar(solicitudes, SolicitudesItem.porId(Arrays.asList(productos)));
+		}
+
+		Map<Long, Producto> productos = new HashMap<Long, Producto>();
+		for (Long id : ids) {
+			try {
+				productos.put(id, this.clienteRest.getForObject("http://servicio-productos/ver/{id}", Producto.class, id));
+			} catch (HttpClientErrorException.NotFound e) {
+				// Los productos inexistentes se omiten de la respuesta
+			}
+		}
+		return SolicitudesItem.armar(solicitudes, productos);
+	}
+
 	@Override
 	public Producto save(Producto producto) {
 		// Construimos una HttpEntity (entidad HTTP), necesario para el método "exchange()"
@@ -0,0 +1,97 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.clientes.InterruptoresProductos;
+import com.formacionbdi.springboot.app.item.models.Item;
+import com.formacionbdi.springboot.app.item.models.SolicitudItem;
+
+import feign.FeignException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+
+/*
+ * Decorador de "ItemService" que aplica a "findById()" el circuit breaker de la cubeta del producto
+ * (ver "InterruptoresProductos"). Así los productos que fallan siempre solo abren el circuito de su cubeta.
+ *
+ * Con la cubeta abierta se lanza "CallNotPermittedException", el "ItemController" responde con el método alternativo
+ * sin que cuente como falla del circuito global "items".
+ * Los errores 4xx, como un producto inexistente, no cuentan como falla.
+ */
+@Service("serviceInterruptores")
+public class ItemServiceInterruptores implements ItemService {
+
+	// ATRIBUTOS
+	@Autowired
+	@Qualifier("serviceSingleFlight")
+	private ItemService itemService;
+
+	@Autowired
+	private InterruptoresProductos interruptores;
+
+	// MÉTODOS
+	@Override
+	public List<Item> findAll() {
+		return this.itemService.findAll();
+	}
+
+	@Override
+	public Item findById(Long id, Integer cantidad) {
+		CircuitBreaker interruptor = this.interruptores.porProducto(id);
+		if (interruptor == null) {
+			return this.itemService.findById(id, cantidad);
+		}
+		if (!interruptor.tryAcquirePermission()) {
+			throw CallNotPermittedException.createCallNotPermittedException(interruptor);
+		}
+		long inicio = System.nanoTime();
+		try {
+			Item item = this.itemService.findById(id, cantidad);
+			interruptor.onSuccess(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+			return item;
+		} catch (RuntimeException e) {
+			if (esErrorDelCliente(e)) {
+				interruptor.onSuccess(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+			} else {
+				interruptor.onError(System.nanoTime() - inicio, TimeUnit.NANOSECONDS, e);
+			}
+			throw e;
+		}
+	}
+
+	@Override
+	public List<Item> findAllById(List<SolicitudItem> solicitudes) {
+		return this.itemService.findAllById(solicitudes);
+	}
+
+	@Override
+	public Producto save(Producto producto) {
+		return this.itemService.save(producto);
+	}
+
+	@Override
+	public Producto update(Producto producto, Long id) {
+		return this.itemService.update(producto, id);
+	}
+
+	@Override
+	public void deleteById(Long id) {
+		this.itemService.deleteById(id);
+	}
+
+	private static boolean esErrorDelCliente(RuntimeException e) {
+		if (e instanceof FeignException) {
+			int estado = ((FeignException) e).status();
+			return estado >= 400 && estado < 500;
+		}
+		return e instanceof HttpClientErrorException;
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.clientes.LimitadorProperties;
+import com.formacionbdi.springboot.app.item.clientes.LimiteAdaptativo;
+import com.formacionbdi.springboot.app.item.models.Item;
+import com.formacionbdi.springboot.app.item.models.SolicitudItem;
+
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Decorador de "ItemService" que limita las peticiones simultáneas de cada operación hacia el "servicio-productos".
+ * El límite se ajusta solo según la latencia observada (ver "LimiteAdaptativo").
+ * Las peticiones que exceden el límite se rechazan con "LimiteConcurrenciaException" sin llegar a enviarse.
+ *
+ * Métricas por operación: "items.limitador.limite", "items.limitador.en.curso" y "items.limitador.rechazadas".
+ */
+@Service("serviceLimitado")
+public class ItemServiceLimitado implements ItemService {
+
+	private static final List<String> OPERACIONES = Arrays.asList("findAll", "findById", "findAllById", "save", "update", "deleteById");
+
+	// ATRIBUTOS
+	@Autowired
+	@Qualifier("serviceHedged")
+	private ItemService itemService;
+
+	@Autowired
+	private LimitadorProperties properties;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private final Map<String, LimiteAdaptativo> limites = new ConcurrentHashMap<>();
+	private final Map<String, Counter> rechazadas = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void inicializar() {
+		if (!this.properties.isHabilitado()) {
+			return;
+		}
+		for (String operacion : OPERACIONES) {
+			LimitadorProperties.Limite configuracion = this.properties.para(operacion);
+			LimiteAdaptativo limite = new LimiteAdaptativo(configuracion.getLimiteInicial(), configuracion.getLimiteMinimo(),
+					configuracion.getLimiteMaximo(), configuracion.getLatenciaObjetivo().toNanos(), configuracion.getFactorReduccion());
+			this.limites.put(operacion, limite);
+
+			Gauge.builder("items.limitador.limite", limite, LimiteAdaptativo::getLimite)
+					.description("Límite actual de peticiones simultáneas")
+					.tag("operacion", operacion)
+					.register(this.meterRegistry);
+			Gauge.builder("items.limitador.en.curso", limite, LimiteAdaptativo::getEnCurso)
+					.description("Peticiones en curso hacia el servicio-productos")
+					.tag("operacion", operacion)
+					.register(this.meterRegistry);
+			this.rechazadas.put(operacion, Counter.builder("items.limitador.rechazadas")
+					.description("Peticiones rechazadas por superar el límite")
+					.tag("operacion", operacion)
+					.register(this.meterRegistry));
+		}
+	}
+
+	// MÉTODOS
+	@Override
+	public List<Item> findAll() {
+		return this.limitar("findAll", () -> this.itemService.findAll());
+	}
+
+	@Override
+	public Item findById(Long id, Integer cantidad) {
+		return this.limitar("findById", () -> this.itemService.findById(id, cantidad));
+	}
+
+	@Override
+	public List<Item> findAllById(List<SolicitudItem> solicitudes) {
+		return this.limitar("findAllById", () -> this.itemService.findAllById(solicitudes));
+	}
+
+	@Override
+	public Producto save(Producto producto) {
+		return this.limitar("save", () -> this.itemService.save(producto));
+	}
+
+	@Override
+	public Producto update(Producto producto, Long id) {
+		return this.limitar("update", () -> this.itemService.update(producto, id));
+	}
+
+	@Override
+	public void deleteById(Long id) {
+		this.limitar("deleteById", () -> {
+			this.itemService.deleteById(id);
+			return null;
+		});
+	}
+
+	private <T> T limitar(String operacion, Supplier<T> llamada) {
+		LimiteAdaptativo limite = this.limites.get(operacion);
+		if (limite == null) {
+			return llamada.get();
+		}
+		if (!limite.adquirir()) {
+			this.rechazadas.get(operacion).increment();
+			throw new LimiteConcurrenciaException(operacion);
+		}
+
+		long inicio = System.nanoTime();
+		boolean exito = false;
+		try {
+			T resultado = llamada.get();
+			exito = true;
+			return resultado;
+		} catch (RuntimeException e) {
+			// Un 4xx (por ejemplo un producto inexistente) no indica sobrecarga del servicio
+			exito = esErrorDelCliente(e);
+			throw e;
+		} finally {
+			limite.liberar(System.nanoTime() - inicio, exito);
+		}
+	}
+
+	private static boolean esErrorDelCliente(RuntimeException e) {
+		if (e instanceof FeignException) {
+			int estado = ((FeignException) e).status();
+			return estado >= 400 && estado < 500;
+		}
+		return e instanceof HttpClientErrorException;
+	}
+
+}
@@ -0,0 +1,216 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.ConfiguracionDinamica;
+import com.formacionbdi.springboot.app.item.clientes.PresupuestoTokens;
+import com.formacionbdi.springboot.app.item.models.Item;
+import com.formacionbdi.springboot.app.item.models.SolicitudItem;
+
+import feign.FeignException;
+import feign.RetryableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Decorador de "ItemService" que reintenta las lecturas idempotentes ("findAll" y "findById") ante errores transitorios:
+ * errores de conexión o lectura y respuestas 502, 503 o 504. Así un fallo aislado no llega al método alternativo
+ * ni cuenta como falla del circuit breaker "items".
+ * Las escrituras nunca se reintentan, y tampoco los rechazos de "serviceLimitado" ni los circuitos abiertos.
+ *
+ * Para no agregar carga a un servicio-productos con problemas:
+ * - Presupuesto: cada petición exitosa deposita "porcentaje" / 100 tokens en un "PresupuestoTokens" y cada reintento
+ *   retira uno. Los reintentos quedan limitados a ese porcentaje del tráfico exitoso de cada instancia, y por lo tanto
+ *   del cluster completo, sin coordinación entre instancias. Si el servicio-productos deja de responder, el presupuesto se agota.
+ * - Espera con "decorrelated jitter": al azar entre "espera-base" y el triple de la espera anterior, hasta "espera-maxima",
+ *   así los reintentos de distintas peticiones no llegan juntos.
+ * - Plazo: no se reintenta si la espera más la duración del intento fallido supera el timeout del time limiter "items"
+ *   (leído de "ConfiguracionDinamica"), ya que la respuesta llegaría después de que se use el método alternativo.
+ *
+ * Métricas: "items.reintentos.presupuesto" (tokens disponibles) e "items.reintentos" con los tags "operacion" y
+ * "resultado": exito o fallo de cada reintento, sin-presupuesto o sin-tiempo cuando se descarta.
+ */
+@Service("serviceReintentos")
+public class ItemServiceReintentos implements ItemService {
+
+	private static final String[] OPERACIONES = { "findAll", "findById" };
+	private static final String[] RESULTADOS = { "exito", "fallo", "sin-presupuesto", "sin-tiempo" };
+
+	// ATRIBUTOS
+	@Autowired
+	@Qualifier("serviceLimitado")
+	private ItemService itemService;
+
+	@Autowired
+	private ConfiguracionDinamica configuracionDinamica;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${configuracion.reintentos.habilitado:true}")
+	private boolean habilitado;
+
+	// Reintentos por llamada, sin contar el primer intento
+	@Value("${configuracion.reintentos.maximo:2}")
+	private int maximo;
+
+	// Reintentos permitidos cada 100 peticiones exitosas
+	@Value("${configuracion.reintentos.porcentaje:10}")
+	private double porcentaje;
+
+	// Tokens acumulables, permite reintentar una ráfaga corta de errores
+	@Value("${configuracion.reintentos.acumulables:10}")
+	private double acumulables;
+
+	@Value("${configuracion.reintentos.espera-base:50ms}")
+	private Duration esperaBase;
+
+	@Value("${configuracion.reintentos.espera-maxima:1s}")
+	private Duration esperaMaxima;
+
+	private PresupuestoTokens presupuesto;
+	private final Map<String, Counter> contadores = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void inicializar() {
+		this.presupuesto = new PresupuestoTokens(this.porcentaje / 100D, this.acumulables);
+		Gauge.builder("items.reintentos.presupuesto", this.presupuesto, PresupuestoTokens::getDisponibles)
+				.description("Reintentos disponibles en el presupuesto")
+				.register(this.meterRegistry);
+		for (String operacion : OPERACIONES) {
+			for (String resultado : RESULTADOS) {
+				this.contadores.put(operacion + resultado, Counter.builder("items.reintentos")
+						.description("Reintentos de lecturas al servicio-productos según su resultado")
+						.tag("operacion", operacion)
+						.tag("resultado", resultado)
+						.register(this.meterRegistry));
+			}
+		}
+	}
+
+	// MÉTODOS
+	@Override
+	public List<Item> findAll() {
+		return this.reintentar("findAll", () -> this.itemService.findAll());
+	}
+
+	@Override
+	public Item findById(Long id, Integer cantidad) {
+		return this.reintentar("findById", () -> this.itemService.findById(id, cantidad));
+	}
+
+	@Override
+	public List<Item> findAllById(List<SolicitudItem> solicitudes) {
+		return this.itemService.findAllById(solicitudes);
+	}
+
+	@Override
+	public Producto save(Producto producto) {
+		return this.itemService.save(producto);
+	}
+
+	@Override
+	public Producto update(Producto producto, Long id) {
+		return this.itemService.update(producto, id);
+	}
+
+	@Override
+	public void deleteById(Long id) {
+		this.itemService.deleteById(id);
+	}
+
+	private <T> T reintentar(String operacion, Supplier<T> llamada) {
+		if (!this.habilitado) {
+			return llamada.get();
+		}
+		long plazo = System.nanoTime() + this.configuracionDinamica.actual().getTimeout().toNanos();
+		long espera = this.esperaBase.toNanos();
+		for (int intento = 0;; intento++) {
+			long inicioIntento = System.nanoTime();
+			try {
+				T resultado = llamada.get();
+				this.presupuesto.depositar();
+				if (intento > 0) {
+					this.contar(operacion, "exito");
+				}
+				return resultado;
+			} catch (RuntimeException e) {
+				if (intento > 0) {
+					this.contar(operacion, "fallo");
+				}
+				if (intento >= this.maximo || !esTransitorio(e) || Thread.currentThread().isInterrupted()) {
+					throw e;
+				}
+				espera = this.siguienteEspera(espera);
+				long ahora = System.nanoTime();
+				if (ahora + espera + (ahora - inicioIntento) > plazo) {
+					this.contar(operacion, "sin-tiempo");
+					throw e;
+				}
+				if (!this.presupuesto.retirar()) {
+					this.contar(operacion, "sin-presupuesto");
+					throw e;
+				}
+				esperar(espera, e);
+			}
+		}
+	}
+
+	// Decorrelated jitter: al azar entre la espera base y el triple de la anterior, sin superar la máxima
+	private long siguienteEspera(long anterior) {
+		long base = this.esperaBase.toNanos();
+		long superior = Math.max(base + 1, Math.min(this.esperaMaxima.toNanos(), anterior * 3));
+		return ThreadLocalRandom.current().nextLong(base, superior);
+	}
+
+	// Si el time limiter cancela la llamada mientras espera, se termina con el error original
+	private static void esperar(long nanos, RuntimeException error) {
+		try {
+			TimeUnit.NANOSECONDS.sleep(nanos);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw error;
+		}
+	}
+
+	// Errores de red y respuestas que indican una falla temporal del servicio-productos o de una instancia
+	static boolean esTransitorio(RuntimeException e) {
+		if (e instanceof RetryableException) {
+			return true;
+		}
+		if (e instanceof FeignException) {
+			return esEstadoTransitorio(((FeignException) e).status());
+		}
+		if (e instanceof HttpServerErrorException) {
+			return esEstadoTransitorio(((HttpServerErrorException) e).getRawStatusCode());
+		}
+		return e instanceof ResourceAccessException || e instanceof UncheckedIOException;
+	}
+
+	private static boolean esEstadoTransitorio(int estado) {
+		return estado == 502 || estado == 503 || estado == 504;
+	}
+
+	private void contar(String operacion, String resultado) {
+		this.contadores.get(operacion + resultado).increment();
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.models.Item;
+import com.formacionbdi.springboot.app.item.models.SolicitudItem;
+
+/*
+ * Decorador de "ItemService" que responde las lecturas desde la "CatalogoReplica" cuando está disponible.
+ * Si la réplica está deshabilitada o desactualizada, o el producto aún no llegó a ella, se delega a "serviceCache".
+ * Las escrituras se delegan y luego se aplican a la réplica.
+ */
+@Service("serviceReplica")
+public class ItemServiceReplica implements ItemService {
+
+	// ATRIBUTOS
+	@Autowired
+	@Qualifier("serviceCache")
+	private ItemService itemService;
+
+	@Autowired
+	private CatalogoReplica replica;
+
+	// MÉTODOS
+	@Override
+	public List<Item> findAll() {
+		if (!this.replica.disponible()) {
+			return this.itemService.findAll();
+		}
+		return this.replica.listar()
+				.stream()
+				.map(producto -> new Item(producto, 1))
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public Item findById(Long id, Integer cantidad) {
+		Producto producto = this.replica.disponible() ? this.replica.buscar(id) : null;
+		return producto != null ? new Item(producto, cantidad) : this.itemService.findById(id, cantidad);
+	}
+
+	@Override
+	public List<Item> findAllById(List<SolicitudItem> solicitudes) {
+		if (!this.replica.disponible()) {
+			return this.itemService.findAllById(solicitudes);
+		}
+		Map<Long, Producto> productos = new HashMap<>();
+		for (Long id : SolicitudesItem.ids(solicitudes)) {
+			Producto producto = this.replica.buscar(id);
+			if (producto == null) {
+				// Algún producto aún no llegó a la réplica, se consulta todo el lote al servicio delegado
+				return this.itemService.findAllById(solicitudes);
+			}
+			productos.put(id, producto);
+		}
+		return SolicitudesItem.armar(solicitudes, productos);
+	}
+
+	@Override
+	public Producto save(Producto producto) {
+		Producto productoCreado = this.itemService.save(producto);
+		this.replica.aplicar(productoCreado);
+		return productoCreado;
+	}
+
+	@Override
+	public Producto update(Producto producto, Long id) {
+		Producto productoEditado = this.itemService.update(producto, id);
+		this.replica.aplicar(productoEditado);
+		return productoEditado;
+	}
+
+	@Override
+	public void deleteById(Long id) {
+		this.itemService.deleteById(id);
+		this.replica.eliminar(id);
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.models.Item;
+import com.formacionbdi.springboot.app.item.models.SolicitudItem;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Decorador de "ItemService" que evita enviar varias peticiones simultáneas por el mismo producto.
+ * Si ya hay una consulta en curso para un id, las demás llamadas esperan esa misma respuesta.
+ * Así al "servicio-productos" llega como máximo una petición por id a la vez.
+ */
+@Service("serviceSingleFlight")
+public class ItemServiceSingleFlight implements ItemService {
+
+	// ATRIBUTOS
+	@Autowired
+	@Qualifier("serviceReintentos")
+	private ItemService itemService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private final SingleFlight<Long, Producto> consultas = new SingleFlight<>();
+
+	@PostConstruct
+	public void registrarMetricas() {
+		FunctionCounter.builder("items.singleflight.colapsadas", this.consultas, SingleFlight::getColapsadas)
+				.description("Llamadas a findById que reutilizaron una petición en curso")
+				.register(this.meterRegistry);
+		Gauge.builder("items.singleflight.en.vuelo", this.consultas, SingleFlight::getEnVuelo)
+				.description("Ids con una petición en curso al servicio-productos")
+				.register(this.meterRegistry);
+	}
+
+	// MÉTODOS
+	@Override
+	public List<Item> findAll() {
+		return this.itemService.findAll();
+	}
+
+	@Override
+	public Item findById(Long id, Integer cantidad) {
+		// Se comparte el producto y no el Item, ya que la cantidad puede ser distinta en cada llamada
+		Producto producto = this.consultas.ejecutar(id, clave -> this.itemService.findById(clave, 1).getProducto());
+		return new Item(producto, cantidad);
+	}
+
+	// Las consultas por lote ya viajan en una sola petición, no se agrupan
+	@Override
+	public List<Item> findAllById(List<SolicitudItem> solicitudes) {
+		return this.itemService.findAllById(solicitudes);
+	}
+
+	@Override
+	public Producto save(Producto producto) {
+		return this.itemService.save(producto);
+	}
+
+	@Override
+	public Producto update(Producto producto, Long id) {
+		return this.itemService.update(producto, id);
+	}
+
+	@Override
+	public void deleteById(Long id) {
+		this.itemService.deleteById(id);
+	}
+
+}
@@ -0,0 +1,236 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.clientes.ProductoClienteRest;
+import com.formacionbdi.springboot.app.item.models.ConsultaItems;
+import com.formacionbdi.springboot.app.item.models.Item;
+
+/*
+ * Listado de items sin cargar el catálogo completo en memoria.
+ * Lee el JSON del "servicio-productos" un producto a la vez con el parser de Jackson,
+ * lo envuelve en un "Item" y lo escribe de inmediato en la respuesta.
+ * Así la memoria usada no depende del tamaño del catálogo.
+ *
+ * También arma las páginas de "/listar?page=". Según lo disponible, la página se obtiene:
+ * 1. De la "CatalogoReplica", si está disponible.
+ * 2. Del "servicio-productos" con los parámetros page, size, nombre y fields, si "paginacion-soportada" está habilitado.
+ * 3. Del listado completo leído de forma incremental, dejando de escribir al completar la página.
+ */
+@Service
+public class ItemStreamingService {
+
+	// ATRIBUTOS
+	@Autowired
+	private RestTemplate clienteRest;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private ProductoClienteRest clienteFeign;
+
+	@Autowired
+	private CatalogoReplica catalogoReplica;
+
+	// Indica si el "/listar" del servicio-productos acepta los parámetros de paginación, filtro y proyección
+	@Value("${configuracion.listado.paginacion-soportada:false}")
+	private boolean paginacionSoportada;
+
+	// MÉTODOS
+	/*
+	 * execute()
+	 * A diferencia de "getForObject()", nos entrega el "InputStream" de la respuesta sin convertirlo,
+	 * el cual se lee dentro del "ResponseExtractor" mientras la conexión sigue abierta.
+	 */
+	public void listar(OutputStream salida) {
+		this.clienteRest.execute("http://servicio-productos/listar", HttpMethod.GET,
+				peticion -> peticion.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_JSON)),
+				respuesta -> {
+					this.escribirItems(respuesta.getBody(), salida);
+					return null;
+				});
+	}
+
+	// Convierte un arreglo JSON de productos en un arreglo JSON de items, elemento por elemento
+	public void escribirItems(InputStream entrada, OutputStream salida) throws IOException {
+		try (JsonParser parser = this.objectMapper.getFactory().createParser(entrada);
+				JsonGenerator generador = this.objectMapper.getFactory().createGenerator(salida)) {
+
+			// El stream de salida lo cierra el contenedor, no el generador
+			generador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				throw new IOException("Se esperaba un arreglo JSON de productos");
+			}
+
+			ObjectWriter escritor = this.escritor();
+			generador.writeStartArray();
+			while (parser.nextToken() == JsonToken.START_OBJECT) {
+				Producto producto = this.objectMapper.readValue(parser, Producto.class);
+				escritor.writeValue(generador, new Item(producto, 1));
+			}
+			generador.writeEndArray();
+		}
+	}
+
+	public void listarPagina(ConsultaItems consulta, OutputStream salida) throws IOException {
+		if (this.catalogoReplica.disponible()) {
+			try (JsonGenerator generador = this.crearGenerador(salida)) {
+				Pagina pagina = new Pagina(consulta, generador);
+				for (Producto producto : this.catalogoReplica.listar()) {
+					if (pagina.completa()) {
+						break;
+					}
+					pagina.agregar(producto);
+				}
+				pagina.terminar();
+			}
+		} else if (this.paginacionSoportada) {
+			List<Producto> productos = this.clienteFeign.listarPagina(consulta.getPage(), consulta.getSize(),
+					consulta.getFiltro(), consulta.getCamposProducto());
+			try (JsonGenerator generador = this.crearGenerador(salida)) {
+				// El servicio-productos ya filtró y paginó, solo falta armar los items
+				Pagina pagina = new Pagina(new ConsultaItems(0, consulta.getSize(), null, consulta.getFields()), generador);
+				productos.forEach(pagina::agregar);
+				pagina.terminar();
+			}
+		} else {
+			this.clienteRest.execute("http://servicio-productos/listar", HttpMethod.GET,
+					peticion -> peticion.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_JSON)),
+					respuesta -> {
+						this.escribirPagina(respuesta.getBody(), salida, consulta);
+						return null;
+					});
+		}
+	}
+
+	/*
+	 * Igual que "escribirItems()", pero solo escribe los items de la página pedida.
+	 * Los productos anteriores a la página se saltan sin convertirlos cuando no hay filtro,
+	 * y la lectura termina al completar la página.
+	 */
+	public void escribirPagina(InputStream entrada, OutputStream salida, ConsultaItems consulta) throws IOException {
+		try (JsonParser parser = this.objectMapper.getFactory().createParser(entrada);
+				JsonGenerator generador = this.crearGenerador(salida)) {
+
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				throw new IOException("Se esperaba un arreglo JSON de productos");
+			}
+
+			Pagina pagina = new Pagina(consulta, generador);
+			while (!pagina.completa() && parser.nextToken() == JsonToken.START_OBJECT) {
+				if (consulta.getFiltro() == null && pagina.omitir > 0) {
+					parser.skipChildren();
+					pagina.omitir--;
+				} else {
+					pagina.agregar(this.objectMapper.readValue(parser, Producto.class));
+				}
+			}
+			pagina.terminar();
+		}
+	}
+
+	private JsonGenerator crearGenerador(OutputStream salida) throws IOException {
+		JsonGenerator generador = this.objectMapper.getFactory().createGenerator(salida);
+		generador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		return generador;
+	}
+
+	/*
+	 * Con "FLUSH_AFTER_WRITE_VALUE" (habilitado por defecto) cada item se enviaría al socket por separado.
+	 * Sin él, el generador escribe en la respuesta al llenar su buffer, y el contenedor al llenar el suyo.
+	 */
+	private ObjectWriter escritor() {
+		return this.objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+	}
+
+	// Escribe los items que coinciden con el filtro, saltando los anteriores a la página pedida
+	private final class Pagina {
+		private final ConsultaItems consulta;
+		private final JsonGenerator generador;
+		private final ObjectWriter escritor;
+		private long omitir;
+		private int restantes;
+
+		private Pagina(ConsultaItems consulta, JsonGenerator generador) throws IOException {
+			this.consulta = consulta;
+			this.generador = generador;
+			this.escritor = escritor();
+			this.omitir = (long) consulta.getPage() * consulta.getSize();
+			this.restantes = consulta.getSize();
+			generador.writeStartArray();
+		}
+
+		private boolean completa() {
+			return this.restantes == 0;
+		}
+
+		private void agregar(Producto producto) {
+			if (this.completa() || !this.consulta.coincide(producto)) {
+				return;
+			}
+			if (this.omitir > 0) {
+				this.omitir--;
+				return;
+			}
+			try {
+				this.escribir(new Item(producto, 1));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			this.restantes--;
+		}
+
+		private void escribir(Item item) throws IOException {
+			if (!this.consulta.tieneProyeccion()) {
+				this.escritor.writeValue(this.generador, item);
+				return;
+			}
+			// Solo se copian los campos pedidos, "producto.nombre" se busca dentro del objeto "producto"
+			ObjectNode completo = objectMapper.valueToTree(item);
+			ObjectNode proyectado = objectMapper.createObjectNode();
+			for (String campo : this.consulta.getFields()) {
+				int punto = campo.indexOf('.');
+				if (punto < 0) {
+					JsonNode valor = completo.get(campo);
+					if (valor != null) {
+						proyectado.set(campo, valor);
+					}
+				} else {
+					JsonNode valor = completo.path(campo.substring(0, punto)).get(campo.substring(punto + 1));
+					if (valor != null) {
+						proyectado.with(campo.substring(0, punto)).set(campo.substring(punto + 1), valor);
+					}
+				}
+			}
+			this.escritor.writeValue(this.generador, proyectado);
+		}
+
+		private void terminar() throws IOException {
+			this.generador.writeEndArray();
+		}
+	}
+
+}
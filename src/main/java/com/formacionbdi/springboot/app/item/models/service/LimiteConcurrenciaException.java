@@ -0,0 +1,19 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/*
+ * Se lanza cuando una operación supera su límite de peticiones simultáneas hacia el "servicio-productos".
+ * En los endpoints con circuit breaker se responde con el método alternativo, en el resto con un 503.
+ */
+@ResponseStatus(code = HttpStatus.SERVICE_UNAVAILABLE)
+public class LimiteConcurrenciaException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public LimiteConcurrenciaException(String operacion) {
+		super("Límite de concurrencia alcanzado en la operación " + operacion);
+	}
+
+}
@@ -0,0 +1,279 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.catalina.connector.CoyoteOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.formacionbdi.springboot.app.item.models.EtiquetaItems;
+import com.formacionbdi.springboot.app.item.models.Item;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*
+ * Respuesta de "/listar" ya serializada en JSON (y opcionalmente comprimida con gzip), así cada petición
+ * solo copia bytes al socket en lugar de recorrer y serializar el catálogo completo.
+ *
+ * Se guarda un solo listado, identificado de dos formas:
+ * - "version": la versión de "CatalogoReplica" con que se armó. Con la réplica disponible se compara sin llamar a "findAll()".
+ * - "datos": el hash de los items de "EtiquetaItems", usado sin réplica. El listado se reutiliza mientras el
+ *   servicio-productos devuelva los mismos datos, se ahorra la serialización aunque no la consulta.
+ *
+ * El listado se arma fuera de la petición, en el pool "itemsIoExecutor": al recibir "CatalogoActualizado" o cuando
+ * una petición no encuentra un listado vigente. Mientras tanto esas peticiones se serializan de la forma habitual.
+ *
+ * Los bytes se guardan en ByteBuffer directos, Tomcat los escribe al socket sin copiarlos al heap.
+ * Solo se usa para JSON, los clientes que prefieren Smile o CBOR siguen pasando por los "HttpMessageConverter".
+ *
+ * Métricas: "items.listado.preserializado" con el tag "resultado" (servido o no-disponible)
+ * y "items.listado.serializacion" con el tiempo de cada armado.
+ */
+@Component
+public class ListadoSerializado {
+
+	private static final String GZIP = "gzip";
+
+	private final Logger logger = LoggerFactory.getLogger(ListadoSerializado.class);
+
+	// ATRIBUTOS
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private CatalogoReplica catalogoReplica;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	@Qualifier("itemsIoExecutor")
+	private Executor itemsIoExecutor;
+
+	@Value("${configuracion.listado.preserializado.habilitado:true}")
+	private boolean habilitado;
+
+	// Guarda además la versión comprimida, para los clientes que envían "Accept-Encoding: gzip"
+	@Value("${configuracion.listado.preserializado.gzip:true}")
+	private boolean gzip;
+
+	private volatile Listado actual;
+	private final AtomicBoolean armando = new AtomicBoolean();
+	private Counter servidos;
+	private Counter noDisponibles;
+	private Timer serializacion;
+
+	@PostConstruct
+	public void inicializar() {
+		this.servidos = this.contador("servido");
+		this.noDisponibles = this.contador("no-disponible");
+		this.serializacion = Timer.builder("items.listado.serializacion")
+				.description("Tiempo en serializar el listado completo de \"/listar\"")
+				.register(this.meterRegistry);
+	}
+
+	// MÉTODOS
+	/*
+	 * Listado vigente según la versión de la réplica, sin consultar los items.
+	 * Devuelve null si la réplica no está disponible o el listado aún no corresponde a su versión, en este último caso lo arma.
+	 */
+	public Listado deReplica() {
+		if (!this.habilitado || !this.catalogoReplica.disponible()) {
+			return null;
+		}
+		Listado listado = this.actual;
+		if (listado != null && listado.version == this.catalogoReplica.getVersion()) {
+			return listado;
+		}
+		this.armar(null);
+		this.noDisponibles.increment();
+		return null;
+	}
+
+	// Listado con los mismos datos que "items", o null mientras se arma a partir de ellos
+	public Listado buscar(List<Item> items, long datos) {
+		if (!this.habilitado) {
+			return null;
+		}
+		Listado listado = this.actual;
+		if (listado != null && listado.datos == datos) {
+			return listado;
+		}
+		this.armar(items);
+		this.noDisponibles.increment();
+		return null;
+	}
+
+	@EventListener
+	public void catalogoActualizado(CatalogoActualizado evento) {
+		if (this.habilitado && this.catalogoReplica.disponible()) {
+			this.armar(null);
+		}
+	}
+
+	/*
+	 * Escribe el listado en la respuesta y la confirma. Devuelve false sin escribir nada si el cliente prefiere otro formato,
+	 * en ese caso se debe responder con los items.
+	 * Con "Content-Encoding" presente Tomcat no vuelve a comprimir la respuesta ("server.compression").
+	 * Las dos versiones llevan el ETag de los datos, por eso debe ser débil: un ETag fuerte compartido diría que
+	 * los bytes con y sin gzip son los mismos. Si ya viene débil ("EtiquetaItems") no se modifica.
+	 */
+	public boolean escribir(Listado listado, HttpServletRequest request, HttpServletResponse response) throws IOException {
+		if (!aceptaJson(request.getHeader(HttpHeaders.ACCEPT))) {
+			this.noDisponibles.increment();
+			return false;
+		}
+		ByteBuffer cuerpo = listado.json;
+		response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		if (listado.gzip != null && aceptaGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+			cuerpo = listado.gzip;
+			response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+			String etiqueta = response.getHeader(HttpHeaders.ETAG);
+			if (etiqueta != null && !etiqueta.startsWith("W/")) {
+				response.setHeader(HttpHeaders.ETAG, "W/" + etiqueta);
+			}
+		}
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setContentLength(cuerpo.remaining());
+
+		// Cada petición usa su propia vista del buffer, el contenido es compartido
+		OutputStream salida = response.getOutputStream();
+		if (salida instanceof CoyoteOutputStream) {
+			((CoyoteOutputStream) salida).write(cuerpo.duplicate());
+		} else {
+			Channels.newChannel(salida).write(cuerpo.duplicate());
+		}
+		response.flushBuffer();
+		this.servidos.increment();
+		return true;
+	}
+
+	// Con "items" null se arma a partir de la réplica. Si ya se está armando otro listado no se hace nada
+	private void armar(List<Item> items) {
+		if (!this.armando.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			this.itemsIoExecutor.execute(() -> {
+				try {
+					this.actual = this.serializacion.recordCallable(() -> this.serializar(items));
+				} catch (Exception e) {
+					logger.warn("No se pudo serializar el listado: " + e.getMessage());
+				} finally {
+					this.armando.set(false);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			this.armando.set(false);
+		}
+	}
+
+	private Listado serializar(List<Item> items) throws IOException {
+		long version = -1;
+		if (items == null) {
+			// Primero la versión: si la réplica cambia entre ambas lecturas, el listado queda con una versión anterior y se vuelve a armar
+			version = this.catalogoReplica.getVersion();
+			items = this.catalogoReplica.listar()
+					.stream()
+					.map(producto -> new Item(producto, 1))
+					.collect(Collectors.toList());
+		}
+		byte[] json = this.objectMapper.writeValueAsBytes(items);
+		byte[] comprimido = null;
+		if (this.gzip) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4 + 64);
+			try (GZIPOutputStream salida = new GZIPOutputStream(bytes)) {
+				salida.write(json);
+			}
+			comprimido = bytes.toByteArray();
+		}
+		return new Listado(version, EtiquetaItems.datos(items), directo(json), comprimido == null ? null : directo(comprimido));
+	}
+
+	private static ByteBuffer directo(byte[] bytes) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+		buffer.put(bytes).flip();
+		return buffer.asReadOnlyBuffer();
+	}
+
+	// Sin "Accept", o con JSON como formato preferido (incluye "*/*", ya que el primer converter es el de JSON)
+	private static boolean aceptaJson(String accept) {
+		if (!StringUtils.hasText(accept)) {
+			return true;
+		}
+		try {
+			List<MediaType> tipos = MediaType.parseMediaTypes(accept);
+			MediaType.sortBySpecificityAndQuality(tipos);
+			return !tipos.isEmpty() && tipos.get(0).isCompatibleWith(MediaType.APPLICATION_JSON);
+		} catch (InvalidMediaTypeException e) {
+			return false;
+		}
+	}
+
+	// "gzip" presente en "Accept-Encoding" y no excluido con "q=0"
+	private static boolean aceptaGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		for (String codificacion : acceptEncoding.split(",")) {
+			String[] partes = codificacion.split(";");
+			if (GZIP.equalsIgnoreCase(partes[0].trim())) {
+				return partes.length == 1 || !partes[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+			}
+		}
+		return false;
+	}
+
+	private Counter contador(String resultado) {
+		return Counter.builder("items.listado.preserializado")
+				.description("Respuestas de \"/listar\" según si se sirvieron ya serializadas")
+				.tag("resultado", resultado)
+				.register(this.meterRegistry);
+	}
+
+	// Listado serializado, inmutable y compartido entre las peticiones
+	public static final class Listado {
+		private final long version;
+		private final long datos;
+		private final ByteBuffer json;
+		private final ByteBuffer gzip;
+
+		private Listado(long version, long datos, ByteBuffer json, ByteBuffer gzip) {
+			this.version = version;
+			this.datos = datos;
+			this.json = json;
+			this.gzip = gzip;
+		}
+
+		public long getDatos() {
+			return this.datos;
+		}
+	}
+
+}
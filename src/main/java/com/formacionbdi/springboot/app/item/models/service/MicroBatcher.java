@@ -0,0 +1,136 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/*
+ * Agrupa las consultas individuales que llegan dentro de una ventana corta de tiempo
+ * y las envía juntas con una sola llamada a "cargaLote".
+ *
+ * Un lote se envía cuando alcanza "tamanoMaximo" claves o cuando se cumple la "ventana",
+ * lo que ocurra primero. Las claves repetidas dentro de un lote se consultan una sola vez.
+ */
+public class MicroBatcher<K, V> {
+
+	// ATRIBUTOS
+	private final Function<List<K>, Map<K, V>> cargaLote;
+	private final int tamanoMaximo;
+	private final long ventanaNanos;
+	private final Executor ejecutor;
+	private final Function<K, RuntimeException> sinResultado;
+	private final ScheduledExecutorService planificador;
+
+	// Lote que está acumulando claves, protegido por "this"
+	private Lote<K, V> loteActual;
+
+	// CONSTRUCTORES
+	/*
+	 * cargaLote: consulta todas las claves en una sola petición, las claves sin resultado no se incluyen en el Map
+	 * ejecutor: hilos donde se ejecuta "cargaLote", para no bloquear al planificador
+	 * sinResultado: error con que se completa una clave que no está en el resultado del lote,
+	 *   debe ser el mismo que lanza la consulta individual para que el resto de la aplicación no note la diferencia
+	 */
+	public MicroBatcher(Function<List<K>, Map<K, V>> cargaLote, int tamanoMaximo, Duration ventana, Executor ejecutor,
+			Function<K, RuntimeException> sinResultado) {
+		this.cargaLote = cargaLote;
+		this.tamanoMaximo = tamanoMaximo;
+		this.ventanaNanos = ventana.toNanos();
+		this.ejecutor = ejecutor;
+		this.sinResultado = sinResultado;
+		this.planificador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+			Thread hilo = new Thread(tarea, "micro-batcher");
+			hilo.setDaemon(true);
+			return hilo;
+		});
+	}
+
+	public MicroBatcher(Function<List<K>, Map<K, V>> cargaLote, int tamanoMaximo, Duration ventana, Executor ejecutor) {
+		this(cargaLote, tamanoMaximo, ventana, ejecutor, clave -> new NoSuchElementException("No existe resultado para la clave: " + clave));
+	}
+
+	// MÉTODOS
+	public CompletableFuture<V> solicitar(K clave) {
+		CompletableFuture<V> futuro;
+		Lote<K, V> lleno = null;
+
+		synchronized (this) {
+			if (this.loteActual == null) {
+				Lote<K, V> nuevo = new Lote<>();
+				this.loteActual = nuevo;
+				this.planificador.schedule(() -> this.vencer(nuevo), this.ventanaNanos, TimeUnit.NANOSECONDS);
+			}
+			futuro = this.loteActual.agregar(clave);
+			if (this.loteActual.pendientes.size() >= this.tamanoMaximo) {
+				lleno = this.loteActual;
+				this.loteActual = null;
+			}
+		}
+
+		if (lleno != null) {
+			this.despachar(lleno);
+		}
+		return futuro;
+	}
+
+	public void cerrar() {
+		this.planificador.shutdownNow();
+	}
+
+	// Se ejecuta al cumplirse la ventana. Si el lote ya se envió por tamaño no hace nada.
+	private void vencer(Lote<K, V> lote) {
+		synchronized (this) {
+			if (this.loteActual != lote) {
+				return;
+			}
+			this.loteActual = null;
+		}
+		this.despachar(lote);
+	}
+
+	/*
+	 * Si el ejecutor rechaza el envío ("supplyAsync" lanza la excepción en este hilo), todas las claves del lote fallan con el rechazo.
+	 * Sin esto, cuando el lote se despacha desde "vencer()" la excepción se pierde en el planificador y los futuros nunca terminan.
+	 */
+	private void despachar(Lote<K, V> lote) {
+		CompletableFuture<Map<K, V>> envio;
+		try {
+			envio = CompletableFuture.supplyAsync(() -> this.cargaLote.apply(new ArrayList<>(lote.pendientes.keySet())), this.ejecutor);
+		} catch (RejectedExecutionException e) {
+			lote.pendientes.values().forEach(futuro -> futuro.completeExceptionally(e));
+			return;
+		}
+		envio.whenComplete((resultados, error) -> lote.pendientes.forEach((clave, futuro) -> {
+			if (error != null) {
+				futuro.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+						? error.getCause()
+						: error);
+			} else if (resultados.containsKey(clave)) {
+				futuro.complete(resultados.get(clave));
+			} else {
+				futuro.completeExceptionally(this.sinResultado.apply(clave));
+			}
+		}));
+	}
+
+	// Claves acumuladas de un lote, cada una con el futuro que comparten sus solicitantes
+	private static class Lote<K, V> {
+		private final Map<K, CompletableFuture<V>> pendientes = new LinkedHashMap<>();
+
+		private CompletableFuture<V> agregar(K clave) {
+			return this.pendientes.computeIfAbsent(clave, k -> new CompletableFuture<>());
+		}
+	}
+
+}
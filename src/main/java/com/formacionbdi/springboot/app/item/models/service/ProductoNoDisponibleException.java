@@ -0,0 +1,23 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/*
+ * Respuesta 503 de los métodos alternativos cuando el producto nunca se obtuvo del "servicio-productos".
+ *
+ * Se usa siempre la misma instancia, sin stack trace ni causa: con el circuito abierto se lanza en cada request
+ * y el stack trace no aporta información, la causa real ya se registra en el log y en "items.fallback".
+ */
+@ResponseStatus(code = HttpStatus.SERVICE_UNAVAILABLE, reason = "Producto no disponible")
+public class ProductoNoDisponibleException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final ProductoNoDisponibleException INSTANCIA = new ProductoNoDisponibleException();
+
+	private ProductoNoDisponibleException() {
+		super("Producto no disponible", null, false, false);
+	}
+
+}
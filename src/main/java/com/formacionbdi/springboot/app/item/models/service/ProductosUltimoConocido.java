@@ -0,0 +1,216 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Guarda la última versión conocida de cada producto obtenido con éxito del "servicio-productos".
+ * Los métodos alternativos del circuit breaker responden con estos datos en lugar de un producto inventado.
+ *
+ * Para poder guardar el catálogo completo, cada producto se codifica en un arreglo de bytes compacto
+ * en lugar de mantener el objeto "Producto" con sus campos boxed:
+ * [guardadoEn: long][precio: double][createAt: long][port: int][nombre: UTF-8]
+ *
+ * Opcionalmente se guarda en un archivo cada "intervalo-respaldo" y al detener la aplicación, y se carga al iniciarla.
+ * El respaldo periódico cubre las caídas sin un cierre ordenado (kill -9, falta de memoria), donde no se ejecuta "@PreDestroy".
+ *
+ * Los productos más consultados se mantienen ya decodificados en "decodificados", así con el circuito abierto
+ * cada respuesta alternativa reutiliza el mismo "Registro" en lugar de crear un "Producto" y un "Date" nuevos.
+ * Por eso el "Producto" de un "Registro" es compartido y no se debe modificar.
+ */
+@Component
+public class ProductosUltimoConocido {
+
+	private static final int CABECERA = Long.BYTES + Double.BYTES + Long.BYTES + Integer.BYTES;
+	private static final long SIN_VALOR = Long.MIN_VALUE;
+	private static final int PUERTO_SIN_VALOR = Integer.MIN_VALUE;
+
+	private final Logger logger = LoggerFactory.getLogger(ProductosUltimoConocido.class);
+
+	// ATRIBUTOS
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${configuracion.ultimo-conocido.maximo-productos:200000}")
+	private int maximoProductos;
+
+	// Ruta del archivo de respaldo, vacío para no usar archivo
+	@Value("${configuracion.ultimo-conocido.archivo:}")
+	private String archivo;
+
+	// Cantidad de registros decodificados que se mantienen en memoria
+	@Value("${configuracion.ultimo-conocido.decodificados:1000}")
+	private int maximoDecodificados;
+
+	private final Map<Long, byte[]> productos = new ConcurrentHashMap<>();
+	private Cache<Long, Registro> decodificados;
+
+	@PostConstruct
+	public void inicializar() {
+		this.decodificados = Caffeine.newBuilder().maximumSize(this.maximoDecodificados).build();
+		Gauge.builder("items.ultimo.conocido.productos", this.productos, Map::size)
+				.description("Productos disponibles para los métodos alternativos")
+				.register(this.meterRegistry);
+		if (!this.archivo.isEmpty()) {
+			this.cargar(Paths.get(this.archivo));
+		}
+	}
+
+	// "intervalo-respaldo" en milisegundos, como en "CatalogoReplica"
+	@Scheduled(fixedDelayString = "${configuracion.ultimo-conocido.intervalo-respaldo:300000}",
+			initialDelayString = "${configuracion.ultimo-conocido.intervalo-respaldo:300000}")
+	@PreDestroy
+	public synchronized void respaldar() {
+		if (!this.archivo.isEmpty()) {
+			this.guardarArchivo(Paths.get(this.archivo));
+		}
+	}
+
+	// MÉTODOS
+	public void guardar(Producto producto) {
+		if (producto == null || producto.getId() == null) {
+			return;
+		}
+		// Al alcanzar el máximo solo se actualizan los productos ya conocidos
+		if (this.productos.size() >= this.maximoProductos && !this.productos.containsKey(producto.getId())) {
+			return;
+		}
+		this.productos.put(producto.getId(), codificar(producto, System.currentTimeMillis()));
+		this.decodificados.invalidate(producto.getId());
+	}
+
+	public void eliminar(Long id) {
+		this.productos.remove(id);
+		this.decodificados.invalidate(id);
+	}
+
+	// Devuelve null si el producto nunca se obtuvo con éxito
+	public Registro buscar(Long id) {
+		Registro registro = this.decodificados.getIfPresent(id);
+		if (registro != null) {
+			return registro;
+		}
+		byte[] datos = this.productos.get(id);
+		if (datos == null) {
+			return null;
+		}
+		registro = decodificar(id, datos);
+		this.decodificados.put(id, registro);
+		return registro;
+	}
+
+	private static byte[] codificar(Producto producto, long guardadoEn) {
+		byte[] nombre = producto.getNombre() == null ? new byte[0] : producto.getNombre().getBytes(StandardCharsets.UTF_8);
+		return ByteBuffer.allocate(CABECERA + nombre.length)
+				.putLong(guardadoEn)
+				.putDouble(producto.getPrecio() == null ? Double.NaN : producto.getPrecio())
+				.putLong(producto.getCreateAt() == null ? SIN_VALOR : producto.getCreateAt().getTime())
+				.putInt(producto.getPort() == null ? PUERTO_SIN_VALOR : producto.getPort())
+				.put(nombre)
+				.array();
+	}
+
+	private static Registro decodificar(Long id, byte[] datos) {
+		ByteBuffer buffer = ByteBuffer.wrap(datos);
+		long guardadoEn = buffer.getLong();
+		double precio = buffer.getDouble();
+		long createAt = buffer.getLong();
+		int port = buffer.getInt();
+
+		Producto producto = new Producto();
+		producto.setId(id);
+		producto.setNombre(new String(datos, CABECERA, datos.length - CABECERA, StandardCharsets.UTF_8));
+		producto.setPrecio(Double.isNaN(precio) ? null : precio);
+		producto.setCreateAt(createAt == SIN_VALOR ? null : new Date(createAt));
+		producto.setPort(port == PUERTO_SIN_VALOR ? null : port);
+		return new Registro(producto, guardadoEn);
+	}
+
+	// Formato del archivo: [cantidad: int] y por cada producto [id: long][largo: int][datos]
+	private void guardarArchivo(Path destino) {
+		try {
+			Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+			try (DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporal)))) {
+				Map<Long, byte[]> copia = Map.copyOf(this.productos);
+				salida.writeInt(copia.size());
+				for (Map.Entry<Long, byte[]> producto : copia.entrySet()) {
+					salida.writeLong(producto.getKey());
+					salida.writeInt(producto.getValue().length);
+					salida.write(producto.getValue());
+				}
+			}
+			Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			logger.info("Respaldo de productos guardado en " + destino);
+		} catch (IOException e) {
+			logger.warn("No se pudo guardar el respaldo de productos en " + destino + ": " + e.getMessage());
+		}
+	}
+
+	private void cargar(Path origen) {
+		if (!Files.exists(origen)) {
+			return;
+		}
+		try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(origen)))) {
+			int cantidad = Math.min(entrada.readInt(), this.maximoProductos);
+			for (int i = 0; i < cantidad; i++) {
+				long id = entrada.readLong();
+				byte[] datos = new byte[entrada.readInt()];
+				entrada.readFully(datos);
+				this.productos.put(id, datos);
+			}
+			logger.info("Respaldo de productos cargado desde " + origen + ": " + cantidad + " productos");
+		} catch (IOException e) {
+			logger.warn("No se pudo cargar el respaldo de productos desde " + origen + ": " + e.getMessage());
+		}
+	}
+
+	// Producto recuperado junto con el momento en que se obtuvo del "servicio-productos"
+	public static class Registro {
+		private final Producto producto;
+		private final long guardadoEn;
+
+		private Registro(Producto producto, long guardadoEn) {
+			this.producto = producto;
+			this.guardadoEn = guardadoEn;
+		}
+
+		public Producto getProducto() {
+			return producto;
+		}
+
+		// Segundos transcurridos desde que se obtuvo el producto
+		public long getAntiguedad() {
+			return Math.max(0, (System.currentTimeMillis() - this.guardadoEn) / 1000);
+		}
+	}
+
+}
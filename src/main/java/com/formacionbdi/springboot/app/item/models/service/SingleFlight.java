@@ -0,0 +1,72 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/*
+ * Agrupa las llamadas concurrentes que piden la misma clave.
+ * La primera llamada ejecuta la carga y las demás esperan el resultado de su "CompletableFuture",
+ * sin enviar una nueva petición.
+ *
+ * No usa bloqueos propios: "putIfAbsent" del ConcurrentHashMap decide quién ejecuta la carga.
+ */
+public class SingleFlight<K, V> {
+
+	// ATRIBUTOS
+	private final ConcurrentMap<K, CompletableFuture<V>> enVuelo = new ConcurrentHashMap<>();
+	private final LongAdder colapsadas = new LongAdder();
+
+	// MÉTODOS
+	public V ejecutar(K clave, Function<K, V> carga) {
+		CompletableFuture<V> nueva = new CompletableFuture<>();
+		CompletableFuture<V> existente = this.enVuelo.putIfAbsent(clave, nueva);
+
+		if (existente != null) {
+			this.colapsadas.increment();
+			return esperar(existente);
+		}
+
+		try {
+			V valor = carga.apply(clave);
+			nueva.complete(valor);
+			return valor;
+		} catch (RuntimeException | Error e) {
+			nueva.completeExceptionally(e);
+			throw e;
+		} finally {
+			// Se remueve solo si sigue siendo nuestra petición
+			this.enVuelo.remove(clave, nueva);
+		}
+	}
+
+	// Cantidad de llamadas que se unieron a una petición ya en curso
+	public long getColapsadas() {
+		return this.colapsadas.sum();
+	}
+
+	// Cantidad de claves con una petición en curso
+	public int getEnVuelo() {
+		return this.enVuelo.size();
+	}
+
+	// Devolvemos la misma excepción que recibió la llamada que ejecutó la carga
+	private V esperar(CompletableFuture<V> futuro) {
+		try {
+			return futuro.join();
+		} catch (CompletionException e) {
+			Throwable causa = e.getCause();
+			if (causa instanceof RuntimeException) {
+				throw (RuntimeException) causa;
+			}
+			if (causa instanceof Error) {
+				throw (Error) causa;
+			}
+			throw e;
+		}
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.models.Item;
+import com.formacionbdi.springboot.app.item.models.SolicitudItem;
+
+// Métodos compartidos por las implementaciones de "ItemService.findAllById()"
+final class SolicitudesItem {
+
+	private SolicitudesItem() {
+
+	}
+
+	// Ids sin repetir, en el orden en que llegaron
+	static List<Long> ids(List<SolicitudItem> solicitudes) {
+		return solicitudes.stream()
+				.map(SolicitudItem::getId)
+				.distinct()
+				.collect(Collectors.toList());
+	}
+
+	static Map<Long, Producto> porId(List<Producto> productos) {
+		return productos.stream()
+				.collect(Collectors.toMap(Producto::getId, Function.identity(), (primero, segundo) -> primero));
+	}
+
+	// Arma los items en el orden de las solicitudes, omitiendo los ids sin producto
+	static List<Item> armar(List<SolicitudItem> solicitudes, Map<Long, Producto> productos) {
+		List<Item> items = new ArrayList<>(solicitudes.size());
+		for (SolicitudItem solicitud : solicitudes) {
+			Producto producto = productos.get(solicitud.getId());
+			if (producto != null) {
+				items.add(new Item(producto, solicitud.getCantidad()));
+			}
+		}
+		return items;
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.formacionbdi.springboot.app.item;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+
+class ConfiguracionDinamicaTests {
+
+	private static final String CIRCUITO = "resilience4j.circuitbreaker.configs.defecto.";
+	private static final String TIEMPO_LIMITE = "resilience4j.timelimiter.instances.items.timeout-duration";
+
+	private MockEnvironment env;
+	private CircuitBreakerRegistry circuitBreakerRegistry;
+	private TimeLimiterRegistry timeLimiterRegistry;
+	private ConfiguracionDinamica configuracion;
+
+	// Mismos valores que el "application.yml"
+	@BeforeEach
+	void iniciar() {
+		this.env = new MockEnvironment()
+				.withProperty("configuracion.texto", "Hola")
+				.withProperty("resilience4j.circuitbreaker.instances.items.base-config", "defecto")
+				.withProperty(CIRCUITO + "sliding-window-size", "6")
+				.withProperty(CIRCUITO + "failure-rate-threshold", "50")
+				.withProperty(CIRCUITO + "wait-duration-in-open-state", "20s")
+				.withProperty(CIRCUITO + "slow-call-duration-threshold", "2s")
+				.withProperty(TIEMPO_LIMITE, "2s");
+		this.circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+		this.circuitBreakerRegistry.circuitBreaker("items", CircuitBreakerConfig.custom()
+				.slidingWindowSize(6)
+				.waitDurationInOpenState(Duration.ofSeconds(20))
+				.slowCallDurationThreshold(Duration.ofSeconds(2))
+				.ignoreExceptions(IllegalStateException.class)
+				.build());
+		this.timeLimiterRegistry = TimeLimiterRegistry.ofDefaults();
+
+		this.configuracion = new ConfiguracionDinamica();
+		ReflectionTestUtils.setField(this.configuracion, "env", this.env);
+		ReflectionTestUtils.setField(this.configuracion, "circuitBreakerRegistry", this.circuitBreakerRegistry);
+		ReflectionTestUtils.setField(this.configuracion, "timeLimiterRegistry", this.timeLimiterRegistry);
+		this.configuracion.inicializar();
+	}
+
+	@Test
+	void reemplazaElCircuitoYRegistraElCambio() {
+		this.cambiar(CIRCUITO + "sliding-window-size", "20");
+
+		CircuitBreakerConfig config = this.circuitBreakerRegistry.circuitBreaker("items").getCircuitBreakerConfig();
+		assertEquals(20, config.getSlidingWindowSize());
+		// El resto de la configuración se conserva
+		assertTrue(config.getIgnoreExceptionPredicate().test(new IllegalStateException()));
+
+		List<ConfiguracionDinamica.Cambio> cambios = this.configuracion.getCambios();
+		assertEquals(1, cambios.size());
+		assertEquals("items.sliding-window-size", cambios.get(0).getPropiedad());
+		assertEquals("6", cambios.get(0).getAnterior());
+		assertEquals("20", cambios.get(0).getNuevo());
+	}
+
+	@Test
+	void soloReemplazaLoQueCambio() {
+		CircuitBreaker circuito = this.circuitBreakerRegistry.circuitBreaker("items");
+		this.cambiar(TIEMPO_LIMITE, "500ms");
+		this.cambiar("configuracion.texto", "Chau");
+
+		assertSame(circuito, this.circuitBreakerRegistry.circuitBreaker("items"));
+		assertEquals(Duration.ofMillis(500), this.timeLimiterRegistry.timeLimiter("items").getTimeLimiterConfig().getTimeoutDuration());
+		assertEquals("Chau", this.configuracion.actual().getTexto());
+		assertEquals(2, this.configuracion.getCambios().size());
+	}
+
+	@Test
+	void unValorInvalidoConservaLaConfiguracionAnterior() {
+		ConfiguracionDinamica.Ajustes anteriores = this.configuracion.actual();
+		this.env.setProperty("configuracion.texto", "Chau");
+		this.cambiar(CIRCUITO + "failure-rate-threshold", "150");
+
+		assertSame(anteriores, this.configuracion.actual());
+		assertEquals(6, this.circuitBreakerRegistry.circuitBreaker("items").getCircuitBreakerConfig().getSlidingWindowSize());
+		assertTrue(this.configuracion.getCambios().isEmpty());
+	}
+
+	private void cambiar(String propiedad, String valor) {
+		this.env.setProperty(propiedad, valor);
+		this.configuracion.entornoCambiado(new EnvironmentChangeEvent(Set.of(propiedad)));
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.formacionbdi.springboot.app.item;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+
+class HilosVirtualesConfigTests {
+
+	@Test
+	void sinJava21FallaAlIniciarConUnMensajeClaro() {
+		assumeTrue(Runtime.version().feature() < 21);
+
+		IllegalStateException e = assertThrows(IllegalStateException.class, () -> HilosVirtualesConfig.crearEjecutor("prueba-"));
+		assertTrue(e.getMessage().contains("Java 21"));
+	}
+
+	@Test
+	void ejecutaCadaTareaEnUnHiloVirtualConNombre() throws Exception {
+		assumeTrue(Runtime.version().feature() >= 21);
+
+		ExecutorService ejecutor = HilosVirtualesConfig.crearEjecutor("prueba-");
+		try {
+			Thread hilo = ejecutor.submit(Thread::currentThread).get(1, TimeUnit.SECONDS);
+			assertEquals("prueba-1", hilo.getName());
+			assertTrue(hilo.toString().startsWith("VirtualThread"));
+		} finally {
+			ejecutor.shutdown();
+		}
+	}
+
+	// Igual que el circuit breaker programático "items": al vencer el TimeLimiter se interrumpe el hilo virtual bloqueado
+	@Test
+	void elTimeLimiterInterrumpeLaTareaBloqueada() throws Exception {
+		assumeTrue(Runtime.version().feature() >= 21);
+
+		ExecutorService ejecutor = HilosVirtualesConfig.crearEjecutor("prueba-");
+		CountDownLatch interrumpida = new CountDownLatch(1);
+		TimeLimiter timeLimiter = TimeLimiter.of(TimeLimiterConfig.custom()
+				.timeoutDuration(Duration.ofMillis(100))
+				.cancelRunningFuture(true)
+				.build());
+		try {
+			assertThrows(TimeoutException.class, () -> timeLimiter.executeFutureSupplier(() -> ejecutor.submit(() -> {
+				try {
+					Thread.sleep(10000);
+				} catch (InterruptedException e) {
+					interrumpida.countDown();
+				}
+				return null;
+			})));
+			assertTrue(interrumpida.await(1, TimeUnit.SECONDS));
+		} finally {
+			ejecutor.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,138 @@
+package com.formacionbdi.springboot.app.item.clientes;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * Simulación con tiempo virtual: llega una petición por milisegundo durante 60 segundos a tres instancias del
+ * servicio-productos, dos rápidas y una lenta. Cada petición tarda la latencia de la instancia elegida.
+ * Se compara el p99 de round-robin con el de "BalanceadorLatencia".
+ */
+class BalanceadorLatenciaTests {
+
+	private static final long MILISEGUNDO = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final ServiceInstance rapida1 = instancia("rapida1", 8001);
+	private final ServiceInstance rapida2 = instancia("rapida2", 8001);
+	private final ServiceInstance lenta = instancia("lenta", 8001);
+
+	// Latencia de cada instancia en milisegundos
+	private final Map<ServiceInstance, Long> latencias = Map.of(this.rapida1, 10L, this.rapida2, 12L, this.lenta, 300L);
+
+	private long ahora;
+	private EstadisticasInstancias estadisticas;
+	private BalanceadorLatencia balanceador;
+
+	@BeforeEach
+	void iniciar() {
+		this.ahora = 0;
+		this.estadisticas = new EstadisticasInstancias();
+		ReflectionTestUtils.setField(this.estadisticas, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(this.estadisticas, "ventana", Duration.ofSeconds(10));
+		ReflectionTestUtils.setField(this.estadisticas, "latenciaInicial", Duration.ofMillis(100));
+		ReflectionTestUtils.setField(this.estadisticas, "penalizacionFallo", Duration.ofSeconds(1));
+		ReflectionTestUtils.setField(this.estadisticas, "calentamiento", Duration.ofSeconds(30));
+		ReflectionTestUtils.setField(this.estadisticas, "inactividad", Duration.ofMinutes(10));
+		ReflectionTestUtils.setField(this.estadisticas, "maximoInstancias", 1000L);
+		this.estadisticas.reloj = () -> this.ahora;
+		this.estadisticas.inicializar();
+		Random aleatorio = new Random(42);
+		this.balanceador = new BalanceadorLatencia(null, this.estadisticas, () -> aleatorio);
+		// Las instancias ya estaban registradas antes de la simulación, sin calentamiento pendiente
+		this.latencias.keySet().forEach(this.estadisticas::de);
+		this.ahora = TimeUnit.MINUTES.toNanos(1);
+	}
+
+	@Test
+	void mejoraElP99RespectoDeRoundRobin() {
+		List<ServiceInstance> lista = List.of(this.rapida1, this.rapida2, this.lenta);
+		int[] siguiente = { 0 };
+		long p99RoundRobin = this.simular(lista, ignorado -> lista.get(siguiente[0]++ % lista.size()));
+
+		this.iniciar();
+		long p99Latencia = this.simular(lista, instancias -> this.balanceador.elegir(instancias).getServer());
+
+		assertTrue(p99RoundRobin >= 300, "p99 round-robin: " + p99RoundRobin);
+		assertTrue(p99Latencia <= 20, "p99 latencia: " + p99Latencia);
+	}
+
+	@Test
+	void unaInstanciaNuevaRecibeTraficoDeFormaGradual() {
+		ServiceInstance nueva = instancia("nueva", 8001);
+		List<ServiceInstance> lista = List.of(this.rapida1, nueva);
+		this.muestra(this.rapida1, 10);
+		this.estadisticas.de(nueva);
+
+		int inicio = this.contar(lista, nueva, 1000);
+		this.ahora += TimeUnit.SECONDS.toNanos(30);
+		this.muestra(this.rapida1, 10);
+		this.muestra(nueva, 10);
+		int calentada = this.contar(lista, nueva, 1000);
+
+		assertTrue(inicio < 250, "elegida al inicio: " + inicio);
+		assertTrue(calentada > 350, "elegida al terminar el calentamiento: " + calentada);
+	}
+
+	// Devuelve el p99 en milisegundos
+	private long simular(List<ServiceInstance> lista, Function<List<ServiceInstance>, ServiceInstance> elegir) {
+		PriorityQueue<long[]> enCurso = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+		Map<Long, ServiceInstance> instancias = new HashMap<>();
+		List<Long> resultados = new ArrayList<>();
+		long fin = this.ahora + TimeUnit.SECONDS.toNanos(60);
+		long peticion = 0;
+
+		for (; this.ahora < fin; this.ahora += MILISEGUNDO) {
+			while (!enCurso.isEmpty() && enCurso.peek()[0] <= this.ahora) {
+				long[] terminada = enCurso.poll();
+				this.estadisticas.de(instancias.remove(terminada[1])).terminar(terminada[2] * MILISEGUNDO, false);
+			}
+			ServiceInstance elegida = elegir.apply(lista);
+			long latencia = this.latencias.get(elegida);
+			this.estadisticas.de(elegida).iniciar();
+			instancias.put(peticion, elegida);
+			enCurso.add(new long[] { this.ahora + latencia * MILISEGUNDO, peticion++, latencia });
+			resultados.add(latencia);
+		}
+		Collections.sort(resultados);
+		return resultados.get((int) (resultados.size() * 0.99));
+	}
+
+	private void muestra(ServiceInstance instancia, long milisegundos) {
+		EstadisticasInstancias.Estadistica estadistica = this.estadisticas.de(instancia);
+		estadistica.iniciar();
+		estadistica.terminar(milisegundos * MILISEGUNDO, false);
+	}
+
+	private int contar(List<ServiceInstance> lista, ServiceInstance buscada, int peticiones) {
+		int elegida = 0;
+		for (int i = 0; i < peticiones; i++) {
+			if (this.balanceador.elegir(lista).getServer() == buscada) {
+				elegida++;
+			}
+		}
+		return elegida;
+	}
+
+	private static ServiceInstance instancia(String host, int puerto) {
+		return new DefaultServiceInstance(host, "servicio-productos", host, puerto, false);
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.formacionbdi.springboot.app.item.clientes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+
+class InstanciasSinInterruptorAbiertoTests {
+
+	private final ServiceInstance fallando = new DefaultServiceInstance("fallando", "servicio-productos", "fallando", 8001, false);
+	private final ServiceInstance sana = new DefaultServiceInstance("sana", "servicio-productos", "sana", 8001, false);
+
+	private InterruptoresProductos interruptores;
+	private InstanciasSinInterruptorAbierto instancias;
+
+	@BeforeEach
+	void iniciar() {
+		CircuitBreakerRegistry registro = CircuitBreakerRegistry.ofDefaults();
+		registro.circuitBreaker("items", CircuitBreakerConfig.custom()
+				.slidingWindowSize(2)
+				.minimumNumberOfCalls(2)
+				.waitDurationInOpenState(Duration.ofMillis(100))
+				.permittedNumberOfCallsInHalfOpenState(1)
+				.build());
+
+		this.interruptores = new InterruptoresProductos();
+		ReflectionTestUtils.setField(this.interruptores, "circuitBreakerRegistry", registro);
+		ReflectionTestUtils.setField(this.interruptores, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(this.interruptores, "porInstancia", true);
+		ReflectionTestUtils.setField(this.interruptores, "inactividad", Duration.ofMinutes(10));
+		ReflectionTestUtils.setField(this.interruptores, "maximoInstancias", 100L);
+		this.interruptores.inicializar();
+
+		List<ServiceInstance> lista = List.of(this.fallando, this.sana);
+		this.instancias = new InstanciasSinInterruptorAbierto(new ServiceInstanceListSupplier() {
+			@Override
+			public String getServiceId() {
+				return "servicio-productos";
+			}
+
+			@Override
+			public Flux<List<ServiceInstance>> get() {
+				return Flux.just(lista);
+			}
+		}, this.interruptores);
+	}
+
+	@Test
+	void laInstanciaVuelveAlBalanceoAlRecuperarse() throws InterruptedException {
+		CircuitBreaker interruptor = this.interruptores.porInstancia("fallando:8001");
+		for (int i = 0; i < 2; i++) {
+			interruptor.acquirePermission();
+			interruptor.onError(1, TimeUnit.MILLISECONDS, new IOException("Conexión rechazada"));
+		}
+		assertEquals(CircuitBreaker.State.OPEN, interruptor.getState());
+		assertEquals(List.of(this.sana), this.instancias.get().blockFirst());
+
+		// Pasado "waitDurationInOpenState" pasa solo a semi-abierto y vuelve a recibir peticiones
+		long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (interruptor.getState() == CircuitBreaker.State.OPEN && System.nanoTime() < limite) {
+			Thread.sleep(10);
+		}
+		assertEquals(CircuitBreaker.State.HALF_OPEN, interruptor.getState());
+		assertEquals(List.of(this.fallando, this.sana), this.instancias.get().blockFirst());
+
+		interruptor.acquirePermission();
+		interruptor.onSuccess(1, TimeUnit.MILLISECONDS);
+		assertEquals(CircuitBreaker.State.CLOSED, interruptor.getState());
+		assertEquals(List.of(this.fallando, this.sana), this.instancias.get().blockFirst());
+	}
+
+}
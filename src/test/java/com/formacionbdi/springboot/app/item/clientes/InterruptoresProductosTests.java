@@ -0,0 +1,57 @@
+package com.formacionbdi.springboot.app.item.clientes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class InterruptoresProductosTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private CircuitBreakerRegistry registro;
+	private InterruptoresProductos interruptores;
+
+	@BeforeEach
+	void iniciar() {
+		this.registro = CircuitBreakerRegistry.ofDefaults();
+		this.registro.circuitBreaker("items", CircuitBreakerConfig.custom().slidingWindowSize(10).build());
+
+		this.interruptores = new InterruptoresProductos();
+		ReflectionTestUtils.setField(this.interruptores, "circuitBreakerRegistry", this.registro);
+		ReflectionTestUtils.setField(this.interruptores, "meterRegistry", this.meterRegistry);
+		ReflectionTestUtils.setField(this.interruptores, "porInstancia", true);
+		ReflectionTestUtils.setField(this.interruptores, "cantidadCubetas", 4);
+		ReflectionTestUtils.setField(this.interruptores, "inactividad", Duration.ofMinutes(10));
+		ReflectionTestUtils.setField(this.interruptores, "maximoInstancias", 100L);
+		this.interruptores.inicializar();
+	}
+
+	@Test
+	void usaLaConfiguracionNuevaAlReemplazarseItems() {
+		CircuitBreaker instancia = this.interruptores.porInstancia("productos:8001");
+		CircuitBreaker cubeta = this.interruptores.porProducto(5L);
+		assertEquals(10, instancia.getCircuitBreakerConfig().getSlidingWindowSize());
+
+		this.registro.replace("items", CircuitBreaker.of("items", CircuitBreakerConfig.custom().slidingWindowSize(20).build()));
+
+		CircuitBreaker instanciaNueva = this.interruptores.porInstancia("productos:8001");
+		CircuitBreaker cubetaNueva = this.interruptores.porProducto(5L);
+		assertNotSame(instancia, instanciaNueva);
+		assertNotSame(cubeta, cubetaNueva);
+		assertEquals(20, instanciaNueva.getCircuitBreakerConfig().getSlidingWindowSize());
+		assertEquals(20, cubetaNueva.getCircuitBreakerConfig().getSlidingWindowSize());
+		// Los gauges quedan registrados sobre los circuitos nuevos
+		assertEquals(1, this.meterRegistry.find("items.interruptores.estado").tags("tipo", "instancia").gauges().size());
+		assertEquals(1, this.meterRegistry.find("items.interruptores.estado").tags("tipo", "cubeta").gauges().size());
+	}
+
+}
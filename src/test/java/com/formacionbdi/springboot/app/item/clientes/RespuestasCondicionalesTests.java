@@ -0,0 +1,93 @@
+package com.formacionbdi.springboot.app.item.clientes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RespuestasCondicionalesTests {
+
+	private static final String CUERPO = "{\"id\":1,\"nombre\":\"Producto 1\"}";
+
+	private RespuestasCondicionales condicionales;
+
+	@BeforeEach
+	void iniciar() {
+		this.condicionales = new RespuestasCondicionales();
+		ReflectionTestUtils.setField(this.condicionales, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(this.condicionales, "habilitado", true);
+		ReflectionTestUtils.setField(this.condicionales, "memoria", DataSize.ofMegabytes(1));
+		ReflectionTestUtils.setField(this.condicionales, "tamanoMaximo", DataSize.ofBytes(CUERPO.length()));
+		this.condicionales.inicializar();
+	}
+
+	@Test
+	void revalidaYEntregaLaRespuestaGuardadaAnteUn304() throws IOException {
+		this.descargar("http://instancia-1:8001/ver/1", CUERPO);
+
+		// Otra instancia, misma ruta
+		BasicHttpRequest peticion = peticion("http://instancia-2:8001/ver/1");
+		RespuestasCondicionales.Guardada guardada = this.condicionales.preparar(peticion);
+		assertNotNull(guardada);
+		assertEquals("\"v1\"", peticion.getFirstHeader(HttpHeaders.IF_NONE_MATCH).getValue());
+
+		HttpResponse noModificada = new BasicHttpResponse(HttpVersion.HTTP_1_1, 304, "Not Modified");
+		HttpResponse respuesta = this.condicionales.procesar(peticion, guardada, noModificada);
+
+		assertEquals(200, respuesta.getStatusLine().getStatusCode());
+		assertEquals(CUERPO, EntityUtils.toString(respuesta.getEntity(), StandardCharsets.UTF_8));
+		assertEquals("application/json", respuesta.getEntity().getContentType().getValue());
+	}
+
+	@Test
+	void noGuardaLasRespuestasMayoresAlTamanoMaximo() throws IOException {
+		this.descargar("http://instancia-1:8001/listar", CUERPO + CUERPO);
+
+		BasicHttpRequest peticion = peticion("http://instancia-1:8001/listar");
+		assertNull(this.condicionales.preparar(peticion));
+		assertFalse(peticion.containsHeader(HttpHeaders.IF_NONE_MATCH));
+	}
+
+	// Primera petición: respuesta 200 con ETag, leída completa como lo hacen Feign y el RestTemplate
+	private void descargar(String uri, String cuerpo) throws IOException {
+		BasicHttpRequest peticion = peticion(uri);
+		assertNull(this.condicionales.preparar(peticion));
+
+		byte[] bytes = cuerpo.getBytes(StandardCharsets.UTF_8);
+		BasicHttpEntity entidad = new BasicHttpEntity();
+		entidad.setContent(new ByteArrayInputStream(bytes));
+		entidad.setContentLength(-1);
+		entidad.setContentType("application/json");
+		HttpResponse respuesta = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+		respuesta.setHeader(HttpHeaders.ETAG, "\"v1\"");
+		respuesta.setEntity(entidad);
+
+		HttpResponse procesada = this.condicionales.procesar(peticion, null, respuesta);
+		assertEquals(cuerpo, EntityUtils.toString(procesada.getEntity(), StandardCharsets.UTF_8));
+	}
+
+	private static BasicHttpRequest peticion(String uri) {
+		BasicHttpRequest peticion = new BasicHttpRequest("GET", uri);
+		peticion.setHeader(HttpHeaders.ACCEPT, "application/json");
+		return peticion;
+	}
+
+}
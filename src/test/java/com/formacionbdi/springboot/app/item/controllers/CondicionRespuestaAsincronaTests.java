@@ -0,0 +1,37 @@
+package com.formacionbdi.springboot.app.item.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+class CondicionRespuestaAsincronaTests {
+
+	private final CondicionRespuestaAsincrona condicion = CondicionRespuestaAsincrona.instancia();
+
+	@Test
+	void aceptaLaPreferenciaConOtrasPreferenciasYParametros() {
+		assertNotNull(this.condicion.getMatchingCondition(this.peticion("respond-async")));
+		assertNotNull(this.condicion.getMatchingCondition(this.peticion("Respond-Async")));
+		assertNotNull(this.condicion.getMatchingCondition(this.peticion("wait=5, respond-async")));
+		assertNotNull(this.condicion.getMatchingCondition(this.peticion("respond-async; motivo=lote")));
+		assertNotNull(this.condicion.getMatchingCondition(this.peticion("return=minimal", "respond-async")));
+	}
+
+	@Test
+	void rechazaLasPeticionesSinLaPreferencia() {
+		assertNull(this.condicion.getMatchingCondition(new MockHttpServletRequest("POST", "/crear")));
+		assertNull(this.condicion.getMatchingCondition(this.peticion("return=minimal, wait=5")));
+		assertNull(this.condicion.getMatchingCondition(this.peticion("handling=respond-async")));
+	}
+
+	private MockHttpServletRequest peticion(String... prefer) {
+		MockHttpServletRequest peticion = new MockHttpServletRequest("POST", "/crear");
+		for (String valor : prefer) {
+			peticion.addHeader("Prefer", valor);
+		}
+		return peticion;
+	}
+
+}
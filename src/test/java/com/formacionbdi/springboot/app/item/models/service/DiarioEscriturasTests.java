@@ -0,0 +1,68 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.formacionbdi.springboot.app.item.models.OperacionEscritura;
+
+class DiarioEscriturasTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@TempDir
+	Path directorio;
+
+	@Test
+	void registraLasEscriturasDeVariosHilosALaVez() throws Exception {
+		Path archivo = this.directorio.resolve("escrituras.log");
+		ExecutorService hilos = Executors.newFixedThreadPool(8);
+		try (DiarioEscrituras diario = new DiarioEscrituras(archivo, this.objectMapper, true)) {
+			List<Future<?>> agregadas = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				OperacionEscritura operacion = this.operacion("op-" + i);
+				agregadas.add(hilos.submit(() -> {
+					diario.agregar(Collections.singletonList(operacion));
+					return null;
+				}));
+			}
+			for (Future<?> agregada : agregadas) {
+				agregada.get();
+			}
+
+			Set<String> ids = new HashSet<>();
+			diario.recuperar().forEach(operacion -> ids.add(operacion.getId()));
+			assertEquals(100, ids.size());
+		} finally {
+			hilos.shutdownNow();
+		}
+	}
+
+	@Test
+	void rechazaEscriturasDespuesDeCerrar() throws IOException {
+		DiarioEscrituras diario = new DiarioEscrituras(this.directorio.resolve("escrituras.log"), this.objectMapper, false);
+		diario.agregar(Collections.singletonList(this.operacion("op-1")));
+		diario.close();
+
+		assertThrows(IOException.class, () -> diario.agregar(Collections.singletonList(this.operacion("op-2"))));
+	}
+
+	private OperacionEscritura operacion(String id) {
+		return new OperacionEscritura(id, OperacionEscritura.Tipo.ELIMINAR, 1L, null, id);
+	}
+
+}
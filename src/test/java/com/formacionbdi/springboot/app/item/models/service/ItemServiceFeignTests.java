@@ -0,0 +1,113 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.cloud.openfeign.support.ResponseEntityDecoder;
+import org.springframework.cloud.openfeign.support.SpringDecoder;
+import org.springframework.cloud.openfeign.support.SpringEncoder;
+import org.springframework.cloud.openfeign.support.SpringMvcContract;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.clientes.ProductoClienteRest;
+import com.sun.net.httpserver.HttpServer;
+
+import feign.Feign;
+import feign.FeignException;
+
+class ItemServiceFeignTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	// Ids recibidos en cada petición a "/ver/lote"
+	private final List<List<Long>> lotesRecibidos = new CopyOnWriteArrayList<>();
+
+	private HttpServer servicioProductos;
+	private ExecutorService ejecutor;
+	private ItemServiceFeign itemService;
+
+	@BeforeEach
+	void iniciar() throws IOException {
+		// Simula el "servicio-productos": "/ver/lote" devuelve solo los ids positivos
+		this.servicioProductos = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		this.servicioProductos.createContext("/ver/lote", intercambio -> {
+			try (InputStream cuerpo = intercambio.getRequestBody()) {
+				List<Long> ids = this.objectMapper.readValue(cuerpo, new TypeReference<List<Long>>() {});
+				this.lotesRecibidos.add(ids);
+				byte[] respuesta = this.objectMapper.writeValueAsBytes(ids.stream()
+						.filter(id -> id > 0)
+						.map(ItemServiceFeignTests::producto)
+						.collect(Collectors.toList()));
+				intercambio.getResponseHeaders().add("Content-Type", "application/json");
+				intercambio.sendResponseHeaders(200, respuesta.length);
+				try (OutputStream salida = intercambio.getResponseBody()) {
+					salida.write(respuesta);
+				}
+			}
+		});
+		this.servicioProductos.start();
+
+		ObjectFactory<HttpMessageConverters> convertidores = () -> new HttpMessageConverters(new MappingJackson2HttpMessageConverter());
+		ProductoClienteRest cliente = Feign.builder()
+				.contract(new SpringMvcContract())
+				.encoder(new SpringEncoder(convertidores))
+				.decoder(new ResponseEntityDecoder(new SpringDecoder(convertidores)))
+				.target(ProductoClienteRest.class, "http://localhost:" + this.servicioProductos.getAddress().getPort());
+
+		this.ejecutor = Executors.newFixedThreadPool(2);
+		this.itemService = new ItemServiceFeign();
+		ReflectionTestUtils.setField(this.itemService, "clienteFeign", cliente);
+		ReflectionTestUtils.setField(this.itemService, "lotesHabilitado", true);
+		ReflectionTestUtils.setField(this.itemService, "tamanoMaximoLote", 64);
+		ReflectionTestUtils.setField(this.itemService, "ventanaLote", Duration.ofMillis(20));
+		ReflectionTestUtils.setField(this.itemService, "itemsSubtareasExecutor", this.ejecutor);
+		this.itemService.inicializar();
+	}
+
+	@AfterEach
+	void cerrar() {
+		this.itemService.cerrar();
+		this.ejecutor.shutdown();
+		this.servicioProductos.stop(0);
+	}
+
+	@Test
+	void consultaElProductoPorLote() {
+		assertEquals("Producto 5", this.itemService.findById(5L, 2).getProducto().getNombre());
+		assertEquals(List.of(List.of(5L)), this.lotesRecibidos);
+	}
+
+	@Test
+	void unIdSinProductoFallaComoLaConsultaIndividual() {
+		FeignException error = assertThrows(FeignException.NotFound.class, () -> this.itemService.findById(-1L, 1));
+		assertEquals(404, error.status());
+	}
+
+	private static Producto producto(Long id) {
+		Producto producto = new Producto();
+		producto.setId(id);
+		producto.setNombre("Producto " + id);
+		producto.setPrecio(10D);
+		return producto;
+	}
+
+}
@@ -0,0 +1,140 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.ConfiguracionDinamica;
+import com.formacionbdi.springboot.app.item.models.Item;
+import com.formacionbdi.springboot.app.item.models.SolicitudItem;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ItemServiceReintentosTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final ServicioConFallas servicio = new ServicioConFallas();
+	private ItemServiceReintentos reintentos;
+
+	@BeforeEach
+	void iniciar() {
+		ConfiguracionDinamica configuracion = new ConfiguracionDinamica();
+		ReflectionTestUtils.setField(configuracion, "env", new MockEnvironment()
+				.withProperty("resilience4j.timelimiter.instances.items.timeout-duration", "2s"));
+		configuracion.inicializar();
+
+		this.reintentos = new ItemServiceReintentos();
+		ReflectionTestUtils.setField(this.reintentos, "itemService", this.servicio);
+		ReflectionTestUtils.setField(this.reintentos, "configuracionDinamica", configuracion);
+		ReflectionTestUtils.setField(this.reintentos, "meterRegistry", this.meterRegistry);
+		ReflectionTestUtils.setField(this.reintentos, "habilitado", true);
+		ReflectionTestUtils.setField(this.reintentos, "maximo", 2);
+		ReflectionTestUtils.setField(this.reintentos, "porcentaje", 10D);
+		ReflectionTestUtils.setField(this.reintentos, "acumulables", 3D);
+		ReflectionTestUtils.setField(this.reintentos, "esperaBase", Duration.ofMillis(1));
+		ReflectionTestUtils.setField(this.reintentos, "esperaMaxima", Duration.ofMillis(5));
+		this.reintentos.inicializar();
+	}
+
+	@Test
+	void recuperaUnErrorTransitorio() {
+		this.servicio.fallas.set(1);
+
+		assertNotNull(this.reintentos.findById(1L, 2));
+		assertEquals(2, this.servicio.llamadas.get());
+		assertEquals(1, this.contador("findById", "exito"));
+	}
+
+	@Test
+	void noReintentaErroresDelCliente() {
+		this.servicio.error = new HttpClientErrorException(HttpStatus.NOT_FOUND);
+		this.servicio.fallas.set(1);
+
+		assertThrows(HttpClientErrorException.class, () -> this.reintentos.findById(1L, 2));
+		assertEquals(1, this.servicio.llamadas.get());
+	}
+
+	@Test
+	void noReintentaLasEscrituras() {
+		this.servicio.fallas.set(1);
+
+		assertThrows(ResourceAccessException.class, () -> this.reintentos.save(new Producto()));
+		assertEquals(1, this.servicio.llamadas.get());
+	}
+
+	@Test
+	void elPresupuestoLimitaLosReintentos() {
+		// 3 tokens iniciales: cada llamada falla dos veces y consume dos reintentos
+		this.servicio.fallas.set(Integer.MAX_VALUE);
+		for (int i = 0; i < 3; i++) {
+			assertThrows(ResourceAccessException.class, () -> this.reintentos.findAll());
+		}
+
+		assertEquals(3 + 3, this.servicio.llamadas.get());
+		assertEquals(3, this.contador("findAll", "fallo"));
+		assertEquals(2, this.contador("findAll", "sin-presupuesto"));
+	}
+
+	private double contador(String operacion, String resultado) {
+		return this.meterRegistry.get("items.reintentos").tag("operacion", operacion).tag("resultado", resultado).counter().count();
+	}
+
+	// Falla las primeras "fallas" llamadas con "error"
+	private static class ServicioConFallas implements ItemService {
+		private final AtomicInteger llamadas = new AtomicInteger();
+		private final AtomicInteger fallas = new AtomicInteger();
+		private RuntimeException error = new ResourceAccessException("Conexión rechazada");
+
+		private <T> T llamar(T resultado) {
+			this.llamadas.incrementAndGet();
+			if (this.fallas.getAndDecrement() > 0) {
+				throw this.error;
+			}
+			return resultado;
+		}
+
+		@Override
+		public List<Item> findAll() {
+			return this.llamar(List.of());
+		}
+
+		@Override
+		public Item findById(Long id, Integer cantidad) {
+			return this.llamar(new Item(new Producto(), cantidad));
+		}
+
+		@Override
+		public List<Item> findAllById(List<SolicitudItem> solicitudes) {
+			return this.llamar(List.of());
+		}
+
+		@Override
+		public Producto save(Producto producto) {
+			return this.llamar(producto);
+		}
+
+		@Override
+		public Producto update(Producto producto, Long id) {
+			return this.llamar(producto);
+		}
+
+		@Override
+		public void deleteById(Long id) {
+			this.llamar(null);
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.models.ConsultaItems;
+
+class ItemStreamingServiceTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final ItemStreamingService streamingService = new ItemStreamingService();
+
+	// Respuesta del "/listar" del servicio-productos: "Mesa 1", "Silla 2", "Mesa 3", ... hasta 10
+	private byte[] catalogo;
+
+	@BeforeEach
+	void preparar() throws IOException {
+		ReflectionTestUtils.setField(this.streamingService, "objectMapper", this.objectMapper);
+
+		List<Producto> productos = new ArrayList<>();
+		for (long id = 1; id <= 10; id++) {
+			Producto producto = new Producto();
+			producto.setId(id);
+			producto.setNombre((id % 2 == 1 ? "Mesa " : "Silla ") + id);
+			producto.setPrecio(10D * id);
+			productos.add(producto);
+		}
+		this.catalogo = this.objectMapper.writeValueAsBytes(productos);
+	}
+
+	@Test
+	void escribeSoloLosItemsDeLaPaginaPedida() throws IOException {
+		JsonNode items = this.paginar(new ConsultaItems(1, 3, null, null));
+
+		assertEquals(3, items.size());
+		assertEquals(4, items.get(0).path("producto").path("id").asLong());
+		assertEquals(6, items.get(2).path("producto").path("id").asLong());
+	}
+
+	@Test
+	void aplicaElFiltroAntesDePaginar() throws IOException {
+		JsonNode items = this.paginar(new ConsultaItems(1, 2, "MESA", null));
+
+		assertEquals(2, items.size());
+		assertEquals("Mesa 5", items.get(0).path("producto").path("nombre").asText());
+		assertEquals("Mesa 7", items.get(1).path("producto").path("nombre").asText());
+	}
+
+	@Test
+	void laUltimaPaginaPuedeEstarIncompletaOVacia() throws IOException {
+		assertEquals(1, this.paginar(new ConsultaItems(3, 3, null, null)).size());
+		assertEquals(0, this.paginar(new ConsultaItems(4, 3, null, null)).size());
+	}
+
+	@Test
+	void proyectaSoloLosCamposPedidos() throws IOException {
+		JsonNode item = this.paginar(new ConsultaItems(0, 1, null, List.of("producto.nombre", "total"))).get(0);
+
+		assertEquals("Mesa 1", item.path("producto").path("nombre").asText());
+		assertEquals(10D, item.path("total").asDouble());
+		assertEquals(1, item.path("producto").size());
+		assertFalse(item.has("cantidad"));
+	}
+
+	private JsonNode paginar(ConsultaItems consulta) throws IOException {
+		ByteArrayOutputStream salida = new ByteArrayOutputStream();
+		this.streamingService.escribirPagina(new ByteArrayInputStream(this.catalogo), salida, consulta);
+		return this.objectMapper.readTree(salida.toByteArray());
+	}
+
+}
@@ -0,0 +1,135 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.formacionbdi.springboot.app.commons.models.entity.Producto;
+import com.formacionbdi.springboot.app.item.models.EtiquetaItems;
+import com.formacionbdi.springboot.app.item.models.Item;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ListadoSerializadoTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final ListadoSerializado listadoSerializado = new ListadoSerializado();
+
+	private List<Item> items;
+
+	@BeforeEach
+	void preparar() {
+		// El listado se arma en el mismo hilo de la prueba
+		Executor enLinea = Runnable::run;
+		ReflectionTestUtils.setField(this.listadoSerializado, "objectMapper", this.objectMapper);
+		ReflectionTestUtils.setField(this.listadoSerializado, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(this.listadoSerializado, "itemsIoExecutor", enLinea);
+		ReflectionTestUtils.setField(this.listadoSerializado, "habilitado", true);
+		ReflectionTestUtils.setField(this.listadoSerializado, "gzip", true);
+		this.listadoSerializado.inicializar();
+
+		this.items = new ArrayList<>();
+		for (long id = 1; id <= 3; id++) {
+			Producto producto = new Producto();
+			producto.setId(id);
+			producto.setNombre("Producto " + id);
+			producto.setPrecio(10D * id);
+			this.items.add(new Item(producto, 1));
+		}
+	}
+
+	@Test
+	void escribeLosMismosBytesQueJackson() throws IOException {
+		ListadoSerializado.Listado listado = this.buscar();
+
+		MockHttpServletResponse respuesta = new MockHttpServletResponse();
+		assertTrue(this.listadoSerializado.escribir(listado, new MockHttpServletRequest(), respuesta));
+
+		assertArrayEquals(this.objectMapper.writeValueAsBytes(this.items), respuesta.getContentAsByteArray());
+		assertEquals("application/json", respuesta.getContentType());
+		assertNull(respuesta.getHeader(HttpHeaders.CONTENT_ENCODING));
+	}
+
+	@Test
+	void entregaLaVersionComprimidaSiElClienteAceptaGzip() throws IOException {
+		ListadoSerializado.Listado listado = this.buscar();
+
+		MockHttpServletRequest peticion = new MockHttpServletRequest();
+		peticion.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+		MockHttpServletResponse respuesta = new MockHttpServletResponse();
+		assertTrue(this.listadoSerializado.escribir(listado, peticion, respuesta));
+
+		assertEquals("gzip", respuesta.getHeader(HttpHeaders.CONTENT_ENCODING));
+		try (GZIPInputStream entrada = new GZIPInputStream(new ByteArrayInputStream(respuesta.getContentAsByteArray()))) {
+			assertArrayEquals(this.objectMapper.writeValueAsBytes(this.items), entrada.readAllBytes());
+		}
+	}
+
+	@Test
+	void laVersionComprimidaNoComparteUnETagFuerte() throws IOException {
+		ListadoSerializado.Listado listado = this.buscar();
+		String etiqueta = EtiquetaItems.de(listado.getDatos(), null);
+
+		MockHttpServletRequest peticion = new MockHttpServletRequest();
+		peticion.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+		MockHttpServletResponse respuesta = new MockHttpServletResponse();
+		respuesta.setHeader(HttpHeaders.ETAG, etiqueta);
+		assertTrue(this.listadoSerializado.escribir(listado, peticion, respuesta));
+		assertEquals(etiqueta, respuesta.getHeader(HttpHeaders.ETAG));
+		assertTrue(etiqueta.startsWith("W/"));
+
+		respuesta = new MockHttpServletResponse();
+		respuesta.setHeader(HttpHeaders.ETAG, "\"fuerte\"");
+		assertTrue(this.listadoSerializado.escribir(listado, peticion, respuesta));
+		assertEquals("W/\"fuerte\"", respuesta.getHeader(HttpHeaders.ETAG));
+	}
+
+	@Test
+	void noEscribeSiElClientePrefiereOtroFormato() throws IOException {
+		ListadoSerializado.Listado listado = this.buscar();
+
+		MockHttpServletRequest peticion = new MockHttpServletRequest();
+		peticion.addHeader(HttpHeaders.ACCEPT, "application/x-jackson-smile, application/json;q=0.5");
+		MockHttpServletResponse respuesta = new MockHttpServletResponse();
+
+		assertFalse(this.listadoSerializado.escribir(listado, peticion, respuesta));
+		assertEquals(0, respuesta.getContentAsByteArray().length);
+	}
+
+	@Test
+	void otrosDatosVuelvenAArmarElListado() {
+		this.buscar();
+		this.items.get(0).getProducto().setPrecio(99D);
+
+		assertNull(this.listadoSerializado.buscar(this.items, EtiquetaItems.datos(this.items)));
+		assertNotNull(this.listadoSerializado.buscar(this.items, EtiquetaItems.datos(this.items)));
+	}
+
+	// La primera búsqueda arma el listado y devuelve null, la segunda lo encuentra
+	private ListadoSerializado.Listado buscar() {
+		long datos = EtiquetaItems.datos(this.items);
+		assertNull(this.listadoSerializado.buscar(this.items, datos));
+		ListadoSerializado.Listado listado = this.listadoSerializado.buscar(this.items, datos);
+		assertNotNull(listado);
+		return listado;
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.formacionbdi.springboot.app.item.models.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MicroBatcherTests {
+
+	// Simula el endpoint "/ver/lote" del servicio-productos: registra cada lote recibido y devuelve "producto-{id}"
+	private final List<List<Long>> lotesRecibidos = new CopyOnWriteArrayList<>();
+
+	private final Function<List<Long>, Map<Long, String>> servicioProductos = ids -> {
+		this.lotesRecibidos.add(ids);
+		return ids.stream()
+				.filter(id -> id > 0)
+				.collect(Collectors.toMap(Function.identity(), id -> "producto-" + id));
+	};
+
+	private ExecutorService ejecutor;
+
+	@BeforeEach
+	void iniciar() {
+		this.ejecutor = Executors.newFixedThreadPool(2);
+	}
+
+	@AfterEach
+	void cerrar() {
+		this.ejecutor.shutdown();
+	}
+
+	@Test
+	void agrupaLasConsultasDeUnaVentanaEnUnaSolaPeticion() {
+		MicroBatcher<Long, String> batcher = new MicroBatcher<>(this.servicioProductos, 64, Duration.ofMillis(50), this.ejecutor);
+
+		List<CompletableFuture<String>> futuros = new ArrayList<>();
+		for (long id = 1; id <= 50; id++) {
+			futuros.add(batcher.solicitar(id));
+		}
+
+		for (int i = 0; i < futuros.size(); i++) {
+			assertEquals("producto-" + (i + 1), futuros.get(i).join());
+		}
+		assertEquals(1, this.lotesRecibidos.size());
+		assertEquals(50, this.lotesRecibidos.get(0).size());
+		batcher.cerrar();
+	}
+
+	@Test
+	void enviaElLoteAlAlcanzarElTamanoMaximo() {
+		MicroBatcher<Long, String> batcher = new MicroBatcher<>(this.servicioProductos, 4, Duration.ofSeconds(10), this.ejecutor);
+
+		List<CompletableFuture<String>> futuros = new ArrayList<>();
+		for (long id = 1; id <= 8; id++) {
+			futuros.add(batcher.solicitar(id));
+		}
+
+		futuros.forEach(CompletableFuture::join);
+		assertEquals(2, this.lotesRecibidos.size());
+		batcher.cerrar();
+	}
+
+	@Test
+	void losIdsRepetidosSeConsultanUnaVez() {
+		MicroBatcher<Long, String> batcher = new MicroBatcher<>(this.servicioProductos, 64, Duration.ofMillis(20), this.ejecutor);
+
+		CompletableFuture<String> primero = batcher.solicitar(7L);
+		CompletableFuture<String> segundo = batcher.solicitar(7L);
+
+		assertEquals("producto-7", primero.join());
+		assertEquals("producto-7", segundo.join());
+		assertEquals(List.of(7L), this.lotesRecibidos.get(0));
+		batcher.cerrar();
+	}
+
+	@Test
+	void fallaSoloLaClaveSinResultado() {
+		MicroBatcher<Long, String> batcher = new MicroBatcher<>(this.servicioProductos, 64, Duration.ofMillis(20), this.ejecutor);
+
+		CompletableFuture<String> existente = batcher.solicitar(3L);
+		CompletableFuture<String> inexistente = batcher.solicitar(-1L);
+
+		assertEquals("producto-3", existente.join());
+		assertThrows(CompletionException.class, inexistente::join);
+		batcher.cerrar();
+	}
+
+	@Test
+	void fallaElLoteSiElEjecutorLoRechaza() {
+		Executor rechazando = tarea -> {
+			throw new RejectedExecutionException("Pool lleno");
+		};
+		MicroBatcher<Long, String> batcher = new MicroBatcher<>(this.servicioProductos, 64, Duration.ofMillis(10), rechazando);
+
+		// El lote se despacha desde el planificador al cumplirse la ventana
+		CompletableFuture<String> futuro = batcher.solicitar(1L);
+
+		ExecutionException error = assertThrows(ExecutionException.class, () -> futuro.get(5, TimeUnit.SECONDS));
+		assertTrue(error.getCause() instanceof RejectedExecutionException);
+		assertTrue(this.lotesRecibidos.isEmpty());
+		batcher.cerrar();
+	}
+
+}